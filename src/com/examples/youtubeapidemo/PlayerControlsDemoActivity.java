@@ -26,6 +26,7 @@ import com.google.android.youtube.player.YouTubePlayerView;
 
 import android.content.Context;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
@@ -34,11 +35,18 @@ import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.CompoundButton;
 import android.widget.EditText;
+import android.widget.ListView;
+import android.widget.ProgressBar;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.Spinner;
 import android.widget.TextView;
 
+import com.examples.youtubeapidemo.adapter.EventLogAdapter;
+import com.examples.youtubeapidemo.player.PlaybackQualityMonitor;
+import com.examples.youtubeapidemo.player.PositionSampler;
+import com.examples.youtubeapidemo.util.LineBuffer;
+
 /**
  * A simple YouTube Android API demo application demonstrating the use of {@link YouTubePlayer}
  * programmatic controls.
@@ -55,22 +63,34 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
       new ListEntry("Playlist: Google I/O 2012", "PL56D792A831D0C362", true)};
 
   private static final String KEY_CURRENTLY_SELECTED_ID = "currentlySelectedId";
+  /** The number of the most recent events kept in the event log. */
+  private static final int EVENT_LOG_CAPACITY = 500;
+  /** How often the position is sampled while playing. */
+  private static final int POSITION_SAMPLES_PER_SECOND = 10;
+  /** The number of the most recent position samples kept. */
+  private static final int POSITION_SAMPLE_CAPACITY = 600;
 
   private YouTubePlayerView youTubePlayerView;
   private YouTubePlayer player;
   private TextView stateText;
+  private ProgressBar progressBar;
   private ArrayAdapter<ListEntry> videoAdapter;
   private Spinner videoChooser;
   private Button playButton;
   private Button pauseButton;
   private EditText skipTo;
-  private TextView eventLog;
-  private StringBuilder logString;
+  private ListView eventLog;
+  private EventLogAdapter eventLogAdapter;
+  // Reused to build the state text and log lines without allocating for each callback.
+  private final LineBuffer stateLine = new LineBuffer(64);
+  private final LineBuffer logLine = new LineBuffer(64);
   private RadioGroup styleRadioGroup;
 
   private MyPlaylistEventListener playlistEventListener;
   private MyPlayerStateChangeListener playerStateChangeListener;
   private MyPlaybackEventListener playbackEventListener;
+  private PlaybackQualityMonitor qualityMonitor;
+  private PositionSampler positionSampler;
 
   private int currentlySelectedPosition;
   private String currentlySelectedId;
@@ -83,17 +103,19 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
 
     youTubePlayerView = (YouTubePlayerView) findViewById(R.id.youtube_view);
     stateText = (TextView) findViewById(R.id.state_text);
+    progressBar = (ProgressBar) findViewById(R.id.playback_progress);
     videoChooser = (Spinner) findViewById(R.id.video_chooser);
     playButton = (Button) findViewById(R.id.play_button);
     pauseButton = (Button) findViewById(R.id.pause_button);
     skipTo = (EditText) findViewById(R.id.skip_to_text);
-    eventLog = (TextView) findViewById(R.id.event_log);
+    eventLog = (ListView) findViewById(R.id.event_log);
 
     styleRadioGroup = (RadioGroup) findViewById(R.id.style_radio_group);
     ((RadioButton) findViewById(R.id.style_default)).setOnCheckedChangeListener(this);
     ((RadioButton) findViewById(R.id.style_minimal)).setOnCheckedChangeListener(this);
     ((RadioButton) findViewById(R.id.style_chromeless)).setOnCheckedChangeListener(this);
-    logString = new StringBuilder();
+    eventLogAdapter = new EventLogAdapter(this, eventLog, EVENT_LOG_CAPACITY);
+    eventLog.setAdapter(eventLogAdapter);
 
     videoAdapter = new ArrayAdapter<ListEntry>(this, android.R.layout.simple_spinner_item, ENTRIES);
     videoAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
@@ -109,6 +131,9 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
     playlistEventListener = new MyPlaylistEventListener();
     playerStateChangeListener = new MyPlayerStateChangeListener();
     playbackEventListener = new MyPlaybackEventListener();
+    qualityMonitor = new PlaybackQualityMonitor();
+    positionSampler = new PositionSampler(POSITION_SAMPLES_PER_SECOND, POSITION_SAMPLE_CAPACITY);
+    positionSampler.setListener(new MyPositionSamplerListener());
 
     setControlsEnabled(false);
   }
@@ -118,8 +143,9 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
       boolean wasRestored) {
     this.player = player;
     player.setPlaylistEventListener(playlistEventListener);
-    player.setPlayerStateChangeListener(playerStateChangeListener);
-    player.setPlaybackEventListener(playbackEventListener);
+    // The monitor forwards the player's events to the listeners.
+    qualityMonitor.attach(player, playbackEventListener, playerStateChangeListener);
+    positionSampler.setPlayer(player);
 
     if (!wasRestored) {
       playVideoAtSelection();
@@ -127,6 +153,20 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
     setControlsEnabled(true);
   }
 
+  @Override
+  protected void onDestroy() {
+    positionSampler.setPlayer(null);
+    Log.d(getString(R.string.loggingTag), "Position sampler: "
+        + positionSampler.getTotalSampleCount() + " samples at " + POSITION_SAMPLES_PER_SECOND
+        + " Hz, " + positionSampler.getAverageSampleNanos() / 1000 + " us each, "
+        + positionSampler.getStallCount() + " stalls, "
+        + positionSampler.getWatchedMillis() / 1000 + " s watched");
+    Log.d(getString(R.string.loggingTag), "Event log: " + eventLogAdapter.getMessageCount()
+        + " events shown in " + eventLogAdapter.getRefreshCount() + " refreshes");
+    Log.d(getString(R.string.loggingTag), "Playback quality: " + qualityMonitor.getSnapshot());
+    super.onDestroy();
+  }
+
   @Override
   protected YouTubePlayer.Provider getYouTubePlayerProvider() {
     return youTubePlayerView;
@@ -136,6 +176,7 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
     ListEntry selectedEntry = videoAdapter.getItem(currentlySelectedPosition);
     if (selectedEntry.id != currentlySelectedId && player != null) {
       currentlySelectedId = selectedEntry.id;
+      qualityMonitor.onCue();
       if (selectedEntry.isPlaylist) {
         player.cuePlaylist(selectedEntry.id);
       } else {
@@ -206,14 +247,19 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
   }
 
   private void updateText() {
-    stateText.setText(String.format("Current state: %s %s %s",
-        playerStateChangeListener.playerState, playbackEventListener.playbackState,
-        playbackEventListener.bufferingState));
+    stateLine.clear()
+        .append("Current state: ").append(playerStateChangeListener.playerState)
+        .append(' ').append(playbackEventListener.playbackState)
+        .append(' ').append(playbackEventListener.bufferingState);
+    stateText.setText(stateLine.getChars(), 0, stateLine.length());
   }
 
   private void log(String message) {
-    logString.append(message + "\n");
-    eventLog.setText(logString);
+    eventLogAdapter.add(message);
+  }
+
+  private void log(LineBuffer message) {
+    eventLogAdapter.add(message);
   }
 
   private void setControlsEnabled(boolean enabled) {
@@ -234,19 +280,13 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
     }
   }
 
-  private String formatTime(int millis) {
-    int seconds = millis / 1000;
-    int minutes = seconds / 60;
-    int hours = minutes / 60;
-
-    return (hours == 0 ? "" : hours + ":")
-        + String.format("%02d:%02d", minutes % 60, seconds % 60);
-  }
-
-  private String getTimesText() {
-    int currentTimeMillis = player.getCurrentTimeMillis();
-    int durationMillis = player.getDurationMillis();
-    return String.format("(%s/%s)", formatTime(currentTimeMillis), formatTime(durationMillis));
+  /**
+   * Logs a message followed by the given position and the duration of the video.
+   */
+  private void logWithTimes(String message, int positionMillis) {
+    logLine.clear().append(message).append(" (").appendTime(positionMillis)
+        .append('/').appendTime(player.getDurationMillis()).append(')');
+    log(logLine);
   }
 
   private final class MyPlaylistEventListener implements PlaylistEventListener {
@@ -271,20 +311,23 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
     String bufferingState = "";
     @Override
     public void onPlaying() {
+      positionSampler.start();
       playbackState = "PLAYING";
       updateText();
-      log("\tPLAYING " + getTimesText());
+      logWithTimes("\tPLAYING", player.getCurrentTimeMillis());
     }
 
     @Override
     public void onBuffering(boolean isBuffering) {
       bufferingState = isBuffering ? "(BUFFERING)" : "";
       updateText();
-      log("\t\t" + (isBuffering ? "BUFFERING " : "NOT BUFFERING ") + getTimesText());
+      logWithTimes(isBuffering ? "\t\tBUFFERING" : "\t\tNOT BUFFERING",
+          player.getCurrentTimeMillis());
     }
 
     @Override
     public void onStopped() {
+      positionSampler.stop();
       playbackState = "STOPPED";
       updateText();
       log("\tSTOPPED");
@@ -292,63 +335,66 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
 
     @Override
     public void onPaused() {
+      positionSampler.stop();
       playbackState = "PAUSED";
       updateText();
-      log("\tPAUSED " + getTimesText());
+      logWithTimes("\tPAUSED", player.getCurrentTimeMillis());
     }
 
     @Override
     public void onSeekTo(int endPositionMillis) {
-      log(String.format("\tSEEKTO: (%s/%s)",
-          formatTime(endPositionMillis),
-          formatTime(player.getDurationMillis())));
+      logWithTimes("\tSEEKTO:", endPositionMillis);
     }
   }
 
   private final class MyPlayerStateChangeListener implements PlayerStateChangeListener {
-    String playerState = "UNINITIALIZED";
+    // Built in place, as some states include the video id or the error.
+    final LineBuffer playerState = new LineBuffer(32).append("UNINITIALIZED");
 
     @Override
     public void onLoading() {
-      playerState = "LOADING";
+      playerState.clear().append("LOADING");
       updateText();
       log(playerState);
     }
 
     @Override
     public void onLoaded(String videoId) {
-      playerState = String.format("LOADED %s", videoId);
+      playerState.clear().append("LOADED ").append(videoId);
       updateText();
       log(playerState);
     }
 
     @Override
     public void onAdStarted() {
-      playerState = "AD_STARTED";
+      playerState.clear().append("AD_STARTED");
       updateText();
       log(playerState);
     }
 
     @Override
     public void onVideoStarted() {
-      playerState = "VIDEO_STARTED";
+      playerState.clear().append("VIDEO_STARTED");
       updateText();
       log(playerState);
     }
 
     @Override
     public void onVideoEnded() {
-      playerState = "VIDEO_ENDED";
+      positionSampler.stop();
+      playerState.clear().append("VIDEO_ENDED");
       updateText();
       log(playerState);
     }
 
     @Override
     public void onError(ErrorReason reason) {
-      playerState = "ERROR (" + reason + ")";
+      positionSampler.stop();
+      playerState.clear().append("ERROR (").append(reason.name()).append(')');
       if (reason == ErrorReason.UNEXPECTED_SERVICE_DISCONNECTION) {
         // When this error occurs the player is released and can no longer be used.
         player = null;
+        positionSampler.setPlayer(null);
         setControlsEnabled(false);
       }
       updateText();
@@ -357,6 +403,23 @@ public class PlayerControlsDemoActivity extends YouTubeFailureRecoveryActivity i
 
   }
 
+  private final class MyPositionSamplerListener implements PositionSampler.Listener {
+
+    @Override
+    public void onSample(int positionMillis, int durationMillis) {
+      if (progressBar.getMax() != durationMillis) {
+        progressBar.setMax(durationMillis);
+      }
+      progressBar.setProgress(positionMillis);
+    }
+
+    @Override
+    public void onStallChanged(boolean stalled) {
+      log(stalled ? "\t\tSTALLED" : "\t\tNOT STALLED");
+    }
+
+  }
+
   private static final class ListEntry {
 
     public final String title;
@@ -21,41 +21,69 @@ import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
 import com.google.android.youtube.player.YouTubeInitializationResult;
 import com.google.android.youtube.player.YouTubePlayer;
 import com.google.android.youtube.player.YouTubePlayer.OnFullscreenListener;
+import com.google.android.youtube.player.YouTubePlayer.ErrorReason;
 import com.google.android.youtube.player.YouTubePlayer.OnInitializedListener;
+import com.google.android.youtube.player.YouTubePlayer.PlayerStateChangeListener;
 import com.google.android.youtube.player.YouTubePlayer.Provider;
 import com.google.android.youtube.player.YouTubePlayerFragment;
-import com.google.android.youtube.player.YouTubeThumbnailLoader;
-import com.google.android.youtube.player.YouTubeThumbnailLoader.ErrorReason;
-import com.google.android.youtube.player.YouTubeThumbnailView;
 
 import android.annotation.TargetApi;
 import android.app.Activity;
+import android.app.Fragment;
+import android.app.FragmentManager;
 import android.app.ListFragment;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.Bitmap;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewGroup.LayoutParams;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
 import android.widget.BaseAdapter;
 import android.widget.FrameLayout;
+import android.widget.ImageView;
 import android.widget.ListView;
 import android.widget.TextView;
 
+import com.examples.youtubeapidemo.list.CatalogSource;
+import com.examples.youtubeapidemo.list.PrecueTouchListener;
+import com.examples.youtubeapidemo.list.ScrollAheadPrefetcher;
+import com.examples.youtubeapidemo.list.StaticCatalogSource;
+import com.examples.youtubeapidemo.list.StreamingCatalogSource;
+import com.examples.youtubeapidemo.list.ThumbnailCache;
+import com.examples.youtubeapidemo.list.VideoEntry;
+import com.examples.youtubeapidemo.ui.LayoutPassCountingFrameLayout;
+import com.examples.youtubeapidemo.util.LongHashSet;
+import com.examples.youtubeapidemo.util.LongIntHashMap;
+import com.examples.youtubeapidemo.util.VideoId;
+import com.examples.youtubeapidemo.list.YouTubeVideoThumbnailSource;
+import com.examples.youtubeapidemo.trace.TraceEvent;
+import com.examples.youtubeapidemo.trace.TraceRecorder;
+
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
- * A sample Activity showing how to manage multiple YouTubeThumbnailViews in an adapter for display
- * in a List. When the list items are clicked, the video is played by using a YouTubePlayerFragment.
+ * A sample Activity showing how to display YouTube thumbnails in an adapter for display in a List.
+ * When the list items are clicked, the video is played by using a YouTubePlayerFragment.
+ * <p>
+ * Thumbnails are loaded through a {@link ThumbnailCache}, so rows scrolled back into view show
+ * their thumbnail straight away instead of loading it again.
+ * <p>
+ * While no video is showing, a touch resting on a row starts cueing its video before the finger
+ * lifts, to cut the time from a tap to a cued video.
  * <p>
  * The demo supports custom fullscreen and transitioning between portrait and landscape without
- * rebuffering.
+ * rebuffering. When the activity is recreated all the same, the video and its position are kept
+ * in a retained fragment, or in the saved instance state if the process was killed.
  */
 @TargetApi(13)
 public final class VideoListDemoActivity extends Activity implements OnFullscreenListener {
@@ -65,14 +93,25 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
   /** The padding between the video list and the video in landscape orientation. */
   private static final int LANDSCAPE_VIDEO_PADDING_DP = 5;
 
+  // The kinds of layout, as recorded in traces.
+  private static final int LAYOUT_PORTRAIT = 0;
+  private static final int LAYOUT_LANDSCAPE = 1;
+  private static final int LAYOUT_FULLSCREEN = 2;
+  private static final String[] LAYOUT_NAMES = {"portrait", "landscape", "fullscreen"};
+
+  private static final String KEY_VIDEO_SHOWN = "videoShown";
+
   private VideoListFragment listFragment;
   private VideoFragment videoFragment;
 
+  private LayoutPassCountingFrameLayout container;
   private View videoBox;
   private View closeButton;
 
   private boolean isFullscreen;
 
+  private LayoutReporter layoutReporter;
+
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
@@ -83,14 +122,27 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
     videoFragment =
         (VideoFragment) getFragmentManager().findFragmentById(R.id.video_fragment_container);
 
+    container = (LayoutPassCountingFrameLayout) findViewById(R.id.container);
+    layoutReporter = new LayoutReporter();
     videoBox = findViewById(R.id.video_box);
     closeButton = findViewById(R.id.close_button);
 
-    videoBox.setVisibility(View.INVISIBLE);
+    // Keep showing the video if one was showing before the activity was recreated.
+    boolean videoShown = savedInstanceState != null
+        && savedInstanceState.getBoolean(KEY_VIDEO_SHOWN) && videoFragment.hasVideo();
+    if (!videoShown) {
+      videoBox.setVisibility(View.INVISIBLE);
+    }
 
     layout();
   }
 
+  @Override
+  protected void onSaveInstanceState(Bundle outState) {
+    super.onSaveInstanceState(outState);
+    outState.putBoolean(KEY_VIDEO_SHOWN, videoBox.getVisibility() == View.VISIBLE);
+  }
+
   @Override
   public void onConfigurationChanged(Configuration newConfig) {
     super.onConfigurationChanged(newConfig);
@@ -110,10 +162,15 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
    * fullscreen+landscape. This has to be done programmatically because we handle the orientation
    * changes ourselves in order to get fluent fullscreen transitions, so the xml layout resources
    * do not get reloaded.
+   * <p>
+   * The new sizes are all set on the existing layout params, and a single layout pass is requested
+   * for the whole container once they are in place.
    */
   private void layout() {
     boolean isPortrait =
         getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT;
+    layoutReporter.start(
+        isFullscreen ? LAYOUT_FULLSCREEN : isPortrait ? LAYOUT_PORTRAIT : LAYOUT_LANDSCAPE);
 
     listFragment.getView().setVisibility(isFullscreen ? View.GONE : View.VISIBLE);
     listFragment.setLabelVisibility(isPortrait);
@@ -136,6 +193,43 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
       setLayoutSizeAndGravity(videoBox, videoWidth, WRAP_CONTENT,
           Gravity.RIGHT | Gravity.CENTER_VERTICAL);
     }
+    container.requestLayout();
+  }
+
+  /**
+   * Logs how many measure and layout passes a change of layout took, and how long it took to be
+   * drawn, once the frame showing it is about to be drawn. The change is also traced as a span.
+   */
+  private final class LayoutReporter implements ViewTreeObserver.OnPreDrawListener {
+
+    private String layoutName;
+    private int layoutKind;
+    private long startTime;
+
+    public void start(int layoutKind) {
+      if (layoutName == null) {
+        container.getViewTreeObserver().addOnPreDrawListener(this);
+        TraceRecorder.record(TraceEvent.LAYOUT_BEGIN, layoutKind);
+      }
+      this.layoutKind = layoutKind;
+      layoutName = LAYOUT_NAMES[layoutKind];
+      startTime = SystemClock.uptimeMillis();
+      container.resetPassCounts();
+    }
+
+    @Override
+    public boolean onPreDraw() {
+      container.getViewTreeObserver().removeOnPreDrawListener(this);
+      TraceRecorder.record(TraceEvent.LAYOUT_END, layoutKind);
+      Log.d(getString(R.string.loggingTag), "Layout " + layoutName + ": "
+          + container.getMeasurePassCount() + " measure passes in "
+          + container.getMeasureNanos() / 1000 + " us, " + container.getLayoutPassCount()
+          + " layout passes in " + container.getLayoutNanos() / 1000 + " us, drawn after "
+          + (SystemClock.uptimeMillis() - startTime) + " ms");
+      layoutName = null;
+      return true;
+    }
+
   }
 
   public void onClickClose(@SuppressWarnings("unused") View view) {
@@ -154,9 +248,30 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
   }
 
   /**
-   * A fragment that shows a static list of videos.
+   * A fragment that shows a list of videos, loaded page by page from a {@link CatalogSource}.
    */
-  public static final class VideoListFragment extends ListFragment {
+  public static final class VideoListFragment extends ListFragment
+      implements PrecueTouchListener.Listener {
+
+    /** The height of a thumbnail in video_list_item. */
+    private static final int THUMBNAIL_HEIGHT_DP = 95;
+    private static final int THUMBNAIL_MEMORY_CACHE_BYTES = 4 * 1024 * 1024;
+    private static final long THUMBNAIL_DISK_CACHE_BYTES = 10 * 1024 * 1024;
+    private static final String THUMBNAIL_CACHE_DIRECTORY = "list_thumbnails";
+    // The number of thumbnail loaders shared by all the rows, however many of them are visible.
+    private static final int THUMBNAIL_LOADER_COUNT = 3;
+    // The maximum number of rows beyond the visible ones whose thumbnails are prefetched. The hit
+    // rate with and without prefetching is compared by ScrollAheadPrefetcherBenchmark.
+    private static final int THUMBNAIL_PREFETCH_DISTANCE = 5;
+    /**
+     * A catalog in the app's files directory, in the format read by {@link StreamingCatalogSource},
+     * which replaces VIDEO_LIST if present.
+     */
+    private static final String CATALOG_FILE = "catalog.json";
+    private static final int CATALOG_PAGE_SIZE = 50;
+    /** Whether to start cueing the video of a row as soon as a touch rests on it. */
+    private static final boolean PRECUE_ON_PRESS = true;
+    private static final int MAX_PRECUES_PER_SECOND = 2;
 
     private static final List<VideoEntry> VIDEO_LIST;
     static {
@@ -171,13 +286,32 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
       VIDEO_LIST = Collections.unmodifiableList(list);
     }
 
+    private ThumbnailCache thumbnailCache;
+    private CatalogSource catalogSource;
     private PageAdapter adapter;
+    private ScrollAheadPrefetcher prefetcher;
+    private PrecueTouchListener precueTouchListener;
     private View videoBox;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
       super.onCreate(savedInstanceState);
-      adapter = new PageAdapter(getActivity(), VIDEO_LIST);
+      int thumbnailHeight =
+          (int) (THUMBNAIL_HEIGHT_DP * getResources().getDisplayMetrics().density + 0.5f);
+      YouTubeVideoThumbnailSource thumbnailSource =
+          new YouTubeVideoThumbnailSource(getActivity(), thumbnailHeight, THUMBNAIL_LOADER_COUNT);
+      thumbnailSource.initialize(DeveloperKey.DEVELOPER_KEY);
+      thumbnailCache = new ThumbnailCache(thumbnailSource,
+          new File(getActivity().getCacheDir(), THUMBNAIL_CACHE_DIRECTORY),
+          THUMBNAIL_MEMORY_CACHE_BYTES, THUMBNAIL_DISK_CACHE_BYTES);
+      File catalogFile = new File(getActivity().getFilesDir(), CATALOG_FILE);
+      if (catalogFile.exists()) {
+        catalogSource = StreamingCatalogSource.forFile(catalogFile, CATALOG_PAGE_SIZE);
+      } else {
+        catalogSource = new StaticCatalogSource(VIDEO_LIST, CATALOG_PAGE_SIZE);
+      }
+      adapter = new PageAdapter(getActivity(), catalogSource, thumbnailCache);
+      prefetcher = new ScrollAheadPrefetcher(thumbnailCache, adapter, THUMBNAIL_PREFETCH_DISTANCE);
     }
 
     @Override
@@ -186,16 +320,20 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
 
       videoBox = getActivity().findViewById(R.id.video_box);
       getListView().setChoiceMode(ListView.CHOICE_MODE_SINGLE);
+      getListView().setRecyclerListener(adapter);
+      getListView().setOnScrollListener(prefetcher);
+      if (PRECUE_ON_PRESS) {
+        precueTouchListener =
+            new PrecueTouchListener(getListView(), this, MAX_PRECUES_PER_SECOND);
+        getListView().setOnTouchListener(precueTouchListener);
+      }
       setListAdapter(adapter);
     }
 
     @Override
     public void onListItemClick(ListView l, View v, int position, long id) {
-      String videoId = VIDEO_LIST.get(position).videoId;
-
-      VideoFragment videoFragment =
-          (VideoFragment) getFragmentManager().findFragmentById(R.id.video_fragment_container);
-      videoFragment.setVideoId(videoId);
+      String videoId = adapter.getItem(position).getVideoId();
+      getVideoFragment().setVideoId(videoId);
 
       // The videoBox is INVISIBLE if no video was previously selected, so we need to show it now.
       if (videoBox.getVisibility() != View.VISIBLE) {
@@ -213,10 +351,39 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
     }
 
     @Override
-    public void onDestroyView() {
-      super.onDestroyView();
+    public boolean onPrecue(int position) {
+      // Only speculate while no video is showing, so that a wrong guess never replaces the video
+      // being watched.
+      if (videoBox.getVisibility() == View.VISIBLE || position >= adapter.getCount()) {
+        return false;
+      }
+      return getVideoFragment().precueVideoId(adapter.getItem(position).getVideoId());
+    }
 
-      adapter.releaseLoaders();
+    private VideoFragment getVideoFragment() {
+      return (VideoFragment) getFragmentManager().findFragmentById(R.id.video_fragment_container);
+    }
+
+    @Override
+    public void onDestroy() {
+      if (precueTouchListener != null) {
+        Log.d(getString(R.string.loggingTag),
+            precueTouchListener.getRateLimitedCount() + " precues dropped by the rate limit");
+      }
+      Log.d(getString(R.string.loggingTag), "Thumbnail cache: " + thumbnailCache.getMemoryHitCount()
+          + " memory hits, " + thumbnailCache.getDiskHitCount() + " disk hits, "
+          + thumbnailCache.getMissCount() + " misses, hit rate " + thumbnailCache.getHitRate()
+          + ", " + adapter.getCancelledLoadCount() + " loads cancelled, "
+          + adapter.getWastedLoadCount() + " loads wasted");
+      Log.d(getString(R.string.loggingTag), adapter.getPlaceholderBindCount() + " of "
+          + adapter.getBindCount() + " rows bound with a placeholder");
+      Runtime runtime = Runtime.getRuntime();
+      Log.d(getString(R.string.loggingTag), "Catalog: " + adapter.getCount()
+          + " rows, first row after " + adapter.getTimeToFirstRowMillis() + " ms, "
+          + (runtime.totalMemory() - runtime.freeMemory()) / 1024 + " KB heap used");
+      catalogSource.release();
+      thumbnailCache.release();
+      super.onDestroy();
     }
 
     public void setLabelVisibility(boolean visible) {
@@ -226,41 +393,74 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
   }
 
   /**
-   * Adapter for the video list. Manages a set of YouTubeThumbnailViews, including initializing each
-   * of them only once and keeping track of the loader of each one. When the ListFragment gets
-   * destroyed it releases all the loaders.
+   * Adapter for the video list. Appends rows as pages of the catalog arrive, asking for the next
+   * page when the rows near the end are bound, and binds each row to the thumbnail of its video as
+   * soon as it is available from the thumbnail cache.
+   * <p>
+   * Every bind gives the row a new generation. A thumbnail request is only honoured if its row has
+   * kept the generation it had when asking, so a late result never paints a row which has since
+   * been recycled. Requests of rows which are rebound or scrolled off screen are cancelled if no
+   * other row waits for the same thumbnail.
    */
-  private static final class PageAdapter extends BaseAdapter {
+  static final class PageAdapter extends BaseAdapter implements
+      ThumbnailCache.Listener,
+      AbsListView.RecyclerListener,
+      ScrollAheadPrefetcher.VideoIds,
+      CatalogSource.Listener {
+
+    // The next page is asked for when a row this close to the end of the loaded ones is bound.
+    private static final int LOAD_AHEAD_ROWS = 20;
 
     private final List<VideoEntry> entries;
-    private final List<View> entryViews;
-    private final Map<YouTubeThumbnailView, YouTubeThumbnailLoader> thumbnailViewToLoaderMap;
+    // The packed ids of the entries, so that videos listed twice in the catalog are shown once.
+    private final LongHashSet entryVideoIds;
+    private final CatalogSource catalogSource;
+    // The holders of the row views which are bound and not in the list's scrap heap. Views waiting
+    // to be reused are left out, as they are brought up to date when bound again.
+    private final List<RowHolder> rowHolders;
     private final LayoutInflater inflater;
-    private final ThumbnailListener thumbnailListener;
+    private final ThumbnailCache thumbnailCache;
 
     private boolean labelsVisible;
 
-    public PageAdapter(Context context, List<VideoEntry> entries) {
-      this.entries = entries;
+    private int lastGeneration;
+    private int cancelledLoads;
+    private int wastedLoads;
+    private int binds;
+    private int placeholderBinds;
+
+    private final long createdTime;
+    private long firstRowTime;
+
+    public PageAdapter(Context context, CatalogSource catalogSource,
+        ThumbnailCache thumbnailCache) {
+      this.catalogSource = catalogSource;
+      this.thumbnailCache = thumbnailCache;
+      this.createdTime = SystemClock.uptimeMillis();
 
-      entryViews = new ArrayList<View>();
-      thumbnailViewToLoaderMap = new HashMap<YouTubeThumbnailView, YouTubeThumbnailLoader>();
+      entries = new ArrayList<VideoEntry>();
+      entryVideoIds = new LongHashSet();
+
+      rowHolders = new ArrayList<RowHolder>();
       inflater = LayoutInflater.from(context);
-      thumbnailListener = new ThumbnailListener();
+      thumbnailCache.setListener(this);
+      catalogSource.setListener(this);
+      catalogSource.loadNextPage();
 
       labelsVisible = true;
     }
 
-    public void releaseLoaders() {
-      for (YouTubeThumbnailLoader loader : thumbnailViewToLoaderMap.values()) {
-        loader.release();
-      }
-    }
-
+    /**
+     * Shows or hides the labels of all the rows at once, so that no frame shows a mix of both.
+     */
     public void setLabelVisibility(boolean visible) {
+      if (visible == labelsVisible) {
+        return;
+      }
       labelsVisible = visible;
-      for (View view : entryViews) {
-        view.findViewById(R.id.text).setVisibility(visible ? View.VISIBLE : View.GONE);
+      int visibility = visible ? View.VISIBLE : View.GONE;
+      for (int i = 0; i < rowHolders.size(); i++) {
+        rowHolders.get(i).label.setVisibility(visibility);
       }
     }
 
@@ -279,76 +479,238 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
       return 0;
     }
 
+    @Override
+    public String getVideoId(int position) {
+      return entries.get(position).getVideoId();
+    }
+
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
       View view = convertView;
-      VideoEntry entry = entries.get(position);
-
-      // There are three cases here
+      RowHolder holder;
       if (view == null) {
-        // 1) The view has not yet been created - we need to initialize the YouTubeThumbnailView.
         view = inflater.inflate(R.layout.video_list_item, parent, false);
-        YouTubeThumbnailView thumbnail = (YouTubeThumbnailView) view.findViewById(R.id.thumbnail);
-        thumbnail.setTag(entry.videoId);
-        thumbnail.initialize(DeveloperKey.DEVELOPER_KEY, thumbnailListener);
+        holder = new RowHolder(view);
+        view.setTag(holder);
       } else {
-        YouTubeThumbnailView thumbnail = (YouTubeThumbnailView) view.findViewById(R.id.thumbnail);
-        YouTubeThumbnailLoader loader = thumbnailViewToLoaderMap.get(thumbnail);
-        if (loader == null) {
-          // 2) The view is already created, and is currently being initialized. We store the
-          //    current videoId in the tag.
-          thumbnail.setTag(entry.videoId);
-        } else {
-          // 3) The view is already created and already initialized. Simply set the right videoId
-          //    on the loader.
-          thumbnail.setImageResource(R.drawable.loading_thumbnail);
-          loader.setVideo(entry.videoId);
-        }
+        holder = (RowHolder) view.getTag();
+      }
+      if (!holder.inUse) {
+        holder.inUse = true;
+        rowHolders.add(holder);
       }
-      TextView label = ((TextView) view.findViewById(R.id.text));
-      label.setText(entry.text);
-      label.setVisibility(labelsVisible ? View.VISIBLE : View.GONE);
+      VideoEntry entry = entries.get(position);
+      if (position >= entries.size() - LOAD_AHEAD_ROWS) {
+        catalogSource.loadNextPage();
+      }
+
+      TraceRecorder.record(TraceEvent.ADAPTER_BIND, entry.getPackedVideoId(), position);
+      bindThumbnail(holder, entry.getVideoId());
+      holder.label.setText(entry.getText());
+      holder.label.setVisibility(labelsVisible ? View.VISIBLE : View.GONE);
       return view;
     }
 
-    private final class ThumbnailListener implements
-        YouTubeThumbnailView.OnInitializedListener,
-        YouTubeThumbnailLoader.OnThumbnailLoadedListener {
+    private void bindThumbnail(RowHolder holder, String videoId) {
+      String previousRequest = holder.hasLiveRequest() ? holder.requestedVideoId : null;
+      holder.generation = ++lastGeneration;
+      holder.videoId = videoId;
+      binds++;
 
-      @Override
-      public void onInitializationSuccess(
-          YouTubeThumbnailView view, YouTubeThumbnailLoader loader) {
-        loader.setOnThumbnailLoadedListener(this);
-        thumbnailViewToLoaderMap.put(view, loader);
-        view.setImageResource(R.drawable.loading_thumbnail);
-        String videoId = (String) view.getTag();
-        loader.setVideo(videoId);
+      Bitmap thumbnail = thumbnailCache.get(videoId);
+      if (thumbnail != null) {
+        holder.requestedVideoId = null;
+        holder.thumbnail.setImageBitmap(thumbnail);
+      } else {
+        holder.requestedVideoId = videoId;
+        holder.requestGeneration = holder.generation;
+        holder.thumbnail.setImageResource(R.drawable.loading_thumbnail);
+        placeholderBinds++;
+        thumbnailCache.request(videoId);
+      }
+      if (previousRequest != null && !previousRequest.equals(videoId)) {
+        maybeCancel(previousRequest);
       }
+    }
 
-      @Override
-      public void onInitializationFailure(
-          YouTubeThumbnailView view, YouTubeInitializationResult loader) {
-        view.setImageResource(R.drawable.no_thumbnail);
+    @Override
+    public void onMovedToScrapHeap(View view) {
+      RowHolder holder = (RowHolder) view.getTag();
+      if (holder == null) {
+        return;
+      }
+      if (holder.inUse) {
+        holder.inUse = false;
+        rowHolders.remove(holder);
       }
+      if (holder.hasLiveRequest()) {
+        holder.generation = ++lastGeneration;
+        maybeCancel(holder.requestedVideoId);
+      }
+    }
 
-      @Override
-      public void onThumbnailLoaded(YouTubeThumbnailView view, String videoId) {
+    private void maybeCancel(String videoId) {
+      for (RowHolder holder : rowHolders) {
+        if (holder.hasLiveRequest() && videoId.equals(holder.requestedVideoId)) {
+          return;
+        }
       }
+      if (thumbnailCache.cancel(videoId)) {
+        cancelledLoads++;
+      }
+    }
 
-      @Override
-      public void onThumbnailError(YouTubeThumbnailView view, ErrorReason errorReason) {
-        view.setImageResource(R.drawable.no_thumbnail);
+    @Override
+    public void onPageLoaded(List<VideoEntry> page, boolean lastPage) {
+      int count = entries.size();
+      for (int i = 0; i < page.size(); i++) {
+        VideoEntry entry = page.get(i);
+        if (entryVideoIds.add(entry.getPackedVideoId())) {
+          entries.add(entry);
+        }
       }
+      if (entries.size() == count) {
+        // No row was added to trigger loading the next page when bound.
+        if (!lastPage) {
+          catalogSource.loadNextPage();
+        }
+        return;
+      }
+      if (count == 0) {
+        firstRowTime = SystemClock.uptimeMillis();
+      }
+      notifyDataSetChanged();
+    }
+
+    @Override
+    public void onCatalogError() {
+      // Keep showing the rows loaded so far.
+    }
+
+    @Override
+    public void onThumbnailAvailable(String videoId, Bitmap thumbnail) {
+      boolean painted = false;
+      for (RowHolder holder : rowHolders) {
+        if (videoId.equals(holder.requestedVideoId)) {
+          if (holder.hasLiveRequest()) {
+            holder.thumbnail.setImageBitmap(thumbnail);
+            painted = true;
+          }
+          holder.requestedVideoId = null;
+        }
+      }
+      if (!painted) {
+        wastedLoads++;
+      }
+    }
+
+    @Override
+    public void onThumbnailUnavailable(String videoId) {
+      for (RowHolder holder : rowHolders) {
+        if (videoId.equals(holder.requestedVideoId)) {
+          if (holder.hasLiveRequest()) {
+            holder.thumbnail.setImageResource(R.drawable.no_thumbnail);
+          }
+          holder.requestedVideoId = null;
+        }
+      }
+    }
+
+    /** Returns the number of thumbnail requests withdrawn before they were loaded. */
+    public int getCancelledLoadCount() {
+      return cancelledLoads;
+    }
+
+    /** Returns the number of thumbnails loaded after every row asking for them had moved on. */
+    public int getWastedLoadCount() {
+      return wastedLoads;
+    }
+
+    /** Returns the time from creating the adapter until it had its first row, or -1 if none. */
+    public long getTimeToFirstRowMillis() {
+      return firstRowTime == 0 ? -1 : firstRowTime - createdTime;
+    }
+
+    public int getBindCount() {
+      return binds;
+    }
+
+    /** Returns the number of row views which are bound and not waiting to be reused. */
+    int getRowHolderCount() {
+      return rowHolders.size();
+    }
+
+    /** Returns the number of binds which had to show a placeholder until the thumbnail arrived. */
+    public int getPlaceholderBindCount() {
+      return placeholderBinds;
+    }
+
+  }
+
+  /**
+   * The views of a row of the video list, the video the row is currently bound to, and its
+   * outstanding thumbnail request.
+   */
+  private static final class RowHolder {
+
+    private final ImageView thumbnail;
+    private final TextView label;
+    private String videoId;
+    private int generation;
+    // Whether the row is among the adapter's holders, from being bound until it is scrapped.
+    private boolean inUse;
+
+    private String requestedVideoId;
+    private int requestGeneration;
+
+    public RowHolder(View view) {
+      thumbnail = (ImageView) view.findViewById(R.id.thumbnail);
+      label = (TextView) view.findViewById(R.id.text);
+    }
+
+    /**
+     * Returns whether the row is still waiting for the thumbnail it requested.
+     */
+    public boolean hasLiveRequest() {
+      return requestedVideoId != null && requestGeneration == generation;
     }
 
   }
 
   public static final class VideoFragment extends YouTubePlayerFragment
-      implements OnInitializedListener {
+      implements OnInitializedListener, PlayerStateChangeListener {
+
+    private static final String KEY_VIDEO_ID = "videoId";
+    private static final String KEY_POSITION_MILLIS = "positionMillis";
 
     private YouTubePlayer player;
     private String videoId;
 
+    private PlayerStateFragment playerState;
+    // Where to start the video once the player is initialized.
+    private int startMillis;
+    // When the previous player was released, if this one replaces it, or 0.
+    private long reinitializationStartTime;
+
+    // Whether the video was cued speculatively, and has not been tapped yet.
+    private boolean precued;
+    private String loadedVideoId;
+
+    // The video tapped last, until it has loaded.
+    private String tappedVideoId;
+    private long tapTime;
+    private boolean tapWasPrecued;
+
+    // The time from a tap to the tapped video being loaded, logged on destroy. This log is the only
+    // measurement of precueing: the player needs the YouTube service, so there is no benchmark in
+    // the test project. Run with PRECUE_ON_PRESS on and off to compare. Taps whose video was not
+    // precued still happen with it on, and are counted apart.
+    private int precuedTaps;
+    private long precuedTapMillis;
+    private int plainTaps;
+    private long plainTapMillis;
+    private int wastedPrecues;
+
     public static VideoFragment newInstance() {
       return new VideoFragment();
     }
@@ -357,26 +719,119 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
     public void onCreate(Bundle savedInstanceState) {
       super.onCreate(savedInstanceState);
 
+      playerState = PlayerStateFragment.get(getFragmentManager());
+      if (playerState.videoId != null) {
+        videoId = playerState.videoId;
+        startMillis = playerState.positionMillis;
+        reinitializationStartTime = playerState.releaseTime;
+      } else if (savedInstanceState != null && savedInstanceState.containsKey(KEY_VIDEO_ID)) {
+        // The process has been killed, and the retained state with it.
+        videoId = savedInstanceState.getString(KEY_VIDEO_ID);
+        startMillis = savedInstanceState.getInt(KEY_POSITION_MILLIS);
+        reinitializationStartTime = SystemClock.uptimeMillis();
+      }
       initialize(DeveloperKey.DEVELOPER_KEY, this);
     }
 
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+      super.onSaveInstanceState(outState);
+      if (videoId != null) {
+        outState.putString(KEY_VIDEO_ID, videoId);
+        outState.putInt(KEY_POSITION_MILLIS, getPositionMillis());
+      }
+    }
+
     @Override
     public void onDestroy() {
+      Log.d(getString(R.string.loggingTag), "Tap to cued video: "
+          + (precuedTaps == 0 ? 0 : precuedTapMillis / precuedTaps) + " ms over " + precuedTaps
+          + " precued taps, " + (plainTaps == 0 ? 0 : plainTapMillis / plainTaps) + " ms over "
+          + plainTaps + " other taps, " + wastedPrecues + " precues wasted");
+      playerState.videoId = videoId;
+      playerState.positionMillis = getPositionMillis();
+      playerState.releaseTime = SystemClock.uptimeMillis();
       if (player != null) {
         player.release();
       }
       super.onDestroy();
     }
 
+    /**
+     * Sets the video tapped by the user, which is cued unless it is already.
+     */
     public void setVideoId(String videoId) {
-      if (videoId != null && !videoId.equals(this.videoId)) {
-        this.videoId = videoId;
-        if (player != null) {
-          player.cueVideo(videoId);
+      if (videoId == null) {
+        return;
+      }
+      boolean cued = videoId.equals(this.videoId);
+      tapWasPrecued = precued && cued;
+      if (precued && !cued) {
+        wastedPrecues++;
+      }
+      precued = false;
+
+      if (cued && !tapWasPrecued) {
+        // Nothing to wait for, and nothing to measure.
+        tappedVideoId = null;
+        return;
+      }
+      tappedVideoId = videoId;
+      tapTime = SystemClock.uptimeMillis();
+      if (cued) {
+        if (videoId.equals(loadedVideoId)) {
+          onTappedVideoLoaded(videoId);
         }
+      } else {
+        cue(videoId);
+      }
+    }
+
+    /**
+     * Starts cueing a video which the user is likely to tap.
+     *
+     * @return Whether the video is being cued, as opposed to being the current video already.
+     */
+    public boolean precueVideoId(String videoId) {
+      if (videoId.equals(this.videoId)) {
+        return false;
+      }
+      if (precued) {
+        wastedPrecues++;
+      }
+      precued = true;
+      cue(videoId);
+      return true;
+    }
+
+    private void cue(String videoId) {
+      if (this.videoId != null && VideoId.isPackable(this.videoId)) {
+        int positionMillis = getPositionMillis();
+        if (positionMillis > 0 && (player == null || positionMillis < player.getDurationMillis())) {
+          playerState.resumePositions.put(VideoId.pack(this.videoId), positionMillis);
+        }
+      }
+      this.videoId = videoId;
+      startMillis =
+          VideoId.isPackable(videoId) ? playerState.resumePositions.remove(VideoId.pack(videoId), 0)
+              : 0;
+      loadedVideoId = null;
+      TraceRecorder.record(TraceEvent.PLAYER_CUE, videoId, startMillis);
+      if (player != null) {
+        player.cueVideo(videoId, startMillis);
       }
     }
 
+    /** Returns whether a video is cued, or restored from before the activity was recreated. */
+    public boolean hasVideo() {
+      return videoId != null;
+    }
+
+    /** Returns the position in the current video, or where it is due to start. */
+    private int getPositionMillis() {
+      return player != null && loadedVideoId != null ? player.getCurrentTimeMillis() : startMillis;
+    }
+
     public void pause() {
       if (player != null) {
         player.pause();
@@ -388,8 +843,20 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
       this.player = player;
       player.addFullscreenControlFlag(YouTubePlayer.FULLSCREEN_FLAG_CUSTOM_LAYOUT);
       player.setOnFullscreenListener((VideoListDemoActivity) getActivity());
+      player.setPlayerStateChangeListener(this);
       if (!restored && videoId != null) {
-        player.cueVideo(videoId);
+        player.cueVideo(videoId, startMillis);
+      } else if (restored) {
+        // The player has restored the video itself.
+        loadedVideoId = videoId;
+      }
+      if (reinitializationStartTime != 0) {
+        Log.d(getString(R.string.loggingTag), "Player reinitialized after "
+            + (SystemClock.uptimeMillis() - reinitializationStartTime) + " ms, restored: "
+            + restored);
+        if (restored) {
+          reinitializationStartTime = 0;
+        }
       }
     }
 
@@ -398,19 +865,93 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
       this.player = null;
     }
 
+    @Override
+    public void onLoaded(String videoId) {
+      TraceRecorder.record(TraceEvent.PLAYER_LOADED, videoId, startMillis);
+      loadedVideoId = videoId;
+      if (reinitializationStartTime != 0) {
+        Log.d(getString(R.string.loggingTag), "Video cued again after "
+            + (SystemClock.uptimeMillis() - reinitializationStartTime) + " ms");
+        reinitializationStartTime = 0;
+      }
+      onTappedVideoLoaded(videoId);
+    }
+
+    private void onTappedVideoLoaded(String videoId) {
+      if (videoId.equals(tappedVideoId)) {
+        long latency = SystemClock.uptimeMillis() - tapTime;
+        if (tapWasPrecued) {
+          precuedTaps++;
+          precuedTapMillis += latency;
+        } else {
+          plainTaps++;
+          plainTapMillis += latency;
+        }
+        tappedVideoId = null;
+      }
+    }
+
+    @Override
+    public void onLoading() {
+    }
+
+    @Override
+    public void onAdStarted() {
+    }
+
+    @Override
+    public void onVideoStarted() {
+    }
+
+    @Override
+    public void onVideoEnded() {
+    }
+
+    @Override
+    public void onError(ErrorReason reason) {
+      TraceRecorder.record(TraceEvent.PLAYER_ERROR, videoId, reason.ordinal());
+      tappedVideoId = null;
+    }
+
   }
 
-  private static final class VideoEntry {
-    private final String text;
-    private final String videoId;
+  /**
+   * A fragment without a view, retained across activity recreation, which keeps the state of the
+   * player from one VideoFragment to the next.
+   */
+  public static final class PlayerStateFragment extends Fragment {
 
-    public VideoEntry(String text, String videoId) {
-      this.text = text;
-      this.videoId = videoId;
+    private static final String TAG = "PlayerStateFragment";
+
+    private String videoId;
+    private int positionMillis;
+    private long releaseTime;
+    // Where to resume videos which were left before their end, by packed video id.
+    private final LongIntHashMap resumePositions = new LongIntHashMap();
+
+    /**
+     * Returns the retained state, which is added to the fragment manager on first use.
+     */
+    public static PlayerStateFragment get(FragmentManager fragmentManager) {
+      PlayerStateFragment fragment =
+          (PlayerStateFragment) fragmentManager.findFragmentByTag(TAG);
+      if (fragment == null) {
+        fragment = new PlayerStateFragment();
+        fragmentManager.beginTransaction().add(fragment, TAG).commit();
+      }
+      return fragment;
+    }
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+      super.onCreate(savedInstanceState);
+      setRetainInstance(true);
     }
+
   }
 
-  // Utility methods for layouting.
+  // Utility methods for layouting. Rather than requesting a layout pass each, they only mark the
+  // view to be measured again by the next one.
 
   private int dpToPx(int dp) {
     return (int) (dp * getResources().getDisplayMetrics().density + 0.5f);
@@ -420,7 +961,7 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
     LayoutParams params = view.getLayoutParams();
     params.width = width;
     params.height = height;
-    view.setLayoutParams(params);
+    view.forceLayout();
   }
 
   private static void setLayoutSizeAndGravity(View view, int width, int height, int gravity) {
@@ -428,7 +969,7 @@ public final class VideoListDemoActivity extends Activity implements OnFullscree
     params.width = width;
     params.height = height;
     params.gravity = gravity;
-    view.setLayoutParams(params);
+    view.forceLayout();
   }
 
 }
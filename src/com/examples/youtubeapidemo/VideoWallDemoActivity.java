@@ -29,25 +29,51 @@ import android.app.Activity;
 import android.app.Dialog;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
-import android.util.Pair;
+import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.Toast;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import com.examples.youtubeapidemo.ui.CellBitmapPool;
+import com.examples.youtubeapidemo.ui.FlipScheduler;
 import com.examples.youtubeapidemo.ui.FlippingView;
+import com.examples.youtubeapidemo.ui.FlippingViewPool;
+import com.examples.youtubeapidemo.ui.FrameDurationRecorder;
 import com.examples.youtubeapidemo.ui.ImageWallView;
+import com.examples.youtubeapidemo.ui.ImageWallView.RenderMode;
+import com.examples.youtubeapidemo.wall.ThumbnailPrefetcher;
+import com.examples.youtubeapidemo.wall.VideoWallStateMachine;
+import com.examples.youtubeapidemo.wall.VideoWallStateMachine.Event;
+import com.examples.youtubeapidemo.wall.YouTubeThumbnailSource;
 
 /**
  * A demo application aimed at showing the capabilities of the YouTube Player API.  It shows a video
  * wall of flipping YouTube thumbnails.  Every 5 flips, one of the thumbnails will be replaced with
  * a playing YouTube video.
+ * <p>
+ * Up to {@link #MAX_CONCURRENT_FLIPS} cells are flipped at once, as many as the device can animate
+ * without dropping frames. The flip timer fires once per flip period for each allowed flip.
+ * <p>
+ * With {@link #DOUBLE_BUFFERED_PLAYERS} a second, hidden player cues the next video while the
+ * current one is playing, so the players can be swapped as soon as a video ends.
+ * <p>
+ * The wall is driven by a {@link VideoWallStateMachine}. The callbacks below only report events to
+ * it and carry out the actions it answers with.
  */
 public class VideoWallDemoActivity extends Activity implements
     FlippingView.Listener,
+    FlipScheduler.Listener,
+    ThumbnailPrefetcher.Listener,
     YouTubePlayer.OnInitializedListener,
     YouTubeThumbnailView.OnInitializedListener {
 
@@ -69,43 +95,99 @@ public class VideoWallDemoActivity extends Activity implements
   private static final int FLIP_DURATION_MILLIS = 500;
   private static final int FLIP_PERIOD_MILLIS = 2000;
 
-  private ImageWallView imageWallView;
-  private Handler flipDelayHandler;
+  // Draw the wall on a single canvas rather than with one ImageView per cell. The frame durations
+  // of the two modes are compared by ImageWallViewBenchmark in the test project.
+  private static final RenderMode WALL_RENDER_MODE = RenderMode.CANVAS;
+
+  // Only one cell is replaced at a time, so a few free bitmaps are enough to avoid allocating.
+  private static final int MAX_POOLED_CELL_BITMAPS = 4;
+
+  // The number of thumbnails loaded in parallel, and how many may be loaded ahead of the flips.
+  private static final int THUMBNAIL_LOADER_COUNT = 4;
+  private static final int READY_THUMBNAIL_CAPACITY = 6;
+
+  private static final boolean DOUBLE_BUFFERED_PLAYERS = true;
+
+  private static final int MAX_CONCURRENT_FLIPS = 4;
+
+  private static final boolean FLIP_HARDWARE_LAYERS = true;
+  // When set, hardware layers are switched on and off every FLIPS_PER_LAYER_MODE flips, and the
+  // frame durations measured in each mode are logged.
+  private static final boolean COMPARE_FLIP_LAYER_MODES = false;
+  private static final int FLIPS_PER_LAYER_MODE = 1000;
 
-  private FlippingView flippingView;
-  private YouTubeThumbnailView thumbnailView;
-  private YouTubeThumbnailLoader thumbnailLoader;
+  // The number of state machine events recorded, so that a stalled wall can be replayed off-device.
+  private static final int STATE_TRACE_CAPACITY = 4096;
+  // Written to the files directory on pause, and read back by VideoWallStateMachine.replay().
+  private static final String STATE_TRACE_FILE_NAME = "video_wall_trace.txt";
+
+  private ImageWallView imageWallView;
+  private CellBitmapPool cellBitmapPool;
+  private FlipScheduler flipScheduler;
+
+  private FlippingViewPool flippingViewPool;
+  // The cell each flipping view is flipping and the drawable it flips out, indexed like the pool.
+  private int[] flippingCols;
+  private int[] flippingRows;
+  private Drawable[] flippedOutDrawables;
+  private boolean[] videoFlips;
+  private YouTubeThumbnailSource thumbnailSource;
+  private ThumbnailPrefetcher thumbnailPrefetcher;
 
   private YouTubePlayerFragment playerFragment;
   private View playerView;
   private YouTubePlayer player;
+  // The thumbnail of the video cued in player, flipped in once the video is cued.
+  private Drawable nextVideoThumbnail;
+
+  private YouTubePlayerFragment standbyPlayerFragment;
+  private View standbyPlayerView;
+  private YouTubePlayer standbyPlayer;
+  private Drawable standbyThumbnail;
+
+  private long videoEndedMillis;
+  private int videoGapCount;
+  private long videoGapTotalMillis;
+  private long videoGapMaxMillis;
 
   private Dialog errorDialog;
 
-  private int flippingCol;
-  private int flippingRow;
   private int videoCol;
   private int videoRow;
 
-  private boolean nextThumbnailLoaded;
   private boolean activityResumed;
-  private State state;
-
-  private enum State {
-    UNINITIALIZED,
-    LOADING_THUMBNAILS,
-    VIDEO_FLIPPED_OUT,
-    VIDEO_LOADING,
-    VIDEO_CUED,
-    VIDEO_PLAYING,
-    VIDEO_ENDED,
-    VIDEO_BEING_FLIPPED_OUT,
-  }
+  private long wallFillStartMillis;
+  private VideoWallStateMachine stateMachine;
+  private Runnable skippedFlipRunnable;
+  private Runnable skippedVideoFlipRunnable;
+  private Runnable videoFlipInRunnable;
+  // Whether the cued video's thumbnail is waiting for a cell to be flipped into.
+  private boolean videoFlipInPending;
+  private boolean flipHardwareLayers;
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
-    state = State.UNINITIALIZED;
+    stateMachine = new VideoWallStateMachine();
+    stateMachine.setTraceCapacity(STATE_TRACE_CAPACITY);
+    skippedFlipRunnable = new Runnable() {
+      @Override
+      public void run() {
+        handleEvent(Event.FLIP_DONE);
+      }
+    };
+    skippedVideoFlipRunnable = new Runnable() {
+      @Override
+      public void run() {
+        handleEvent(Event.VIDEO_FLIP_DONE);
+      }
+    };
+    videoFlipInRunnable = new Runnable() {
+      @Override
+      public void run() {
+        flipInVideo();
+      }
+    };
 
     ViewGroup viewFrame = new FrameLayout(this);
 
@@ -117,15 +199,28 @@ public class VideoWallDemoActivity extends Activity implements
     int imageHeight = (displayMetrics.heightPixels / numberOfRows) - interImagePaddingPx;
     int imageWidth = (int) (imageHeight * THUMBNAIL_ASPECT_RATIO);
 
-    imageWallView = new ImageWallView(this, imageWidth, imageHeight, interImagePaddingPx);
+    imageWallView = new ImageWallView(
+        this, imageWidth, imageHeight, interImagePaddingPx, WALL_RENDER_MODE);
     viewFrame.addView(imageWallView, MATCH_PARENT, MATCH_PARENT);
-
-    thumbnailView = new YouTubeThumbnailView(this);
-    thumbnailView.initialize(DeveloperKey.DEVELOPER_KEY, this);
-
-    flippingView = new FlippingView(this, this, imageWidth, imageHeight);
-    flippingView.setFlipDuration(INITIAL_FLIP_DURATION_MILLIS);
-    viewFrame.addView(flippingView, imageWidth, imageHeight);
+    cellBitmapPool =
+        new CellBitmapPool(getResources(), imageWidth, imageHeight, MAX_POOLED_CELL_BITMAPS);
+
+    thumbnailSource =
+        new YouTubeThumbnailSource(this, PLAYLIST_ID, THUMBNAIL_LOADER_COUNT, this);
+    thumbnailPrefetcher = new ThumbnailPrefetcher(
+        thumbnailSource, cellBitmapPool, READY_THUMBNAIL_CAPACITY, this);
+    thumbnailSource.initialize(DeveloperKey.DEVELOPER_KEY);
+
+    float frameRate = getWindowManager().getDefaultDisplay().getRefreshRate();
+    flippingViewPool = new FlippingViewPool(this, this, viewFrame, imageWidth, imageHeight,
+        MAX_CONCURRENT_FLIPS, frameRate);
+    flippingViewPool.setFlipDuration(INITIAL_FLIP_DURATION_MILLIS);
+    flipHardwareLayers = FLIP_HARDWARE_LAYERS;
+    flippingViewPool.setUseHardwareLayers(flipHardwareLayers);
+    flippingCols = new int[MAX_CONCURRENT_FLIPS];
+    flippingRows = new int[MAX_CONCURRENT_FLIPS];
+    flippedOutDrawables = new Drawable[MAX_CONCURRENT_FLIPS];
+    videoFlips = new boolean[MAX_CONCURRENT_FLIPS];
 
     playerView = new FrameLayout(this);
     playerView.setId(R.id.player_view);
@@ -136,7 +231,19 @@ public class VideoWallDemoActivity extends Activity implements
     playerFragment.initialize(DeveloperKey.DEVELOPER_KEY, this);
     getFragmentManager().beginTransaction().add(R.id.player_view, playerFragment).commit();
 
-    flipDelayHandler = new FlipDelayHandler();
+    if (DOUBLE_BUFFERED_PLAYERS) {
+      standbyPlayerView = new FrameLayout(this);
+      standbyPlayerView.setId(R.id.standby_player_view);
+      standbyPlayerView.setVisibility(View.INVISIBLE);
+      viewFrame.addView(standbyPlayerView, imageWidth, imageHeight);
+
+      standbyPlayerFragment = YouTubePlayerFragment.newInstance();
+      standbyPlayerFragment.initialize(DeveloperKey.DEVELOPER_KEY, this);
+      getFragmentManager().beginTransaction()
+          .add(R.id.standby_player_view, standbyPlayerFragment).commit();
+    }
+
+    flipScheduler = FlipScheduler.create(this, FLIP_PERIOD_MILLIS);
 
     setContentView(viewFrame);
   }
@@ -144,8 +251,6 @@ public class VideoWallDemoActivity extends Activity implements
   @Override
   public void onInitializationSuccess(YouTubeThumbnailView thumbnailView,
       YouTubeThumbnailLoader thumbnailLoader) {
-    this.thumbnailLoader = thumbnailLoader;
-    thumbnailLoader.setOnThumbnailLoadedListener(new ThumbnailListener());
     maybeStartDemo();
   }
 
@@ -167,9 +272,14 @@ public class VideoWallDemoActivity extends Activity implements
   @Override
   public void onInitializationSuccess(YouTubePlayer.Provider provider, YouTubePlayer player,
       boolean wasResumed) {
-    VideoWallDemoActivity.this.player = player;
+    if (provider == standbyPlayerFragment) {
+      standbyPlayer = player;
+      handleEvent(Event.STANDBY_AVAILABLE);
+    } else {
+      VideoWallDemoActivity.this.player = player;
+    }
     player.setPlayerStyle(PlayerStyle.CHROMELESS);
-    player.setPlayerStateChangeListener(new VideoListener());
+    player.setPlayerStateChangeListener(new VideoListener(player));
     maybeStartDemo();
   }
 
@@ -188,10 +298,9 @@ public class VideoWallDemoActivity extends Activity implements
   }
 
   private void maybeStartDemo() {
-    if (activityResumed && player != null && thumbnailLoader != null
-        && state.equals(State.UNINITIALIZED)) {
-      thumbnailLoader.setPlaylist(PLAYLIST_ID); // loading the first thumbnail will kick off demo
-      state = State.LOADING_THUMBNAILS;
+    if (activityResumed && player != null && thumbnailSource.isInitialized()
+        && stateMachine.getState() == VideoWallStateMachine.State.UNINITIALIZED) {
+      handleEvent(Event.START); // the first loaded thumbnail will kick off demo
     }
   }
 
@@ -204,7 +313,10 @@ public class VideoWallDemoActivity extends Activity implements
       }
       errorDialog = null;
       playerFragment.initialize(DeveloperKey.DEVELOPER_KEY, this);
-      thumbnailView.initialize(DeveloperKey.DEVELOPER_KEY, this);
+      if (standbyPlayerFragment != null) {
+        standbyPlayerFragment.initialize(DeveloperKey.DEVELOPER_KEY, this);
+      }
+      thumbnailSource.initialize(DeveloperKey.DEVELOPER_KEY);
     }
   }
 
@@ -212,172 +324,357 @@ public class VideoWallDemoActivity extends Activity implements
   protected void onResume() {
     super.onResume();
     activityResumed = true;
-    if (thumbnailLoader != null && player != null) {
-      if (state.equals(State.UNINITIALIZED)) {
-        maybeStartDemo();
-      } else if (state.equals(State.LOADING_THUMBNAILS)) {
-        loadNextThumbnail();
-      } else {
-        if (state.equals(State.VIDEO_PLAYING)) {
-          player.play();
-        }
-        flipDelayHandler.sendEmptyMessageDelayed(0, FLIP_DURATION_MILLIS);
-      }
+    if (thumbnailSource.isInitialized() && player != null
+        && stateMachine.getState() != VideoWallStateMachine.State.UNINITIALIZED) {
+      thumbnailPrefetcher.start();
+    }
+    handleEvent(Event.RESUME);
+    if (videoFlipInPending) {
+      imageWallView.post(videoFlipInRunnable);
     }
+    maybeStartDemo();
   }
 
   @Override
   protected void onPause() {
-    flipDelayHandler.removeCallbacksAndMessages(null);
+    flipScheduler.stop();
+    // Skipped flips still end while paused, as the state machine counts them until they do.
+    imageWallView.removeCallbacks(videoFlipInRunnable);
+    thumbnailPrefetcher.stop();
     activityResumed = false;
+    handleEvent(Event.PAUSE);
+    Log.d(getString(R.string.loggingTag), "Cell bitmap pool: " + cellBitmapPool.getHitCount()
+        + " hits, " + cellBitmapPool.getMissCount() + " misses, "
+        + cellBitmapPool.getBytesInUse() + " bytes in use");
+    if (videoGapCount > 0) {
+      Log.d(getString(R.string.loggingTag), "Gap between videos: average "
+          + (videoGapTotalMillis / videoGapCount) + "ms, max " + videoGapMaxMillis + "ms over "
+          + videoGapCount + " videos" + (isDoubleBuffered() ? " (double buffered)" : ""));
+    }
+    Log.d(getString(R.string.loggingTag), "Flips: " + flippingViewPool.getJankyFlipCount() + " of "
+        + flippingViewPool.getCompletedFlipCount() + " dropped frames, "
+        + flippingViewPool.getTotalDroppedFrames() + " dropped in total, at most "
+        + flippingViewPool.getMaxDroppedFrames() + " in one flip");
+    logFrameDurations();
+    Log.d(getString(R.string.loggingTag), "Video wall in state " + stateMachine.getState()
+        + " after " + stateMachine.getTrace().length + " traced events, "
+        + stateMachine.getCueTimeoutCount() + " cue timeouts");
+    writeStateTrace();
     super.onPause();
   }
 
+  private void writeStateTrace() {
+    File file = new File(getFilesDir(), STATE_TRACE_FILE_NAME);
+    Writer writer = null;
+    try {
+      writer = new BufferedWriter(new FileWriter(file));
+      stateMachine.writeTrace(writer);
+      Log.d(getString(R.string.loggingTag), "Video wall trace written to " + file);
+    } catch (IOException e) {
+      Log.e(getString(R.string.loggingTag), "Could not write the video wall trace", e);
+    } finally {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          // Nothing to do.
+        }
+      }
+    }
+  }
+
   @Override
   protected void onDestroy() {
-    if (thumbnailLoader != null) {
-      thumbnailLoader.release();
-    }
+    thumbnailSource.release();
     super.onDestroy();
   }
 
-  private void flipNext() {
-    if (!nextThumbnailLoaded || state.equals(State.VIDEO_LOADING)) {
-      return;
-    }
-
-    if (state.equals(State.VIDEO_ENDED)) {
-      flippingCol = videoCol;
-      flippingRow = videoRow;
-      state = State.VIDEO_BEING_FLIPPED_OUT;
-    } else {
-      Pair<Integer, Integer> nextTarget = imageWallView.getNextLoadTarget();
-      flippingCol = nextTarget.first;
-      flippingRow = nextTarget.second;
-    }
+  private void logFrameDurations() {
+    FrameDurationRecorder frameDurations = flippingViewPool.getFrameDurations();
+    Log.d(getString(R.string.loggingTag), "Frames while flipping "
+        + (flipHardwareLayers ? "with" : "without") + " hardware layers: "
+        + frameDurations.getCount() + " frames, average " + frameDurations.getAverageMillis()
+        + "ms, 50th percentile " + frameDurations.getPercentileMillis(50) + "ms, 99th percentile "
+        + frameDurations.getPercentileMillis(99) + "ms, max " + frameDurations.getMaxMillis()
+        + "ms");
+  }
 
-    flippingView.setX(imageWallView.getXPosition(flippingCol, flippingRow));
-    flippingView.setY(imageWallView.getYPosition(flippingCol, flippingRow));
-    flippingView.setFlipInDrawable(thumbnailView.getDrawable());
-    flippingView.setFlipOutDrawable(imageWallView.getImageDrawable(flippingCol, flippingRow));
-    imageWallView.setImageDrawable(flippingCol, flippingRow, thumbnailView.getDrawable());
-    imageWallView.hideImage(flippingCol, flippingRow);
-    flippingView.setVisibility(View.VISIBLE);
-    flippingView.flip();
+  private boolean isDoubleBuffered() {
+    return DOUBLE_BUFFERED_PLAYERS && standbyPlayer != null;
   }
 
-  @Override
-  public void onFlipped(FlippingView view) {
-    imageWallView.showImage(flippingCol, flippingRow);
-    flippingView.setVisibility(View.INVISIBLE);
-
-    if (activityResumed) {
-      loadNextThumbnail();
-
-      if (state.equals(State.VIDEO_BEING_FLIPPED_OUT)) {
-        state = State.VIDEO_FLIPPED_OUT;
-      } else if (state.equals(State.VIDEO_CUED)) {
-        videoCol = flippingCol;
-        videoRow = flippingRow;
-        playerView.setX(imageWallView.getXPosition(flippingCol, flippingRow));
-        playerView.setY(imageWallView.getYPosition(flippingCol, flippingRow));
-        imageWallView.hideImage(flippingCol, flippingRow);
-        playerView.setVisibility(View.VISIBLE);
-        player.play();
-        state = State.VIDEO_PLAYING;
-      } else if (state.equals(State.LOADING_THUMBNAILS) && imageWallView.allImagesLoaded()) {
-        state = State.VIDEO_FLIPPED_OUT; // trigger flip in of an initial video
-        flippingView.setFlipDuration(FLIP_DURATION_MILLIS);
-        flipDelayHandler.sendEmptyMessage(0);
+  /**
+   * Reports an event to the state machine and carries out the actions it answers with, followed by
+   * those of any events it held back while the wall was paused.
+   */
+  private void handleEvent(Event event) {
+    stateMachine.setMaxConcurrentFlips(flippingViewPool.getConcurrentFlipLimit());
+    int actions = stateMachine.handle(event);
+    if (actions != 0) {
+      perform(actions);
+    }
+    while (stateMachine.hasPendingEvent()) {
+      actions = stateMachine.handlePendingEvent();
+      if (actions != 0) {
+        perform(actions);
       }
     }
   }
 
-  private void loadNextThumbnail() {
-    nextThumbnailLoaded = false;
-    if (thumbnailLoader.hasNext()) {
-      thumbnailLoader.next();
-    } else {
-      thumbnailLoader.first();
+  private void perform(int actions) {
+    if ((actions & VideoWallStateMachine.ACTION_START_THUMBNAILS) != 0) {
+      wallFillStartMillis = SystemClock.uptimeMillis();
+      thumbnailPrefetcher.start();
+    }
+    if ((actions & VideoWallStateMachine.ACTION_RELEASE_VIDEO_THUMBNAIL) != 0) {
+      cellBitmapPool.release(nextVideoThumbnail);
+      nextVideoThumbnail = null;
+      if (videoFlipInPending) {
+        // The video is given up on before it found a cell, so end its flip without it.
+        imageWallView.removeCallbacks(videoFlipInRunnable);
+        videoFlipInPending = false;
+        imageWallView.post(skippedVideoFlipRunnable);
+      }
+    }
+    if ((actions & VideoWallStateMachine.ACTION_RELEASE_STANDBY_THUMBNAIL) != 0) {
+      cellBitmapPool.release(standbyThumbnail);
+      standbyThumbnail = null;
+    }
+    if ((actions & VideoWallStateMachine.ACTION_HIDE_VIDEO) != 0) {
+      imageWallView.showImage(videoCol, videoRow);
+      playerView.setVisibility(View.INVISIBLE);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_PROMOTE_STANDBY) != 0) {
+      promoteStandby();
+    }
+    if ((actions & VideoWallStateMachine.ACTION_CUE_VIDEO) != 0) {
+      String videoId = thumbnailPrefetcher.peekVideoId();
+      nextVideoThumbnail = thumbnailPrefetcher.takeThumbnail();
+      player.cueVideo(videoId);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_PREPARE_STANDBY) != 0) {
+      String videoId = thumbnailPrefetcher.peekVideoId();
+      standbyThumbnail = thumbnailPrefetcher.takeThumbnail();
+      standbyPlayer.cueVideo(videoId);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_FLIP_THUMBNAIL) != 0) {
+      flipIntoRandomCell(thumbnailPrefetcher.takeThumbnail(), false);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_FLIP_OUT_VIDEO) != 0) {
+      if (imageWallView.isImageHidden(videoCol, videoRow)) {
+        // Another flip got to the ended video's cell first.
+        flipIntoRandomCell(thumbnailPrefetcher.takeThumbnail(), true);
+      } else {
+        Drawable thumbnail = thumbnailPrefetcher.takeThumbnail();
+        if (!flip(videoCol, videoRow, thumbnail, true)) {
+          skipFlip(thumbnail, true);
+        }
+      }
+    }
+    if ((actions & VideoWallStateMachine.ACTION_FLIP_IN_VIDEO) != 0) {
+      flipInVideo();
+    }
+    if ((actions & VideoWallStateMachine.ACTION_PLAY_VIDEO) != 0) {
+      playerView.setX(imageWallView.getXPosition(videoCol, videoRow));
+      playerView.setY(imageWallView.getYPosition(videoCol, videoRow));
+      imageWallView.hideImage(videoCol, videoRow);
+      playerView.setVisibility(View.VISIBLE);
+      player.play();
+    }
+    if ((actions & VideoWallStateMachine.ACTION_RESUME_VIDEO) != 0) {
+      player.play();
+    }
+    if ((actions & VideoWallStateMachine.ACTION_START_FLIP_TIMER) != 0) {
+      Log.d(getString(R.string.loggingTag), "Filled video wall in "
+          + (SystemClock.uptimeMillis() - wallFillStartMillis) + "ms using "
+          + THUMBNAIL_LOADER_COUNT + " thumbnail loaders");
+      flippingViewPool.setFlipDuration(FLIP_DURATION_MILLIS);
+      flipScheduler.start(0);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_RESTART_FLIP_TIMER) != 0) {
+      flipScheduler.start(FLIP_DURATION_MILLIS);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_STOP) != 0) {
+      // player has encountered an unrecoverable error - stop the demo
+      flipScheduler.stop();
+      imageWallView.removeCallbacks(videoFlipInRunnable);
+      videoFlipInPending = false;
+      thumbnailSource.release();
+      player = null;
+      standbyPlayer = null;
     }
   }
 
   /**
-   * A handler that periodically flips an element on the video wall.
+   * Flips a thumbnail into a random cell.
    */
-  private final class FlipDelayHandler extends Handler {
+  private void flipIntoRandomCell(Drawable cellDrawable, boolean videoFlip) {
+    long target = imageWallView.getNextLoadTarget();
+    if (target == ImageWallView.NO_TARGET || !flip(ImageWallView.getTargetColumn(target),
+        ImageWallView.getTargetRow(target), cellDrawable, videoFlip)) {
+      skipFlip(cellDrawable, videoFlip);
+    }
+  }
 
-    @Override
-    public void handleMessage(Message msg) {
-      flipNext();
-      sendEmptyMessageDelayed(0, FLIP_PERIOD_MILLIS);
+  /**
+   * Flips the thumbnail of the cued video into a random cell, which the video is played over once
+   * the flip is done. Unlike other flips, this one cannot be skipped, as the video would have no
+   * cell to play in, so while no cell or flipping view is free it is retried after a flip.
+   */
+  private void flipInVideo() {
+    long target = imageWallView.getNextLoadTarget();
+    if (target != ImageWallView.NO_TARGET) {
+      int col = ImageWallView.getTargetColumn(target);
+      int row = ImageWallView.getTargetRow(target);
+      if (flip(col, row, nextVideoThumbnail, true)) {
+        videoCol = col;
+        videoRow = row;
+        nextVideoThumbnail = null;
+        videoFlipInPending = false;
+        return;
+      }
     }
+    videoFlipInPending = true;
+    imageWallView.postDelayed(videoFlipInRunnable, FLIP_DURATION_MILLIS);
+  }
 
+  /**
+   * Starts flipping a thumbnail into a cell.
+   *
+   * @return Whether a flipping view was free to flip it.
+   */
+  private boolean flip(int col, int row, Drawable cellDrawable, boolean videoFlip) {
+    int index = flippingViewPool.obtain();
+    if (index < 0) {
+      return false;
+    }
+    FlippingView flippingView = flippingViewPool.get(index);
+    flippingCols[index] = col;
+    flippingRows[index] = row;
+    videoFlips[index] = videoFlip;
+    flippingView.setX(imageWallView.getXPosition(col, row));
+    flippingView.setY(imageWallView.getYPosition(col, row));
+    // The prefetched thumbnail is already a cell-sized copy from the pool. The one it replaces goes
+    // back to the pool once it has been flipped out.
+    flippedOutDrawables[index] = imageWallView.getImageDrawable(col, row);
+    flippingView.setFlipInDrawable(cellDrawable);
+    flippingView.setFlipOutDrawable(flippedOutDrawables[index]);
+    imageWallView.setImageDrawable(col, row, cellDrawable);
+    imageWallView.hideImage(col, row);
+    flippingView.setVisibility(View.VISIBLE);
+    flippingView.flip();
+    return true;
   }
 
   /**
-   * An internal listener which listens to thumbnail loading events from the
-   * {@link YouTubeThumbnailView}.
+   * Drops a thumbnail which could not be flipped in, because the wall has not been laid out yet or
+   * no flipping view is free. The state machine carries on as if it had been flipped in.
    */
-  private final class ThumbnailListener implements
-      YouTubeThumbnailLoader.OnThumbnailLoadedListener {
+  private void skipFlip(Drawable cellDrawable, boolean videoFlip) {
+    cellBitmapPool.release(cellDrawable);
+    imageWallView.post(videoFlip ? skippedVideoFlipRunnable : skippedFlipRunnable);
+  }
 
-    @Override
-    public void onThumbnailLoaded(YouTubeThumbnailView thumbnail, String videoId) {
-      nextThumbnailLoaded = true;
-
-      if (activityResumed) {
-        if (state.equals(State.LOADING_THUMBNAILS)) {
-          flipNext();
-        } else if (state.equals(State.VIDEO_FLIPPED_OUT)) {
-          // load player with the video of the next thumbnail being flipped in
-          state = State.VIDEO_LOADING;
-          player.cueVideo(videoId);
-        }
-      }
+  @Override
+  public void onFlipped(FlippingView view) {
+    int index = flippingViewPool.indexOf(view);
+    imageWallView.showImage(flippingCols[index], flippingRows[index]);
+    view.setVisibility(View.INVISIBLE);
+    view.setFlipInDrawable(null);
+    view.setFlipOutDrawable(null);
+    cellBitmapPool.release(flippedOutDrawables[index]);
+    flippedOutDrawables[index] = null;
+    flippingViewPool.release(index);
+    if (COMPARE_FLIP_LAYER_MODES
+        && flippingViewPool.getCompletedFlipCount() % FLIPS_PER_LAYER_MODE == 0) {
+      logFrameDurations();
+      flippingViewPool.getFrameDurations().reset();
+      flipHardwareLayers = !flipHardwareLayers;
+      flippingViewPool.setUseHardwareLayers(flipHardwareLayers);
     }
 
-    @Override
-    public void onThumbnailError(YouTubeThumbnailView thumbnail,
-        YouTubeThumbnailLoader.ErrorReason reason) {
-      loadNextThumbnail();
+    if (videoFlips[index]) {
+      handleEvent(Event.VIDEO_FLIP_DONE);
+    } else {
+      handleEvent(imageWallView.allImagesLoaded() ? Event.WALL_FILLED : Event.FLIP_DONE);
     }
+  }
+
+  @Override
+  public void onThumbnailReady() {
+    handleEvent(Event.THUMBNAIL_READY);
+  }
 
+  /**
+   * Swaps the cued standby player with the visible one, whose video has ended.
+   */
+  private void promoteStandby() {
+    YouTubePlayer endedPlayer = player;
+    player = standbyPlayer;
+    standbyPlayer = endedPlayer;
+    View endedPlayerView = playerView;
+    playerView = standbyPlayerView;
+    standbyPlayerView = endedPlayerView;
+
+    nextVideoThumbnail = standbyThumbnail;
+    standbyThumbnail = null;
   }
 
+  @Override
+  public void onFlipTick() {
+    handleEvent(Event.FLIP_TIMER);
+    flipScheduler.setPeriodMillis(FLIP_PERIOD_MILLIS / flippingViewPool.getConcurrentFlipLimit());
+  }
+
+  /**
+   * Listens to the state of one of the players, which may be either the visible or the standby one.
+   */
   private final class VideoListener implements YouTubePlayer.PlayerStateChangeListener {
 
+    private final YouTubePlayer listenedPlayer;
+
+    public VideoListener(YouTubePlayer listenedPlayer) {
+      this.listenedPlayer = listenedPlayer;
+    }
+
     @Override
     public void onLoaded(String videoId) {
-      state = State.VIDEO_CUED;
+      handleEvent(listenedPlayer == standbyPlayer ? Event.STANDBY_LOADED : Event.VIDEO_LOADED);
+    }
+
+    @Override
+    public void onVideoStarted() {
+      if (listenedPlayer == player && videoEndedMillis != 0) {
+        long gapMillis = SystemClock.uptimeMillis() - videoEndedMillis;
+        videoEndedMillis = 0;
+        videoGapCount++;
+        videoGapTotalMillis += gapMillis;
+        videoGapMaxMillis = Math.max(videoGapMaxMillis, gapMillis);
+      }
     }
 
     @Override
     public void onVideoEnded() {
-      state = State.VIDEO_ENDED;
-      imageWallView.showImage(videoCol, videoRow);
-      playerView.setVisibility(View.INVISIBLE);
+      if (listenedPlayer != player) {
+        return;
+      }
+      videoEndedMillis = SystemClock.uptimeMillis();
+      handleEvent(Event.VIDEO_ENDED);
     }
 
     @Override
     public void onError(YouTubePlayer.ErrorReason errorReason) {
       if (errorReason == YouTubePlayer.ErrorReason.UNEXPECTED_SERVICE_DISCONNECTION) {
-        // player has encountered an unrecoverable error - stop the demo
-        flipDelayHandler.removeCallbacksAndMessages(null);
-        state = State.UNINITIALIZED;
-        thumbnailLoader.release();
-        thumbnailLoader = null;
-        player = null;
+        handleEvent(Event.FATAL_ERROR);
+      } else if (listenedPlayer == standbyPlayer) {
+        handleEvent(Event.STANDBY_ERROR);
       } else {
-        state = State.VIDEO_ENDED;
+        handleEvent(Event.VIDEO_ERROR);
       }
     }
 
     // ignored callbacks
 
-    @Override
-    public void onVideoStarted() { }
-
     @Override
     public void onAdStarted() { }
 
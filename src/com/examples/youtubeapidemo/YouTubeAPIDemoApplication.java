@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+
+import com.examples.youtubeapidemo.trace.TraceRecorder;
+
+/**
+ * The application of the demos, which owns the process-wide {@link TraceRecorder}: it starts
+ * recording when the process starts, and writes the trace out when the app leaves the screen.
+ */
+public final class YouTubeAPIDemoApplication extends Application {
+
+  @Override
+  public void onCreate() {
+    super.onCreate();
+    TraceRecorder.start(getFilesDir());
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    super.onTrimMemory(level);
+    // Only called from API level 14. Earlier platforms write the trace out in their own time.
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      TraceRecorder.flush();
+    }
+  }
+
+  @Override
+  public void onLowMemory() {
+    super.onLowMemory();
+    TraceRecorder.flush();
+  }
+
+}
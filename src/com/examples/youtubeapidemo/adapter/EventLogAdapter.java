@@ -0,0 +1,195 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.adapter;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import com.examples.youtubeapidemo.R;
+import com.examples.youtubeapidemo.util.LineBuffer;
+
+/**
+ * An adapter showing the most recent messages of an event log, oldest first.
+ * <p>
+ * Messages are kept in a ring buffer of fixed capacity, so a log running for hours takes no more
+ * memory than one running for minutes. The list only binds the rows it shows, and however many
+ * messages arrive within a frame, it is told about them once, at the next frame.
+ * <p>
+ * Until then, the list keeps showing the messages it was last told about, so new messages are
+ * queued in a second ring buffer, and only moved to the one the list shows at the next frame.
+ * Messages are copied into buffers which are reused once dropped, and rows show their chars
+ * directly, so adding a message allocates nothing once the buffers are all in use.
+ */
+public final class EventLogAdapter extends BaseAdapter {
+
+  // The length of a frame, on platforms which cannot post a callback for the next one.
+  private static final int FRAME_MILLIS = 16;
+  private static final int MESSAGE_CAPACITY = 64;
+
+  private final LayoutInflater inflater;
+  private final View refreshView;
+  private final LineBuffer[] messages;
+  private final LineBuffer[] pendingMessages;
+  private final Runnable refreshRunnable;
+
+  // The messages the list has been told about, with the oldest one at head.
+  private int head;
+  private int size;
+
+  // The messages added since the last refresh, with the oldest one at pendingHead.
+  private int pendingHead;
+  private int pendingSize;
+  private boolean refreshPending;
+
+  private long messageCount;
+  private int refreshCount;
+
+  /**
+   * @param context The context used to inflate the rows.
+   * @param refreshView The view on whose frames the list is refreshed, usually the list itself.
+   * @param capacity The maximum number of messages kept.
+   */
+  public EventLogAdapter(Context context, View refreshView, int capacity) {
+    this.inflater = LayoutInflater.from(context);
+    this.refreshView = refreshView;
+    this.messages = new LineBuffer[capacity];
+    this.pendingMessages = new LineBuffer[capacity];
+    this.refreshRunnable = new Runnable() {
+      @Override
+      public void run() {
+        refresh();
+      }
+    };
+  }
+
+  /**
+   * Appends a message to the log, dropping the oldest one if the log is full.
+   */
+  public void add(String message) {
+    nextPendingMessage().append(message);
+    onAdded();
+  }
+
+  /**
+   * Appends a copy of the line to the log, dropping the oldest message if the log is full.
+   */
+  public void add(LineBuffer message) {
+    nextPendingMessage().append(message);
+    onAdded();
+  }
+
+  /** Returns the number of messages ever added, including the dropped ones. */
+  public long getMessageCount() {
+    return messageCount;
+  }
+
+  /** Returns the number of times the list has been refreshed. */
+  public int getRefreshCount() {
+    return refreshCount;
+  }
+
+  @Override
+  public int getCount() {
+    return size;
+  }
+
+  @Override
+  public LineBuffer getItem(int position) {
+    return messages[(head + position) % messages.length];
+  }
+
+  @Override
+  public long getItemId(int position) {
+    return position;
+  }
+
+  @Override
+  public View getView(int position, View view, ViewGroup parent) {
+    if (view == null) {
+      view = inflater.inflate(R.layout.event_log_item, parent, false);
+    }
+    // The row keeps the chars rather than a copy. The buffer is only rewritten in refresh(), which
+    // has every row bound again before the next frame is drawn.
+    LineBuffer message = getItem(position);
+    ((TextView) view).setText(message.getChars(), 0, message.length());
+    return view;
+  }
+
+  /** Returns the cleared buffer for a new message, reusing that of a dropped message. */
+  private LineBuffer nextPendingMessage() {
+    int index;
+    // Messages which would be dropped before the next frame are dropped right away.
+    if (pendingSize < pendingMessages.length) {
+      index = (pendingHead + pendingSize) % pendingMessages.length;
+      pendingSize++;
+    } else {
+      index = pendingHead;
+      pendingHead = (pendingHead + 1) % pendingMessages.length;
+    }
+    if (pendingMessages[index] == null) {
+      pendingMessages[index] = new LineBuffer(MESSAGE_CAPACITY);
+    }
+    return pendingMessages[index].clear();
+  }
+
+  private void onAdded() {
+    messageCount++;
+    if (!refreshPending) {
+      refreshPending = true;
+      postRefresh();
+    }
+  }
+
+  @TargetApi(16)
+  private void postRefresh() {
+    if (Build.VERSION.SDK_INT >= 16) {
+      refreshView.postOnAnimation(refreshRunnable);
+    } else {
+      refreshView.postDelayed(refreshRunnable, FRAME_MILLIS);
+    }
+  }
+
+  private void refresh() {
+    refreshPending = false;
+    for (int i = 0; i < pendingSize; i++) {
+      int index;
+      if (size < messages.length) {
+        index = (head + size) % messages.length;
+        size++;
+      } else {
+        index = head;
+        head = (head + 1) % messages.length;
+      }
+      if (messages[index] == null) {
+        messages[index] = new LineBuffer(MESSAGE_CAPACITY);
+      }
+      messages[index].clear().append(pendingMessages[(pendingHead + i) % pendingMessages.length]);
+    }
+    pendingHead = 0;
+    pendingSize = 0;
+    refreshCount++;
+    notifyDataSetChanged();
+  }
+
+}
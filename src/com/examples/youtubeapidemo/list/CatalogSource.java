@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.list;
+
+import java.util.List;
+
+/**
+ * Provides the catalog of videos shown by the video list, one page at a time. Pages are delivered
+ * on the main thread, and all methods must be called on the main thread.
+ */
+public interface CatalogSource {
+
+  /**
+   * Defines an interface to enable listening to loaded pages.
+   */
+  interface Listener {
+
+    /**
+     * Called when the next page of the catalog has been loaded.
+     *
+     * @param page The entries of the page, which the listener may keep.
+     * @param lastPage Whether this is the end of the catalog.
+     */
+    void onPageLoaded(List<VideoEntry> page, boolean lastPage);
+
+    /**
+     * Called when the catalog could not be read any further.
+     */
+    void onCatalogError();
+
+  }
+
+  void setListener(Listener listener);
+
+  /**
+   * Starts loading the next page, unless a page is already loading or the catalog has ended.
+   */
+  void loadNextPage();
+
+  /** Returns whether every page of the catalog has been delivered, or an error has occurred. */
+  boolean isExhausted();
+
+  /**
+   * Stops loading and releases any resources held by the source.
+   */
+  void release();
+
+}
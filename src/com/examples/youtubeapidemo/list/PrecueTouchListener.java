@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.list;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.AbsListView;
+
+/**
+ * Watches the touches on a list to tell its listener which row is about to be tapped, so that the
+ * work of a tap can start while the finger is still down.
+ * <p>
+ * A row is reported once a touch has rested on it for the tap timeout, the same delay the list
+ * waits before showing a row as pressed. A touch which moves further than the touch slop is a
+ * scroll, and drops the pending report, which costs nothing more than removing a callback. Reports
+ * are rate limited, so that a burst of touches does not start a burst of work.
+ */
+public final class PrecueTouchListener implements View.OnTouchListener {
+
+  private static final int RATE_WINDOW_MILLIS = 1000;
+
+  /**
+   * Defines an interface to enable listening to rows about to be tapped.
+   */
+  public interface Listener {
+
+    /**
+     * Called when a touch has rested on a row long enough to be likely to become a tap.
+     *
+     * @param position The position of the row.
+     * @return Whether work was started for the row, which counts towards the rate limit.
+     */
+    boolean onPrecue(int position);
+
+  }
+
+  private final AbsListView listView;
+  private final Listener listener;
+  private final int touchSlop;
+  // The times of the most recent precues, oldest first once the buffer is full.
+  private final long[] precueTimes;
+  private final Runnable precueRunnable;
+
+  private int nextPrecueTime;
+  private int pendingPosition;
+  private float downX;
+  private float downY;
+  private int rateLimitedCount;
+
+  /**
+   * @param listView The list whose touches are watched.
+   * @param listener The listener told about rows about to be tapped.
+   * @param maxPrecuesPerSecond The maximum number of precues started in any second.
+   */
+  public PrecueTouchListener(AbsListView listView, Listener listener, int maxPrecuesPerSecond) {
+    this.listView = listView;
+    this.listener = listener;
+    this.touchSlop = ViewConfiguration.get(listView.getContext()).getScaledTouchSlop();
+    this.precueTimes = new long[maxPrecuesPerSecond];
+    this.pendingPosition = AbsListView.INVALID_POSITION;
+    this.precueRunnable = new Runnable() {
+      @Override
+      public void run() {
+        precue();
+      }
+    };
+  }
+
+  @Override
+  public boolean onTouch(View view, MotionEvent event) {
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        cancel();
+        downX = event.getX();
+        downY = event.getY();
+        pendingPosition = listView.pointToPosition((int) downX, (int) downY);
+        if (pendingPosition != AbsListView.INVALID_POSITION) {
+          listView.postDelayed(precueRunnable, ViewConfiguration.getTapTimeout());
+        }
+        break;
+      case MotionEvent.ACTION_MOVE:
+        if (Math.abs(event.getX() - downX) > touchSlop
+            || Math.abs(event.getY() - downY) > touchSlop) {
+          cancel();
+        }
+        break;
+      case MotionEvent.ACTION_UP:
+      case MotionEvent.ACTION_CANCEL:
+        // A tap is handled by the list itself from here on.
+        cancel();
+        break;
+    }
+    // Only watch, leaving the touches to the list.
+    return false;
+  }
+
+  /** Returns the number of precues dropped because of the rate limit. */
+  public int getRateLimitedCount() {
+    return rateLimitedCount;
+  }
+
+  private void cancel() {
+    if (pendingPosition != AbsListView.INVALID_POSITION) {
+      listView.removeCallbacks(precueRunnable);
+      pendingPosition = AbsListView.INVALID_POSITION;
+    }
+  }
+
+  private void precue() {
+    int position = pendingPosition;
+    pendingPosition = AbsListView.INVALID_POSITION;
+    long now = SystemClock.uptimeMillis();
+    // The oldest of the last maxPrecuesPerSecond precues must be over a second old.
+    long oldest = precueTimes[nextPrecueTime];
+    if (oldest != 0 && now - oldest < RATE_WINDOW_MILLIS) {
+      rateLimitedCount++;
+      return;
+    }
+    if (listener.onPrecue(position)) {
+      precueTimes[nextPrecueTime] = now;
+      nextPrecueTime = (nextPrecueTime + 1) % precueTimes.length;
+    }
+  }
+
+}
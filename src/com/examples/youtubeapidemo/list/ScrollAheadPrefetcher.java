@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.list;
+
+import android.os.SystemClock;
+import android.widget.AbsListView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Warms a {@link ThumbnailCache} with the thumbnails of the rows just beyond the visible part of a
+ * list, in the direction it is scrolling.
+ * <p>
+ * The faster the list scrolls, the further ahead thumbnails are prefetched, up to a maximum
+ * distance. Prefetches which have not been requested yet are withdrawn when the scroll reverses or
+ * the list comes to rest.
+ */
+public final class ScrollAheadPrefetcher implements AbsListView.OnScrollListener {
+
+  // How far ahead in time the window reaches at the current scroll speed.
+  private static final int LOOKAHEAD_MILLIS = 500;
+
+  /**
+   * Gives access to the videos shown in the list.
+   */
+  public interface VideoIds {
+
+    int getCount();
+
+    String getVideoId(int position);
+
+  }
+
+  private final ThumbnailCache thumbnailCache;
+  private final VideoIds videoIds;
+  private final int maxDistance;
+
+  // The videos prefetched since the last reversal, oldest first.
+  private final List<String> prefetchedVideoIds;
+
+  private int lastFirstVisibleItem;
+  private long lastScrollTime;
+  private int direction;
+  private float itemsPerSecond;
+
+  /**
+   * @param thumbnailCache The cache to prefetch into.
+   * @param videoIds The videos of the list.
+   * @param maxDistance The maximum number of rows beyond the visible ones which are prefetched.
+   */
+  public ScrollAheadPrefetcher(ThumbnailCache thumbnailCache, VideoIds videoIds, int maxDistance) {
+    this.thumbnailCache = thumbnailCache;
+    this.videoIds = videoIds;
+    this.maxDistance = maxDistance;
+    this.prefetchedVideoIds = new ArrayList<String>();
+    this.lastFirstVisibleItem = -1;
+  }
+
+  @Override
+  public void onScrollStateChanged(AbsListView view, int scrollState) {
+    if (scrollState == SCROLL_STATE_IDLE) {
+      cancelPrefetches();
+      direction = 0;
+      itemsPerSecond = 0;
+    }
+  }
+
+  @Override
+  public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+      int totalItemCount) {
+    long now = SystemClock.uptimeMillis();
+    if (lastFirstVisibleItem < 0 || firstVisibleItem == lastFirstVisibleItem) {
+      if (lastFirstVisibleItem < 0) {
+        lastFirstVisibleItem = firstVisibleItem;
+        lastScrollTime = now;
+      }
+      return;
+    }
+
+    int delta = firstVisibleItem - lastFirstVisibleItem;
+    int newDirection = delta > 0 ? 1 : -1;
+    if (newDirection != direction) {
+      cancelPrefetches();
+      direction = newDirection;
+    }
+    itemsPerSecond = Math.abs(delta) * 1000f / Math.max(1, now - lastScrollTime);
+    lastFirstVisibleItem = firstVisibleItem;
+    lastScrollTime = now;
+
+    int distance =
+        Math.min(maxDistance, Math.max(1, Math.round(itemsPerSecond * LOOKAHEAD_MILLIS / 1000)));
+    if (direction > 0) {
+      int end = Math.min(videoIds.getCount(), firstVisibleItem + visibleItemCount + distance);
+      for (int position = firstVisibleItem + visibleItemCount; position < end; position++) {
+        prefetch(videoIds.getVideoId(position));
+      }
+    } else {
+      int end = Math.max(0, firstVisibleItem - distance);
+      for (int position = firstVisibleItem - 1; position >= end; position--) {
+        prefetch(videoIds.getVideoId(position));
+      }
+    }
+  }
+
+  private void prefetch(String videoId) {
+    if (thumbnailCache.prefetch(videoId)) {
+      if (prefetchedVideoIds.size() == maxDistance) {
+        // The oldest prefetch is the nearest one, which has most likely been requested by now.
+        prefetchedVideoIds.remove(0);
+      }
+      prefetchedVideoIds.add(videoId);
+    }
+  }
+
+  private void cancelPrefetches() {
+    for (int i = 0; i < prefetchedVideoIds.size(); i++) {
+      thumbnailCache.cancelPrefetch(prefetchedVideoIds.get(i));
+    }
+    prefetchedVideoIds.clear();
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.list;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CatalogSource} serving a fixed list of videos held in memory.
+ */
+public final class StaticCatalogSource implements CatalogSource {
+
+  private final List<VideoEntry> entries;
+  private final int pageSize;
+  private final Handler handler;
+
+  private Listener listener;
+  private int delivered;
+  private boolean loading;
+  private boolean released;
+
+  /**
+   * @param entries The videos of the catalog.
+   * @param pageSize The number of entries delivered per page.
+   */
+  public StaticCatalogSource(List<VideoEntry> entries, int pageSize) {
+    this.entries = entries;
+    this.pageSize = pageSize;
+    this.handler = new Handler();
+  }
+
+  @Override
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void loadNextPage() {
+    if (loading || released || isExhausted()) {
+      return;
+    }
+    loading = true;
+    // Deliver asynchronously like every other source, so callers never see a nested callback.
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        loading = false;
+        if (released) {
+          return;
+        }
+        int end = Math.min(entries.size(), delivered + pageSize);
+        List<VideoEntry> page = new ArrayList<VideoEntry>(entries.subList(delivered, end));
+        delivered = end;
+        listener.onPageLoaded(page, isExhausted());
+      }
+    });
+  }
+
+  @Override
+  public boolean isExhausted() {
+    return delivered == entries.size();
+  }
+
+  @Override
+  public void release() {
+    released = true;
+  }
+
+}
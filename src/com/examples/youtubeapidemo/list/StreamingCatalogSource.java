@@ -0,0 +1,251 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.list;
+
+import com.examples.youtubeapidemo.util.VideoId;
+
+import android.annotation.TargetApi;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CatalogSource} which streams the catalog from a file, an asset or an HTTP server.
+ * <p>
+ * The catalog is either a JSON array of entries or newline-delimited JSON with one entry per line,
+ * where each entry is an object like
+ * <code>{"text": "Google Fiber", "videoId": "re0VRK6ouwI"}</code>.
+ * It is parsed on a background thread as the pages are asked for, so only the entries delivered so
+ * far are ever held in memory, however large the catalog is.
+ */
+@TargetApi(11)
+public final class StreamingCatalogSource implements CatalogSource {
+
+  private static final String TEXT_NAME = "text";
+  private static final String VIDEO_ID_NAME = "videoId";
+
+  /**
+   * Opens the stream the catalog is read from. Called on the background thread.
+   */
+  private interface StreamOpener {
+
+    InputStream open() throws IOException;
+
+  }
+
+  private final StreamOpener opener;
+  private final int pageSize;
+  private final HandlerThread readerThread;
+  private final Handler readerHandler;
+  private final Handler mainHandler;
+
+  // Only accessed on the reader thread.
+  private JsonReader reader;
+  private boolean inArray;
+
+  private Listener listener;
+  private boolean loading;
+  private boolean exhausted;
+  private boolean released;
+
+  public static StreamingCatalogSource forFile(final File file, int pageSize) {
+    return new StreamingCatalogSource(new StreamOpener() {
+      @Override
+      public InputStream open() throws IOException {
+        return new FileInputStream(file);
+      }
+    }, pageSize);
+  }
+
+  public static StreamingCatalogSource forAsset(
+      final AssetManager assets, final String name, int pageSize) {
+    return new StreamingCatalogSource(new StreamOpener() {
+      @Override
+      public InputStream open() throws IOException {
+        return assets.open(name);
+      }
+    }, pageSize);
+  }
+
+  public static StreamingCatalogSource forUrl(final URL url, int pageSize) {
+    return new StreamingCatalogSource(new StreamOpener() {
+      @Override
+      public InputStream open() throws IOException {
+        return url.openStream();
+      }
+    }, pageSize);
+  }
+
+  private StreamingCatalogSource(StreamOpener opener, int pageSize) {
+    this.opener = opener;
+    this.pageSize = pageSize;
+    readerThread = new HandlerThread("StreamingCatalogSource", Process.THREAD_PRIORITY_BACKGROUND);
+    readerThread.start();
+    readerHandler = new Handler(readerThread.getLooper());
+    mainHandler = new Handler();
+  }
+
+  @Override
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void loadNextPage() {
+    if (loading || exhausted || released) {
+      return;
+    }
+    loading = true;
+    readerHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        readPage();
+      }
+    });
+  }
+
+  @Override
+  public boolean isExhausted() {
+    return exhausted;
+  }
+
+  /**
+   * Stops the reader thread, closing the stream once any page being read is done.
+   */
+  @Override
+  public void release() {
+    released = true;
+    readerHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        closeReader();
+        readerThread.quit();
+      }
+    });
+  }
+
+  private void onPageRead(List<VideoEntry> page, boolean lastPage) {
+    loading = false;
+    if (released) {
+      return;
+    }
+    if (page == null) {
+      exhausted = true;
+      listener.onCatalogError();
+    } else {
+      exhausted = lastPage;
+      listener.onPageLoaded(page, lastPage);
+    }
+  }
+
+  // The following methods run on the reader thread.
+
+  private void readPage() {
+    List<VideoEntry> page = new ArrayList<VideoEntry>(pageSize);
+    boolean lastPage = false;
+    try {
+      if (reader == null) {
+        reader = new JsonReader(
+            new BufferedReader(new InputStreamReader(opener.open(), "UTF-8")));
+        // Lenient parsing accepts a sequence of top-level objects, as in newline-delimited JSON.
+        reader.setLenient(true);
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+          reader.beginArray();
+          inArray = true;
+        }
+      }
+      while (page.size() < pageSize && !isAtEnd()) {
+        VideoEntry entry = readEntry();
+        if (entry != null) {
+          page.add(entry);
+        }
+      }
+      // Peeking past a full page tells whether it is the last one, so no empty page is delivered.
+      lastPage = isAtEnd();
+    } catch (IOException e) {
+      page = null;
+    } catch (IllegalStateException e) {
+      // Thrown by the reader for input which is not shaped like a catalog.
+      page = null;
+    }
+    if (page == null || lastPage) {
+      closeReader();
+    }
+
+    final List<VideoEntry> result = page;
+    final boolean last = lastPage;
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        onPageRead(result, last);
+      }
+    });
+  }
+
+  private boolean isAtEnd() throws IOException {
+    JsonToken token = reader.peek();
+    return token == JsonToken.END_DOCUMENT || (inArray && token == JsonToken.END_ARRAY);
+  }
+
+  /** Reads an entry, or returns null if it lacks a valid video id. */
+  private VideoEntry readEntry() throws IOException {
+    String text = null;
+    String videoId = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (TEXT_NAME.equals(name)) {
+        text = reader.nextString();
+      } else if (VIDEO_ID_NAME.equals(name)) {
+        videoId = reader.nextString();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (!VideoId.isPackable(videoId)) {
+      return null;
+    }
+    return new VideoEntry(text == null ? "" : text, videoId);
+  }
+
+  private void closeReader() {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Nothing left to read from it anyway.
+      }
+      reader = null;
+    }
+  }
+
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.list;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A two-tier cache of video thumbnails in front of a {@link VideoThumbnailSource}.
+ * <p>
+ * Recently shown thumbnails are kept in memory, in an LRU cache bounded by the size of the bitmaps,
+ * so that a row scrolled back into view can be bound synchronously. Every loaded thumbnail is also
+ * written to a directory on disk, keyed by its video id and trimmed to a maximum size, so that
+ * thumbnails survive being evicted from memory and the app being restarted. Disk accesses happen on
+ * a background thread. All other methods must be called on the main thread.
+ * <p>
+ * Thumbnails can also be prefetched ahead of being needed. Prefetched thumbnails are stored
+ * without informing the listener, unless they get requested while still loading.
+ */
+public final class ThumbnailCache implements VideoThumbnailSource.Listener {
+
+  /**
+   * Defines an interface to enable listening to thumbnails requested from the cache.
+   */
+  public interface Listener {
+
+    void onThumbnailAvailable(String videoId, Bitmap thumbnail);
+
+    void onThumbnailUnavailable(String videoId);
+
+  }
+
+  private static final int JPEG_QUALITY = 85;
+  private static final String FILE_SUFFIX = ".jpg";
+
+  private final VideoThumbnailSource source;
+  private final File directory;
+  private final long maxDiskBytes;
+  private final LruCache<String, Bitmap> memoryCache;
+  // The videos whose thumbnail is being read from disk, and those handed to the source.
+  private final Set<String> readingVideoIds;
+  private final Set<String> loadingVideoIds;
+  // The pending videos which have only been prefetched, and not requested.
+  private final Set<String> prefetchOnlyVideoIds;
+
+  private final HandlerThread diskThread;
+  private final Handler diskHandler;
+  private final Handler mainHandler;
+  private final BitmapFactory.Options decodeOptions;
+
+  private Listener listener;
+  private boolean released;
+
+  // The size of the files on disk, only accessed on the disk thread. It is measured once, before
+  // the first write, and then kept up to date as files are written and deleted.
+  private long diskBytes = -1;
+
+  private int memoryHits;
+  private int diskHits;
+  private int misses;
+  private int prefetches;
+
+  /**
+   * @param source The source of thumbnails missing from both tiers.
+   * @param directory The directory the thumbnails are stored in. It is created if necessary.
+   * @param maxMemoryBytes The maximum size of the bitmaps kept in memory.
+   * @param maxDiskBytes The maximum size of the files kept on disk.
+   */
+  public ThumbnailCache(
+      VideoThumbnailSource source, File directory, int maxMemoryBytes, long maxDiskBytes) {
+    this.source = source;
+    this.directory = directory;
+    this.maxDiskBytes = maxDiskBytes;
+    memoryCache = new LruCache<String, Bitmap>(maxMemoryBytes) {
+      @Override
+      protected int sizeOf(String videoId, Bitmap thumbnail) {
+        return thumbnail.getRowBytes() * thumbnail.getHeight();
+      }
+    };
+    readingVideoIds = new HashSet<String>();
+    loadingVideoIds = new HashSet<String>();
+    prefetchOnlyVideoIds = new HashSet<String>();
+    decodeOptions = new BitmapFactory.Options();
+    decodeOptions.inPreferredConfig = Bitmap.Config.RGB_565;
+
+    source.setListener(this);
+    mainHandler = new Handler(Looper.getMainLooper());
+    diskThread = new HandlerThread("ThumbnailCache");
+    diskThread.start();
+    diskHandler = new Handler(diskThread.getLooper());
+    diskHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        ThumbnailCache.this.directory.mkdirs();
+      }
+    });
+  }
+
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Returns the thumbnail of a video if it is in memory, without blocking.
+   *
+   * @return The thumbnail, or null if it has to be requested with {@link #request(String)}.
+   */
+  public Bitmap get(String videoId) {
+    Bitmap thumbnail = memoryCache.get(videoId);
+    if (thumbnail != null) {
+      memoryHits++;
+    }
+    return thumbnail;
+  }
+
+  /**
+   * Looks for the thumbnail of a video on disk, and loads it from the source if it is not there
+   * either. The listener is informed of the outcome, unless the request is cancelled first.
+   * Repeated requests for a video whose thumbnail is already pending are ignored.
+   */
+  public void request(String videoId) {
+    prefetchOnlyVideoIds.remove(videoId);
+    if (released || loadingVideoIds.contains(videoId) || !readingVideoIds.add(videoId)) {
+      return;
+    }
+    readFromDiskAsync(videoId);
+  }
+
+  /**
+   * Loads the thumbnail of a video which is likely to be requested soon, if it is not in memory
+   * or pending already.
+   *
+   * @return Whether a prefetch was started.
+   */
+  public boolean prefetch(String videoId) {
+    if (released || memoryCache.get(videoId) != null || loadingVideoIds.contains(videoId)
+        || !readingVideoIds.add(videoId)) {
+      return false;
+    }
+    prefetchOnlyVideoIds.add(videoId);
+    prefetches++;
+    readFromDiskAsync(videoId);
+    return true;
+  }
+
+  /**
+   * Withdraws a prefetch, unless the thumbnail has been requested since or the source has already
+   * started loading it.
+   *
+   * @return Whether the prefetch has been withdrawn.
+   */
+  public boolean cancelPrefetch(String videoId) {
+    if (prefetchOnlyVideoIds.contains(videoId) && cancel(videoId)) {
+      prefetchOnlyVideoIds.remove(videoId);
+      return true;
+    }
+    return false;
+  }
+
+  private void readFromDiskAsync(final String videoId) {
+    diskHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        final Bitmap thumbnail = readFromDisk(videoId);
+        mainHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            onDiskRead(videoId, thumbnail);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Withdraws a request which is no longer needed, unless the source has already started loading
+   * the thumbnail.
+   *
+   * @return Whether the request has been withdrawn.
+   */
+  public boolean cancel(String videoId) {
+    if (readingVideoIds.remove(videoId)) {
+      return true;
+    } else if (loadingVideoIds.contains(videoId) && source.cancel(videoId)) {
+      loadingVideoIds.remove(videoId);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Releases the source and stops the disk thread, after it has finished pending writes.
+   */
+  public void release() {
+    released = true;
+    source.release();
+    diskHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        diskThread.quit();
+      }
+    });
+  }
+
+  public int getMemoryHitCount() {
+    return memoryHits;
+  }
+
+  public int getDiskHitCount() {
+    return diskHits;
+  }
+
+  /** Returns the number of thumbnails which had to be loaded from the source. */
+  public int getMissCount() {
+    return misses;
+  }
+
+  /** Returns the number of prefetches started, which are not counted as hits or misses. */
+  public int getPrefetchCount() {
+    return prefetches;
+  }
+
+  /** Returns the fraction of lookups answered from memory or disk. */
+  public float getHitRate() {
+    int lookups = memoryHits + diskHits + misses;
+    return lookups == 0 ? 0 : (float) (memoryHits + diskHits) / lookups;
+  }
+
+  private void onDiskRead(String videoId, Bitmap thumbnail) {
+    if (released) {
+      return;
+    }
+    if (!readingVideoIds.remove(videoId)) {
+      // Cancelled while reading. Keep the thumbnail, as it is already in memory anyway.
+      if (thumbnail != null) {
+        memoryCache.put(videoId, thumbnail);
+      }
+      return;
+    }
+    boolean prefetchOnly = prefetchOnlyVideoIds.contains(videoId);
+    if (thumbnail != null) {
+      memoryCache.put(videoId, thumbnail);
+      if (prefetchOnly) {
+        prefetchOnlyVideoIds.remove(videoId);
+      } else {
+        diskHits++;
+        listener.onThumbnailAvailable(videoId, thumbnail);
+      }
+    } else {
+      if (!prefetchOnly) {
+        misses++;
+      }
+      loadingVideoIds.add(videoId);
+      source.load(videoId);
+    }
+  }
+
+  @Override
+  public void onThumbnailLoaded(final String videoId, final Bitmap thumbnail) {
+    loadingVideoIds.remove(videoId);
+    memoryCache.put(videoId, thumbnail);
+    diskHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        writeToDisk(videoId, thumbnail);
+      }
+    });
+    if (!prefetchOnlyVideoIds.remove(videoId)) {
+      listener.onThumbnailAvailable(videoId, thumbnail);
+    }
+  }
+
+  @Override
+  public void onThumbnailError(String videoId) {
+    loadingVideoIds.remove(videoId);
+    if (!prefetchOnlyVideoIds.remove(videoId)) {
+      listener.onThumbnailUnavailable(videoId);
+    }
+  }
+
+  private File getFile(String videoId) {
+    // Video ids only consist of letters, digits, '-' and '_', so they are safe file names.
+    return new File(directory, videoId + FILE_SUFFIX);
+  }
+
+  // The following methods run on the disk thread.
+
+  private Bitmap readFromDisk(String videoId) {
+    File file = getFile(videoId);
+    if (!file.exists()) {
+      return null;
+    }
+    Bitmap thumbnail = BitmapFactory.decodeFile(file.getPath(), decodeOptions);
+    if (thumbnail != null) {
+      // The modification time orders the files for trimming, so mark this one as recently used.
+      file.setLastModified(System.currentTimeMillis());
+    }
+    return thumbnail;
+  }
+
+  private void writeToDisk(String videoId, Bitmap thumbnail) {
+    if (diskBytes < 0) {
+      diskBytes = measureDisk();
+    }
+    File file = getFile(videoId);
+    // A thumbnail may be written again after being evicted from memory.
+    diskBytes -= file.length();
+    OutputStream out = null;
+    try {
+      out = new BufferedOutputStream(new FileOutputStream(file));
+      if (!thumbnail.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+        file.delete();
+      }
+    } catch (IOException e) {
+      file.delete();
+    } finally {
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException e) {
+          file.delete();
+        }
+      }
+    }
+    // Deleted files have a length of 0.
+    diskBytes += file.length();
+    if (diskBytes > maxDiskBytes) {
+      trimDisk();
+    }
+  }
+
+  private long measureDisk() {
+    File[] files = directory.listFiles();
+    long totalBytes = 0;
+    if (files != null) {
+      for (File file : files) {
+        totalBytes += file.length();
+      }
+    }
+    return totalBytes;
+  }
+
+  /**
+   * Deletes the least recently used files until the total size is within the limit. The total is
+   * measured again, as files may have been deleted behind the cache's back.
+   */
+  private void trimDisk() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      diskBytes = 0;
+      return;
+    }
+    long totalBytes = 0;
+    for (File file : files) {
+      totalBytes += file.length();
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File lhs, File rhs) {
+        long lhsModified = lhs.lastModified();
+        long rhsModified = rhs.lastModified();
+        return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+      }
+    });
+    for (int i = 0; i < files.length && totalBytes > maxDiskBytes; i++) {
+      long length = files[i].length();
+      if (files[i].delete()) {
+        totalBytes -= length;
+      }
+    }
+    diskBytes = totalBytes;
+  }
+
+}
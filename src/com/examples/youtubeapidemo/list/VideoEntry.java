@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.list;
+
+import com.examples.youtubeapidemo.util.VideoId;
+
+/**
+ * A video in the catalog shown by the video list. The video id is kept in its packed form, and
+ * only unpacked into a string the first time it is asked for, which saves a string per entry that
+ * is never shown in large catalogs.
+ */
+public final class VideoEntry {
+
+  private final String text;
+  private final long packedVideoId;
+  private String videoId;
+
+  /**
+   * @throws IllegalArgumentException If the video id is not {@link VideoId#isPackable(String)
+   *     packable}.
+   */
+  public VideoEntry(String text, String videoId) {
+    this.text = text;
+    this.packedVideoId = VideoId.pack(videoId);
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  /** Returns the video id, which is unpacked on the first call and kept for later ones. */
+  public String getVideoId() {
+    if (videoId == null) {
+      videoId = VideoId.unpack(packedVideoId);
+    }
+    return videoId;
+  }
+
+  public long getPackedVideoId() {
+    return packedVideoId;
+  }
+
+}
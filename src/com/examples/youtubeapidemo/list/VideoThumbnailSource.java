@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.list;
+
+import android.graphics.Bitmap;
+
+/**
+ * Loads the thumbnails of individual videos. Implementations deliver their results on the main
+ * thread, and may be replaced by a local fake to exercise a {@link ThumbnailCache} without the
+ * YouTube service.
+ */
+public interface VideoThumbnailSource {
+
+  /**
+   * Defines an interface to enable listening to loaded thumbnails.
+   */
+  interface Listener {
+
+    /**
+     * Called when the thumbnail of a video has been loaded.
+     *
+     * @param videoId The video the thumbnail belongs to.
+     * @param thumbnail A copy of the thumbnail, which the listener may keep.
+     */
+    void onThumbnailLoaded(String videoId, Bitmap thumbnail);
+
+    /**
+     * Called when the thumbnail of a video could not be loaded.
+     */
+    void onThumbnailError(String videoId);
+
+  }
+
+  void setListener(Listener listener);
+
+  /**
+   * Starts loading the thumbnail of a video. Requests made while the source is busy are queued.
+   */
+  void load(String videoId);
+
+  /**
+   * Withdraws a request which has not started loading yet.
+   *
+   * @return Whether the request was still queued and has been removed.
+   */
+  boolean cancel(String videoId);
+
+  /**
+   * Releases the resources of the source. No thumbnails are delivered afterwards.
+   */
+  void release();
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.list;
+
+import com.google.android.youtube.player.YouTubeInitializationResult;
+import com.google.android.youtube.player.YouTubeThumbnailLoader;
+import com.google.android.youtube.player.YouTubeThumbnailView;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * A {@link VideoThumbnailSource} backed by a fixed number of {@link YouTubeThumbnailLoader}s, which
+ * are shared by all the requests whatever the number of rows showing thumbnails. Requests are
+ * queued until a loader is free, and each loaded thumbnail is routed back to the request of the
+ * loader which loaded it, and copied into a bitmap of the requested height.
+ */
+public final class YouTubeVideoThumbnailSource implements
+    VideoThumbnailSource,
+    YouTubeThumbnailView.OnInitializedListener,
+    YouTubeThumbnailLoader.OnThumbnailLoadedListener {
+
+  // Thumbnails are opaque, so there is no need to pay for an alpha channel.
+  private static final Bitmap.Config BITMAP_CONFIG = Bitmap.Config.RGB_565;
+
+  private final int thumbnailHeight;
+  private final Queue<String> queue;
+  private final Canvas canvas;
+  private final Rect drawableBounds;
+
+  private final YouTubeThumbnailView[] views;
+  private final YouTubeThumbnailLoader[] loaders;
+  // The video each loader is loading, or null if it is free.
+  private final String[] loadingVideoIds;
+  private int failedLoaders;
+
+  private Listener listener;
+
+  /**
+   * @param context The context used to create the thumbnail views.
+   * @param thumbnailHeight The height of the delivered bitmaps, in pixels.
+   * @param loaderCount The number of loaders, and therefore of thumbnails loading in parallel.
+   */
+  public YouTubeVideoThumbnailSource(Context context, int thumbnailHeight, int loaderCount) {
+    this.thumbnailHeight = thumbnailHeight;
+    queue = new ArrayDeque<String>();
+    canvas = new Canvas();
+    drawableBounds = new Rect();
+    views = new YouTubeThumbnailView[loaderCount];
+    loaders = new YouTubeThumbnailLoader[loaderCount];
+    loadingVideoIds = new String[loaderCount];
+    for (int i = 0; i < loaderCount; i++) {
+      views[i] = new YouTubeThumbnailView(context);
+    }
+  }
+
+  public void initialize(String developerKey) {
+    for (YouTubeThumbnailView view : views) {
+      view.initialize(developerKey, this);
+    }
+  }
+
+  @Override
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void load(String videoId) {
+    if (failedLoaders == views.length) {
+      listener.onThumbnailError(videoId);
+      return;
+    }
+    queue.add(videoId);
+    maybeLoadNext();
+  }
+
+  @Override
+  public boolean cancel(String videoId) {
+    return queue.remove(videoId);
+  }
+
+  @Override
+  public void release() {
+    queue.clear();
+    for (int i = 0; i < loaders.length; i++) {
+      if (loaders[i] != null) {
+        loaders[i].release();
+        loaders[i] = null;
+      }
+      loadingVideoIds[i] = null;
+    }
+  }
+
+  private void maybeLoadNext() {
+    for (int i = 0; i < loaders.length && !queue.isEmpty(); i++) {
+      if (loaders[i] != null && loadingVideoIds[i] == null) {
+        loadingVideoIds[i] = queue.remove();
+        loaders[i].setVideo(loadingVideoIds[i]);
+      }
+    }
+  }
+
+  @Override
+  public void onInitializationSuccess(YouTubeThumbnailView view, YouTubeThumbnailLoader loader) {
+    loaders[getSlot(view)] = loader;
+    loader.setOnThumbnailLoadedListener(this);
+    maybeLoadNext();
+  }
+
+  @Override
+  public void onInitializationFailure(
+      YouTubeThumbnailView view, YouTubeInitializationResult errorReason) {
+    failedLoaders++;
+    if (failedLoaders == views.length) {
+      while (!queue.isEmpty()) {
+        listener.onThumbnailError(queue.remove());
+      }
+    }
+  }
+
+  @Override
+  public void onThumbnailLoaded(YouTubeThumbnailView view, String videoId) {
+    int slot = getSlot(view);
+    String loadedVideoId = loadingVideoIds[slot];
+    if (loadedVideoId == null) {
+      return; // released
+    }
+    loadingVideoIds[slot] = null;
+    Bitmap thumbnail = copyThumbnail(view.getDrawable());
+    if (thumbnail != null) {
+      listener.onThumbnailLoaded(loadedVideoId, thumbnail);
+    } else {
+      listener.onThumbnailError(loadedVideoId);
+    }
+    maybeLoadNext();
+  }
+
+  @Override
+  public void onThumbnailError(
+      YouTubeThumbnailView view, YouTubeThumbnailLoader.ErrorReason reason) {
+    int slot = getSlot(view);
+    String failedVideoId = loadingVideoIds[slot];
+    if (failedVideoId == null) {
+      return; // released
+    }
+    loadingVideoIds[slot] = null;
+    listener.onThumbnailError(failedVideoId);
+    maybeLoadNext();
+  }
+
+  private int getSlot(YouTubeThumbnailView view) {
+    for (int i = 0; i < views.length; i++) {
+      if (views[i] == view) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unknown thumbnail view " + view);
+  }
+
+  private Bitmap copyThumbnail(Drawable drawable) {
+    if (drawable == null || drawable.getIntrinsicWidth() <= 0
+        || drawable.getIntrinsicHeight() <= 0) {
+      return null;
+    }
+    int width = drawable.getIntrinsicWidth() * thumbnailHeight / drawable.getIntrinsicHeight();
+    Bitmap bitmap = Bitmap.createBitmap(width, thumbnailHeight, BITMAP_CONFIG);
+    canvas.setBitmap(bitmap);
+    drawable.copyBounds(drawableBounds);
+    drawable.setBounds(0, 0, width, thumbnailHeight);
+    drawable.draw(canvas);
+    drawable.setBounds(drawableBounds);
+    return bitmap;
+  }
+
+}
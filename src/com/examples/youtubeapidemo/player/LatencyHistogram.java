@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.player;
+
+/**
+ * A histogram of latencies in a fixed number of buckets, so that any number of values can be
+ * recorded in constant memory and without allocating.
+ * <p>
+ * Buckets are log-linear: each power of two milliseconds is split into four buckets, which keeps
+ * the error of a percentile within 25% of the value from one millisecond up to a minute. Latencies
+ * beyond that all go into the last bucket.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Latencies of 2^MAX_EXPONENT milliseconds or more all go into the last bucket.
+  private static final int MAX_EXPONENT = 16;
+  private static final int BUCKET_COUNT =
+      SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS + 1;
+
+  private final int[] buckets;
+  private int count;
+  private long totalMillis;
+  private long maxMillis;
+
+  public LatencyHistogram() {
+    buckets = new int[BUCKET_COUNT];
+  }
+
+  /** Returns a copy of the histogram, which is not affected by later changes to this one. */
+  public LatencyHistogram copy() {
+    LatencyHistogram copy = new LatencyHistogram();
+    System.arraycopy(buckets, 0, copy.buckets, 0, buckets.length);
+    copy.count = count;
+    copy.totalMillis = totalMillis;
+    copy.maxMillis = maxMillis;
+    return copy;
+  }
+
+  public void record(long millis) {
+    millis = Math.max(0, millis);
+    buckets[bucketOf(millis)]++;
+    count++;
+    totalMillis += millis;
+    maxMillis = Math.max(maxMillis, millis);
+  }
+
+  public void reset() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = 0;
+    }
+    count = 0;
+    totalMillis = 0;
+    maxMillis = 0;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public long getAverageMillis() {
+    return count == 0 ? 0 : totalMillis / count;
+  }
+
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+
+  /**
+   * Returns a latency which the given percentage of the recorded values did not exceed, rounded up
+   * to the top of its bucket.
+   */
+  public long getPercentileMillis(int percent) {
+    int threshold = (int) Math.ceil(count * percent / 100d);
+    int seen = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      seen += buckets[i];
+      if (seen >= threshold && seen > 0) {
+        return Math.min(upperBoundOf(i), maxMillis);
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public String toString() {
+    return "n=" + count + " avg=" + getAverageMillis() + " p50=" + getPercentileMillis(50)
+        + " p90=" + getPercentileMillis(90) + " max=" + maxMillis;
+  }
+
+  private static int bucketOf(long millis) {
+    if (millis < SUB_BUCKETS) {
+      return (int) millis;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(millis);
+    if (exponent >= MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (millis >> shift) & (SUB_BUCKETS - 1);
+    return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    if (bucket == BUCKET_COUNT - 1) {
+      return Long.MAX_VALUE;
+    }
+    int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+    int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+    long lowerBound = (long) (SUB_BUCKETS + subBucket) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+
+}
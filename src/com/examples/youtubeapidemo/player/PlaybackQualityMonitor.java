@@ -0,0 +1,430 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.player;
+
+import com.google.android.youtube.player.YouTubePlayer;
+import com.google.android.youtube.player.YouTubePlayer.ErrorReason;
+import com.google.android.youtube.player.YouTubePlayer.PlaybackEventListener;
+import com.google.android.youtube.player.YouTubePlayer.PlayerStateChangeListener;
+
+import android.os.SystemClock;
+
+import com.examples.youtubeapidemo.trace.TraceEvent;
+import com.examples.youtubeapidemo.trace.TraceRecorder;
+
+/**
+ * Measures the quality of experience of a {@link YouTubePlayer} from its callbacks: how long
+ * videos take to load and start, how often and how long they rebuffer, how long seeks take, and
+ * which errors occur.
+ * <p>
+ * A player only takes one listener of each kind, so the monitor takes their place and forwards
+ * every callback to the listeners the app would otherwise have set. Latencies are kept in
+ * {@link LatencyHistogram}s, so the monitor uses the same memory however long it runs. Every
+ * callback is also recorded by the {@link TraceRecorder}, when it is recording. All methods must
+ * be called on the main thread.
+ */
+public final class PlaybackQualityMonitor implements
+    PlaybackEventListener,
+    PlayerStateChangeListener {
+
+  /**
+   * The time source of the monitor, which may be replaced to script callbacks at chosen times.
+   */
+  public interface Clock {
+
+    long uptimeMillis();
+
+  }
+
+  private static final Clock SYSTEM_CLOCK = new Clock() {
+    @Override
+    public long uptimeMillis() {
+      return SystemClock.uptimeMillis();
+    }
+  };
+
+  // Marks a phase which is not in progress.
+  private static final long NONE = -1;
+
+  private final Clock clock;
+  private YouTubePlayer player;
+  private PlaybackEventListener playbackEventListener;
+  private PlayerStateChangeListener playerStateChangeListener;
+
+  private final LatencyHistogram cueToLoaded;
+  private final LatencyHistogram loadedToStarted;
+  private final LatencyHistogram seekLatency;
+  private final LatencyHistogram rebufferDuration;
+  private final int[] errorCounts;
+
+  private int cues;
+  private int loads;
+  private int starts;
+  private int rebuffers;
+  private long playingMillis;
+  private long rebufferMillis;
+
+  // The start of each phase in progress, or NONE if it is not.
+  private long cueTime = NONE;
+  private long loadedTime = NONE;
+  private long seekTime = NONE;
+  private long playingTime = NONE;
+  private long bufferingTime = NONE;
+
+  // The video last loaded, for traces.
+  private String videoId;
+  // Whether the current video has played, after which any buffering is a rebuffer.
+  private boolean played;
+
+  public PlaybackQualityMonitor() {
+    this(SYSTEM_CLOCK);
+  }
+
+  public PlaybackQualityMonitor(Clock clock) {
+    this.clock = clock;
+    cueToLoaded = new LatencyHistogram();
+    loadedToStarted = new LatencyHistogram();
+    seekLatency = new LatencyHistogram();
+    rebufferDuration = new LatencyHistogram();
+    errorCounts = new int[ErrorReason.values().length];
+  }
+
+  /**
+   * Sets the monitor as the playback event and player state change listener of a player.
+   *
+   * @param playbackEventListener The listener the monitor forwards playback events to, or null.
+   * @param playerStateChangeListener The listener the monitor forwards state changes to, or null.
+   */
+  public void attach(YouTubePlayer player, PlaybackEventListener playbackEventListener,
+      PlayerStateChangeListener playerStateChangeListener) {
+    this.player = player;
+    this.playbackEventListener = playbackEventListener;
+    this.playerStateChangeListener = playerStateChangeListener;
+    player.setPlaybackEventListener(this);
+    player.setPlayerStateChangeListener(this);
+  }
+
+  /**
+   * Marks that a video or playlist has been cued or loaded, which the player does not report.
+   * Should be called right before the call to the player.
+   */
+  public void onCue() {
+    long now = clock.uptimeMillis();
+    endPlaying(now);
+    endBuffering(now);
+    cues++;
+    cueTime = now;
+    loadedTime = NONE;
+    seekTime = NONE;
+    played = false;
+    videoId = null;
+    TraceRecorder.record(TraceEvent.PLAYER_CUE, 0);
+  }
+
+  @Override
+  public void onLoading() {
+    TraceRecorder.record(TraceEvent.PLAYER_LOADING, 0);
+    if (playerStateChangeListener != null) {
+      playerStateChangeListener.onLoading();
+    }
+  }
+
+  @Override
+  public void onLoaded(String videoId) {
+    long now = clock.uptimeMillis();
+    loads++;
+    if (cueTime != NONE) {
+      cueToLoaded.record(now - cueTime);
+      cueTime = NONE;
+    }
+    loadedTime = now;
+    this.videoId = videoId;
+    TraceRecorder.record(TraceEvent.PLAYER_LOADED, videoId, 0);
+    if (playerStateChangeListener != null) {
+      playerStateChangeListener.onLoaded(videoId);
+    }
+  }
+
+  @Override
+  public void onAdStarted() {
+    TraceRecorder.record(TraceEvent.PLAYER_AD_STARTED, videoId, 0);
+    if (playerStateChangeListener != null) {
+      playerStateChangeListener.onAdStarted();
+    }
+  }
+
+  @Override
+  public void onVideoStarted() {
+    long now = clock.uptimeMillis();
+    starts++;
+    if (loadedTime != NONE) {
+      loadedToStarted.record(now - loadedTime);
+      loadedTime = NONE;
+    }
+    TraceRecorder.record(TraceEvent.PLAYER_VIDEO_STARTED, videoId, 0);
+    if (playerStateChangeListener != null) {
+      playerStateChangeListener.onVideoStarted();
+    }
+  }
+
+  @Override
+  public void onVideoEnded() {
+    endPlaying(clock.uptimeMillis());
+    played = false;
+    TraceRecorder.record(TraceEvent.PLAYER_VIDEO_ENDED, videoId, 0);
+    if (playerStateChangeListener != null) {
+      playerStateChangeListener.onVideoEnded();
+    }
+  }
+
+  @Override
+  public void onError(ErrorReason reason) {
+    long now = clock.uptimeMillis();
+    endPlaying(now);
+    endBuffering(now);
+    errorCounts[reason.ordinal()]++;
+    TraceRecorder.record(TraceEvent.PLAYER_ERROR, videoId, reason.ordinal());
+    cueTime = NONE;
+    loadedTime = NONE;
+    seekTime = NONE;
+    if (playerStateChangeListener != null) {
+      playerStateChangeListener.onError(reason);
+    }
+  }
+
+  @Override
+  public void onPlaying() {
+    long now = clock.uptimeMillis();
+    endSeek(now);
+    endBuffering(now);
+    if (playingTime == NONE) {
+      playingTime = now;
+    }
+    played = true;
+    tracePosition(TraceEvent.PLAYBACK_PLAYING);
+    if (playbackEventListener != null) {
+      playbackEventListener.onPlaying();
+    }
+  }
+
+  @Override
+  public void onPaused() {
+    long now = clock.uptimeMillis();
+    endPlaying(now);
+    // A stall the user gives up on counts up to the pause. A seek while paused completes without
+    // playing, so its latency is unknown.
+    endBuffering(now);
+    seekTime = NONE;
+    tracePosition(TraceEvent.PLAYBACK_PAUSED);
+    if (playbackEventListener != null) {
+      playbackEventListener.onPaused();
+    }
+  }
+
+  @Override
+  public void onStopped() {
+    long now = clock.uptimeMillis();
+    endPlaying(now);
+    endBuffering(now);
+    seekTime = NONE;
+    tracePosition(TraceEvent.PLAYBACK_STOPPED);
+    if (playbackEventListener != null) {
+      playbackEventListener.onStopped();
+    }
+  }
+
+  @Override
+  public void onBuffering(boolean isBuffering) {
+    long now = clock.uptimeMillis();
+    if (isBuffering) {
+      endPlaying(now);
+      // Buffering after a seek is part of the seek, and before playing, part of the startup.
+      if (played && seekTime == NONE && bufferingTime == NONE) {
+        rebuffers++;
+        bufferingTime = now;
+      }
+    } else {
+      endBuffering(now);
+      endSeek(now);
+    }
+    tracePosition(
+        isBuffering ? TraceEvent.PLAYBACK_BUFFERING_BEGIN : TraceEvent.PLAYBACK_BUFFERING_END);
+    if (playbackEventListener != null) {
+      playbackEventListener.onBuffering(isBuffering);
+    }
+  }
+
+  @Override
+  public void onSeekTo(int endPositionMillis) {
+    long now = clock.uptimeMillis();
+    endBuffering(now);
+    seekTime = now;
+    TraceRecorder.record(TraceEvent.PLAYBACK_SEEK, videoId, endPositionMillis);
+    if (playbackEventListener != null) {
+      playbackEventListener.onSeekTo(endPositionMillis);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the metrics so far, which later callbacks do not change.
+   */
+  public Snapshot getSnapshot() {
+    long now = clock.uptimeMillis();
+    long totalPlayingMillis = playingMillis + (playingTime == NONE ? 0 : now - playingTime);
+    long totalRebufferMillis = rebufferMillis + (bufferingTime == NONE ? 0 : now - bufferingTime);
+    return new Snapshot(cues, loads, starts, rebuffers, totalPlayingMillis, totalRebufferMillis,
+        cueToLoaded.copy(), loadedToStarted.copy(), seekLatency.copy(), rebufferDuration.copy(),
+        errorCounts.clone());
+  }
+
+  private void tracePosition(int type) {
+    // Only ask the player for its position when it is going to be recorded.
+    if (TraceRecorder.isRecording()) {
+      TraceRecorder.record(type, videoId, player != null ? player.getCurrentTimeMillis() : 0);
+    }
+  }
+
+  private void endPlaying(long now) {
+    if (playingTime != NONE) {
+      playingMillis += now - playingTime;
+      playingTime = NONE;
+    }
+  }
+
+  private void endBuffering(long now) {
+    if (bufferingTime != NONE) {
+      rebufferDuration.record(now - bufferingTime);
+      rebufferMillis += now - bufferingTime;
+      bufferingTime = NONE;
+    }
+  }
+
+  private void endSeek(long now) {
+    if (seekTime != NONE) {
+      seekLatency.record(now - seekTime);
+      seekTime = NONE;
+    }
+  }
+
+  /**
+   * The quality of experience metrics of a player at one point in time.
+   */
+  public static final class Snapshot {
+
+    private final int cues;
+    private final int loads;
+    private final int starts;
+    private final int rebuffers;
+    private final long playingMillis;
+    private final long rebufferMillis;
+    private final LatencyHistogram cueToLoaded;
+    private final LatencyHistogram loadedToStarted;
+    private final LatencyHistogram seekLatency;
+    private final LatencyHistogram rebufferDuration;
+    private final int[] errorCounts;
+
+    private Snapshot(int cues, int loads, int starts, int rebuffers, long playingMillis,
+        long rebufferMillis, LatencyHistogram cueToLoaded, LatencyHistogram loadedToStarted,
+        LatencyHistogram seekLatency, LatencyHistogram rebufferDuration, int[] errorCounts) {
+      this.cues = cues;
+      this.loads = loads;
+      this.starts = starts;
+      this.rebuffers = rebuffers;
+      this.playingMillis = playingMillis;
+      this.rebufferMillis = rebufferMillis;
+      this.cueToLoaded = cueToLoaded;
+      this.loadedToStarted = loadedToStarted;
+      this.seekLatency = seekLatency;
+      this.rebufferDuration = rebufferDuration;
+      this.errorCounts = errorCounts;
+    }
+
+    /** Returns the number of videos or playlists cued or loaded. */
+    public int getCueCount() {
+      return cues;
+    }
+
+    public int getLoadCount() {
+      return loads;
+    }
+
+    public int getStartCount() {
+      return starts;
+    }
+
+    /** Returns the number of times playback stalled to buffer after the video had started. */
+    public int getRebufferCount() {
+      return rebuffers;
+    }
+
+    /** Returns the fraction of the time spent playing or rebuffering which was rebuffering. */
+    public float getRebufferRatio() {
+      long total = playingMillis + rebufferMillis;
+      return total == 0 ? 0 : (float) rebufferMillis / total;
+    }
+
+    /** Returns the latencies from cueing a video to it being loaded. */
+    public LatencyHistogram getCueToLoaded() {
+      return cueToLoaded;
+    }
+
+    /** Returns the latencies from a video being loaded to it starting to play. */
+    public LatencyHistogram getLoadedToStarted() {
+      return loadedToStarted;
+    }
+
+    /** Returns the latencies from a seek to playback resuming. */
+    public LatencyHistogram getSeekLatency() {
+      return seekLatency;
+    }
+
+    public LatencyHistogram getRebufferDuration() {
+      return rebufferDuration;
+    }
+
+    public int getErrorCount(ErrorReason reason) {
+      return errorCounts[reason.ordinal()];
+    }
+
+    /** Returns the fraction of cues which ended in the given error. */
+    public float getErrorRate(ErrorReason reason) {
+      return cues == 0 ? 0 : (float) errorCounts[reason.ordinal()] / cues;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append("cues=").append(cues).append(" loads=").append(loads)
+          .append(" starts=").append(starts).append(" rebuffers=").append(rebuffers)
+          .append(" rebufferRatio=").append(getRebufferRatio())
+          .append("\ncueToLoaded: ").append(cueToLoaded)
+          .append("\nloadedToStarted: ").append(loadedToStarted)
+          .append("\nseek: ").append(seekLatency)
+          .append("\nrebuffer: ").append(rebufferDuration);
+      for (ErrorReason reason : ErrorReason.values()) {
+        if (errorCounts[reason.ordinal()] != 0) {
+          builder.append("\nerror ").append(reason).append(": ")
+              .append(errorCounts[reason.ordinal()]);
+        }
+      }
+      return builder.toString();
+    }
+
+  }
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.player;
+
+import com.google.android.youtube.player.YouTubePlayer;
+
+import android.os.Handler;
+import android.os.Message;
+import android.os.SystemClock;
+
+/**
+ * Samples the position and duration of a {@link YouTubePlayer} at a fixed rate while it plays, and
+ * derives progress, stalls and watch time from the samples.
+ * <p>
+ * Samples go into preallocated primitive arrays used as a ring buffer, so sampling allocates
+ * nothing. The sampler only runs while it has been started and has a listener, so it costs nothing
+ * on the main thread when nothing consumes its samples. All methods must be called on the main
+ * thread, like those of the player.
+ */
+public final class PositionSampler {
+
+  // The position has to stay put for this long while playing to count as a stall.
+  private static final int STALL_THRESHOLD_MILLIS = 500;
+  // Position advances beyond the elapsed time plus this slack are seeks, not watching.
+  private static final int SEEK_SLACK_MILLIS = 250;
+  // Deadlines are only scheduled to the millisecond.
+  private static final int MAX_SAMPLES_PER_SECOND = 1000;
+
+  /**
+   * Defines an interface to enable listening to samples.
+   */
+  public interface Listener {
+
+    /**
+     * Called for every sample taken.
+     */
+    void onSample(int positionMillis, int durationMillis);
+
+    /**
+     * Called when the position stops advancing while playing, and when it advances again.
+     */
+    void onStallChanged(boolean stalled);
+
+  }
+
+  private final int samplesPerSecond;
+  private final Handler handler;
+
+  // The ring buffer of samples, with the newest one at head - 1.
+  private final long[] sampleTimes;
+  private final int[] positions;
+  private final int[] durations;
+  private int head;
+  private int size;
+
+  private YouTubePlayer player;
+  private Listener listener;
+  private boolean started;
+  private boolean running;
+  // The deadline of sample n of the current run is at runStartMillis + n * 1000 / samplesPerSecond,
+  // which keeps the rate exact when 1000 is not a multiple of it.
+  private long runStartMillis;
+  private long deadlineIndex;
+
+  // Whether the last sample was taken in the current run, and can be compared against.
+  private boolean continuing;
+  private boolean stalled;
+  private long positionChangeTime;
+  private int stalls;
+  private long watchedMillis;
+
+  private int samples;
+  private long sampleNanos;
+
+  /**
+   * @param samplesPerSecond The sampling rate while playing, from 1 to 1000.
+   * @param capacity The number of most recent samples kept, at least 1.
+   * @throws IllegalArgumentException If the sampling rate is out of range, or the capacity is not
+   *     positive.
+   */
+  public PositionSampler(int samplesPerSecond, int capacity) {
+    if (samplesPerSecond <= 0 || samplesPerSecond > MAX_SAMPLES_PER_SECOND) {
+      throw new IllegalArgumentException("samplesPerSecond must be from 1 to "
+          + MAX_SAMPLES_PER_SECOND + ", was " + samplesPerSecond);
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+    }
+    this.samplesPerSecond = samplesPerSecond;
+    this.sampleTimes = new long[capacity];
+    this.positions = new int[capacity];
+    this.durations = new int[capacity];
+    this.handler = new Handler() {
+      @Override
+      public void handleMessage(Message msg) {
+        onDeadline();
+      }
+    };
+  }
+
+  /**
+   * Sets the player to sample, or null to stop sampling for good.
+   */
+  public void setPlayer(YouTubePlayer player) {
+    this.player = player;
+    update();
+  }
+
+  /**
+   * Sets the consumer of the samples, or null if there is none, which pauses sampling.
+   */
+  public void setListener(Listener listener) {
+    this.listener = listener;
+    update();
+  }
+
+  /**
+   * Starts sampling, which should be called when the player starts playing.
+   */
+  public void start() {
+    started = true;
+    update();
+  }
+
+  /**
+   * Stops sampling completely, which should be called when the player pauses, stops, ends or fails.
+   * The samples taken so far are kept.
+   */
+  public void stop() {
+    started = false;
+    update();
+  }
+
+  /** Returns the number of samples in the ring buffer. */
+  public int getSampleCount() {
+    return size;
+  }
+
+  /**
+   * Returns the position of a sample.
+   *
+   * @param age The age of the sample, 0 being the newest and getSampleCount() - 1 the oldest.
+   */
+  public int getPositionMillis(int age) {
+    return positions[indexOf(age)];
+  }
+
+  /** Returns the duration of the video at a sample. */
+  public int getDurationMillis(int age) {
+    return durations[indexOf(age)];
+  }
+
+  /** Returns the uptime at which a sample was taken. */
+  public long getSampleTime(int age) {
+    return sampleTimes[indexOf(age)];
+  }
+
+  /** Returns the number of times the position stopped advancing while playing. */
+  public int getStallCount() {
+    return stalls;
+  }
+
+  /** Returns the time the position has advanced by playing, leaving out seeks. */
+  public long getWatchedMillis() {
+    return watchedMillis;
+  }
+
+  /** Returns the number of samples ever taken. */
+  public int getTotalSampleCount() {
+    return samples;
+  }
+
+  /** Returns the average time taken by a sample on the main thread, in nanoseconds. */
+  public long getAverageSampleNanos() {
+    return samples == 0 ? 0 : sampleNanos / samples;
+  }
+
+  private int indexOf(int age) {
+    if (age < 0 || age >= size) {
+      throw new IndexOutOfBoundsException("age " + age + " of " + size + " samples");
+    }
+    int index = head - 1 - age;
+    return index < 0 ? index + positions.length : index;
+  }
+
+  private void update() {
+    boolean shouldRun = started && player != null && listener != null;
+    if (shouldRun == running) {
+      return;
+    }
+    running = shouldRun;
+    if (running) {
+      // The first sample after a pause carries no information about stalls or watching.
+      continuing = false;
+      stalled = false;
+      runStartMillis = SystemClock.uptimeMillis();
+      deadlineIndex = 0;
+      handler.sendEmptyMessageAtTime(0, runStartMillis);
+    } else {
+      handler.removeMessages(0);
+      if (stalled) {
+        stalled = false;
+        if (listener != null) {
+          listener.onStallChanged(false);
+        }
+      }
+    }
+  }
+
+  private void onDeadline() {
+    if (!running) {
+      return;
+    }
+    long startNanos = System.nanoTime();
+    long now = SystemClock.uptimeMillis();
+    sample(now, player.getCurrentTimeMillis(), player.getDurationMillis());
+    sampleNanos += System.nanoTime() - startNanos;
+    samples++;
+
+    // Schedule against absolute deadlines so the rate does not drift, skipping any missed ones.
+    deadlineIndex++;
+    if (getDeadlineMillis(deadlineIndex) <= now) {
+      deadlineIndex = (now - runStartMillis) * samplesPerSecond / 1000;
+      while (getDeadlineMillis(deadlineIndex) <= now) {
+        deadlineIndex++;
+      }
+    }
+    if (running) {
+      handler.sendEmptyMessageAtTime(0, getDeadlineMillis(deadlineIndex));
+    }
+  }
+
+  private long getDeadlineMillis(long index) {
+    return runStartMillis + index * 1000 / samplesPerSecond;
+  }
+
+  private void sample(long time, int positionMillis, int durationMillis) {
+    if (continuing) {
+      int previous = head == 0 ? positions.length - 1 : head - 1;
+      int advance = positionMillis - positions[previous];
+      long elapsed = time - sampleTimes[previous];
+      if (advance != 0) {
+        positionChangeTime = time;
+        if (advance > 0 && advance <= elapsed + SEEK_SLACK_MILLIS) {
+          watchedMillis += advance;
+        }
+      }
+    } else {
+      positionChangeTime = time;
+      continuing = true;
+    }
+
+    sampleTimes[head] = time;
+    positions[head] = positionMillis;
+    durations[head] = durationMillis;
+    head = (head + 1) % positions.length;
+    size = Math.min(size + 1, positions.length);
+
+    listener.onSample(positionMillis, durationMillis);
+    if (!running) {
+      // The listener has been removed, or sampling stopped, from within the callback.
+      return;
+    }
+    boolean nowStalled = time - positionChangeTime >= STALL_THRESHOLD_MILLIS;
+    if (nowStalled != stalled) {
+      stalled = nowStalled;
+      if (stalled) {
+        stalls++;
+      }
+      listener.onStallChanged(stalled);
+    }
+  }
+
+}
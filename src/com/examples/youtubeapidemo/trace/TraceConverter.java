@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.trace;
+
+import com.examples.youtubeapidemo.util.VideoId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts a trace recorded by the {@link TraceRecorder} into the JSON trace event format read by
+ * chrome://tracing and the Perfetto UI.
+ * <p>
+ * This is a plain Java tool, to be run on a workstation against a trace pulled off a device, e.g.
+ * <pre>
+ * adb pull /data/data/com.examples.youtubeapidemo/files/trace.bin
+ * java -cp bin/classes com.examples.youtubeapidemo.trace.TraceConverter trace.bin trace.json
+ * </pre>
+ * The trace of the previous process, e.g. one which crashed, is kept in trace.bin.1. Without an
+ * output file the JSON is written to the standard output.
+ */
+public final class TraceConverter {
+
+  private TraceConverter() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("Usage: TraceConverter <trace.bin> [<trace.json>]");
+      System.exit(1);
+    }
+    InputStream in = new FileInputStream(args[0]);
+    OutputStream out = args.length == 2 ? new FileOutputStream(args[1]) : System.out;
+    try {
+      convert(in, out);
+    } finally {
+      in.close();
+      out.close();
+    }
+  }
+
+  /**
+   * Reads a binary trace and writes it out as JSON, oldest event first. Times are given in
+   * microseconds since the first event.
+   *
+   * @throws IOException If the trace cannot be read or written, or is not a trace.
+   */
+  public static void convert(InputStream in, OutputStream out) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+    if (data.readInt() != TraceRecorder.MAGIC) {
+      throw new IOException("Not a trace");
+    }
+    short version = data.readShort();
+    if (version != TraceRecorder.VERSION) {
+      throw new IOException("Unsupported trace version " + version);
+    }
+    int recordSize = data.readShort();
+    int capacity = data.readInt();
+    long recordCount = data.readLong();
+    if (recordSize < TraceRecorder.RECORD_SIZE || capacity <= 0 || recordCount < 0) {
+      throw new IOException("Corrupt trace header");
+    }
+
+    // Once the ring buffer has wrapped around, the oldest record is in the slot written next.
+    int storedCount = (int) Math.min(recordCount, capacity);
+    int oldestSlot = recordCount > capacity ? (int) (recordCount % capacity) : 0;
+    byte[] records = new byte[storedCount * recordSize];
+    data.readFully(records);
+    ByteBuffer buffer = ByteBuffer.wrap(records);
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+    writer.write("{\"traceEvents\":[");
+    long firstNanos = 0;
+    for (int i = 0; i < storedCount; i++) {
+      // Fields added by later versions of the format follow these, and are skipped.
+      int offset = ((oldestSlot + i) % storedCount) * recordSize;
+      long nanos = buffer.getLong(offset);
+      long packedVideoId = buffer.getLong(offset + 8);
+      int value = buffer.getInt(offset + 16);
+      int type = buffer.getShort(offset + 20);
+      int flags = buffer.getShort(offset + 22);
+      if (i == 0) {
+        firstNanos = nanos;
+      }
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write('\n');
+      writeEvent(writer, nanos - firstNanos, type, value,
+          (flags & TraceRecorder.FLAG_HAS_VIDEO_ID) != 0 ? VideoId.unpack(packedVideoId) : null);
+    }
+    writer.write("\n],\"otherData\":{\"overwrittenEvents\":\"" + (recordCount - storedCount)
+        + "\"}}\n");
+    writer.flush();
+  }
+
+  private static void writeEvent(Writer writer, long nanos, int type, int value, String videoId)
+      throws IOException {
+    String name = TraceEvent.getName(type);
+    String category = TraceEvent.getCategory(type);
+    char phase = TraceEvent.getPhase(type);
+    writer.write("{\"name\":\"" + (name != null ? name : "unknown" + type) + "\"");
+    writer.write(",\"cat\":\"" + (category != null ? category : "unknown") + "\"");
+    writer.write(",\"ph\":\"" + phase + "\"");
+    writer.write(",\"ts\":" + (nanos / 1000) + "." + String.format("%03d", nanos % 1000));
+    writer.write(",\"pid\":1,\"tid\":1");
+    if (phase == TraceEvent.PHASE_INSTANT) {
+      writer.write(",\"s\":\"p\"");
+    } else {
+      // Spans may overlap, so they are async events, paired up by their id.
+      writer.write(",\"id\":" + TraceEvent.getSpanId(type, value));
+    }
+    writer.write(",\"args\":{\"value\":" + value);
+    if (videoId != null) {
+      writer.write(",\"videoId\":\"" + videoId + "\"");
+    }
+    writer.write("}}");
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.trace;
+
+/**
+ * The types of events recorded by the {@link TraceRecorder}.
+ * <p>
+ * Events are either instants, or the beginning or end of a span. Flips of different views may
+ * overlap, so their two ends are matched by their value, which identifies the view. There is
+ * only ever one span of the other kinds at a time.
+ */
+public final class TraceEvent {
+
+  // Player state changes. The value is the error reason's ordinal for errors.
+  public static final int PLAYER_CUE = 1;
+  public static final int PLAYER_LOADING = 2;
+  public static final int PLAYER_LOADED = 3;
+  public static final int PLAYER_AD_STARTED = 4;
+  public static final int PLAYER_VIDEO_STARTED = 5;
+  public static final int PLAYER_VIDEO_ENDED = 6;
+  public static final int PLAYER_ERROR = 7;
+
+  // Playback events. The value is the position, or the target of a seek.
+  public static final int PLAYBACK_PLAYING = 8;
+  public static final int PLAYBACK_PAUSED = 9;
+  public static final int PLAYBACK_STOPPED = 10;
+  public static final int PLAYBACK_SEEK = 11;
+  public static final int PLAYBACK_BUFFERING_BEGIN = 12;
+  public static final int PLAYBACK_BUFFERING_END = 13;
+
+  // UI events. The value of a flip identifies the flipping view, that of a bind the position of
+  // the row, and that of a layout the kind of layout.
+  public static final int FLIP_BEGIN = 14;
+  public static final int FLIP_END = 15;
+  public static final int ADAPTER_BIND = 16;
+  public static final int LAYOUT_BEGIN = 17;
+  public static final int LAYOUT_END = 18;
+
+  static final char PHASE_INSTANT = 'i';
+  static final char PHASE_BEGIN = 'b';
+  static final char PHASE_END = 'e';
+
+  private static final String[] NAMES = {
+      null,
+      "cue", "loading", "loaded", "adStarted", "videoStarted", "videoEnded", "error",
+      "playing", "paused", "stopped", "seek", "buffering", "buffering",
+      "flip", "flip", "bind", "layout", "layout"};
+
+  private static final String[] CATEGORIES = {
+      null,
+      "player", "player", "player", "player", "player", "player", "player",
+      "playback", "playback", "playback", "playback", "playback", "playback",
+      "ui", "ui", "ui", "ui", "ui"};
+
+  private TraceEvent() {
+  }
+
+  /** Returns the name of an event type, shared by both ends of a span, or null if unknown. */
+  static String getName(int type) {
+    return type > 0 && type < NAMES.length ? NAMES[type] : null;
+  }
+
+  static String getCategory(int type) {
+    return type > 0 && type < CATEGORIES.length ? CATEGORIES[type] : null;
+  }
+
+  /** Returns the id matching the two ends of a span. */
+  static int getSpanId(int type, int value) {
+    return type == FLIP_BEGIN || type == FLIP_END ? value : 0;
+  }
+
+  static char getPhase(int type) {
+    switch (type) {
+      case PLAYBACK_BUFFERING_BEGIN:
+      case FLIP_BEGIN:
+      case LAYOUT_BEGIN:
+        return PHASE_BEGIN;
+      case PLAYBACK_BUFFERING_END:
+      case FLIP_END:
+      case LAYOUT_END:
+        return PHASE_END;
+      default:
+        return PHASE_INSTANT;
+    }
+  }
+
+}
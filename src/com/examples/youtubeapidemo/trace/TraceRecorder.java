@@ -0,0 +1,203 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.trace;
+
+import com.examples.youtubeapidemo.util.VideoId;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A process-wide recorder of {@link TraceEvent}s into a memory-mapped file, to be converted into a
+ * Chrome trace with {@link TraceConverter} after the fact.
+ * <p>
+ * Each event is a fixed-size binary record of its time, type, video and value, written straight
+ * into the mapping, so recording allocates nothing and makes no system call. The file has a fixed
+ * capacity, used as a ring buffer: once it is full, each event overwrites the oldest one, so the
+ * trace always holds the most recent events. Recording does nothing until the recorder has been
+ * started, which the application does once per process, and may be called from any thread.
+ * <p>
+ * The file starts with a header of {@link #HEADER_SIZE} bytes: the magic number, the format
+ * version, the record size, the capacity in records and the number of records ever written, from
+ * which the slot of the oldest one follows. Records follow, each holding the time in nanoseconds,
+ * the packed video id, the value, the type and the flags, all big-endian.
+ */
+public final class TraceRecorder {
+
+  /** The name of the trace file in the directory passed to {@link #start(File)}. */
+  public static final String FILE_NAME = "trace.bin";
+  /**
+   * Appended to the name of a trace file for the trace of the previous process, so that the trace
+   * of a process which crashed survives the restart that usually follows.
+   */
+  public static final String PREVIOUS_TRACE_SUFFIX = ".1";
+  private static final int DEFAULT_CAPACITY_BYTES = 1024 * 1024;
+
+  static final int MAGIC = 0x59545452;
+  static final short VERSION = 2;
+  static final int HEADER_SIZE = 20;
+  static final int RECORD_SIZE = 24;
+  static final int RECORD_COUNT_OFFSET = 12;
+  // Set in the flags of records which have a video id, as every long is a valid packed id.
+  static final int FLAG_HAS_VIDEO_ID = 1;
+
+  private static volatile MappedByteBuffer buffer;
+  private static int capacity;
+  private static long recordCount;
+
+  private TraceRecorder() {
+  }
+
+  /**
+   * Starts recording into the trace file of a directory, keeping any previous trace under the
+   * name with {@link #PREVIOUS_TRACE_SUFFIX}, unless recording has started already.
+   *
+   * @return Whether the recorder is recording.
+   */
+  public static boolean start(File directory) {
+    return start(new File(directory, FILE_NAME), DEFAULT_CAPACITY_BYTES);
+  }
+
+  /**
+   * Starts recording into a file of the given size, unless recording has started already. A trace
+   * already in the file is renamed with {@link #PREVIOUS_TRACE_SUFFIX}, replacing the one kept
+   * before it. The file holds at least one record.
+   *
+   * @return Whether the recorder is recording.
+   */
+  public static synchronized boolean start(File file, int capacityBytes) {
+    if (buffer != null) {
+      return true;
+    }
+    keepPreviousTrace(file);
+    RandomAccessFile randomAccessFile = null;
+    try {
+      randomAccessFile = new RandomAccessFile(file, "rw");
+      randomAccessFile.setLength(0);
+      int records = Math.max(1, (capacityBytes - HEADER_SIZE) / RECORD_SIZE);
+      MappedByteBuffer mapped = randomAccessFile.getChannel()
+          .map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + records * RECORD_SIZE);
+      mapped.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).putInt(records)
+          .putLong(0);
+      capacity = records;
+      recordCount = 0;
+      buffer = mapped;
+      return true;
+    } catch (IOException e) {
+      // Tracing is a debugging aid, so the app carries on without it.
+      return false;
+    } finally {
+      if (randomAccessFile != null) {
+        try {
+          // The mapping stays valid after the file is closed.
+          randomAccessFile.close();
+        } catch (IOException e) {
+          // Nothing to do.
+        }
+      }
+    }
+  }
+
+  /**
+   * Renames a non-empty trace file with {@link #PREVIOUS_TRACE_SUFFIX}. If that fails the trace is
+   * overwritten, as tracing is a debugging aid.
+   */
+  private static void keepPreviousTrace(File file) {
+    if (file.length() > 0) {
+      File previous = new File(file.getPath() + PREVIOUS_TRACE_SUFFIX);
+      previous.delete();
+      file.renameTo(previous);
+    }
+  }
+
+  /**
+   * Writes the trace out to the file, while recording carries on.
+   * <p>
+   * The pages of the mapping are kept by the system after the process dies, so this only matters
+   * if the device itself goes down. It is worth calling when the app leaves the screen, as the
+   * process may not be around much longer.
+   */
+  public static synchronized void flush() {
+    if (buffer != null) {
+      buffer.force();
+    }
+  }
+
+  /**
+   * Stops recording, and writes the trace out to the file.
+   */
+  public static synchronized void stop() {
+    if (buffer != null) {
+      buffer.force();
+      buffer = null;
+    }
+  }
+
+  public static boolean isRecording() {
+    return buffer != null;
+  }
+
+  public static void record(int type, int value) {
+    if (buffer != null) {
+      write(type, 0, false, value);
+    }
+  }
+
+  /**
+   * Records an event about a video. Ids which cannot be {@link VideoId#isPackable(String) packed}
+   * are left out of the record.
+   */
+  public static void record(int type, String videoId, int value) {
+    if (buffer != null) {
+      if (videoId != null && VideoId.isPackable(videoId)) {
+        write(type, VideoId.pack(videoId), true, value);
+      } else {
+        write(type, 0, false, value);
+      }
+    }
+  }
+
+  /**
+   * Records an event about a video, given its packed id.
+   */
+  public static void record(int type, long packedVideoId, int value) {
+    if (buffer != null) {
+      write(type, packedVideoId, true, value);
+    }
+  }
+
+  private static synchronized void write(int type, long packedVideoId, boolean hasVideoId,
+      int value) {
+    MappedByteBuffer buffer = TraceRecorder.buffer;
+    if (buffer == null) {
+      return;
+    }
+    int offset = HEADER_SIZE + (int) (recordCount % capacity) * RECORD_SIZE;
+    buffer.putLong(offset, System.nanoTime());
+    buffer.putLong(offset + 8, packedVideoId);
+    buffer.putInt(offset + 16, value);
+    buffer.putShort(offset + 20, (short) type);
+    buffer.putShort(offset + 22, (short) (hasVideoId ? FLAG_HAS_VIDEO_ID : 0));
+    // Count the record only once it is complete, so a reader never sees half of one.
+    buffer.putLong(RECORD_COUNT_OFFSET, ++recordCount);
+  }
+
+}
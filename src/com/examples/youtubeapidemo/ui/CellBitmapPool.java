@@ -0,0 +1,160 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.ui;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+
+/**
+ * A pool of cell-sized bitmaps for an {@link ImageWallView}.
+ * <p>
+ * Every loaded thumbnail is scaled into a bitmap of exactly one cell's size, so the wall never
+ * holds on to the full-size drawables produced by the thumbnail loader. Thumbnails keep their
+ * aspect ratio, fitted and centered in the cell like an ImageView does by default. Bitmaps of cells
+ * which get replaced are returned to the pool and reused for the next thumbnail, which keeps the
+ * memory used by the wall bounded no matter how long it runs.
+ */
+public final class CellBitmapPool {
+
+  // Thumbnails are opaque, so there is no need to pay for an alpha channel.
+  private static final Bitmap.Config BITMAP_CONFIG = Bitmap.Config.RGB_565;
+  private static final int BYTES_PER_PIXEL = 2;
+
+  private final Resources resources;
+  private final int width;
+  private final int height;
+
+  private final BitmapDrawable[] pool;
+  private int pooledCount;
+
+  private final Canvas canvas;
+  private final Rect sourceBounds;
+
+  private int inUseCount;
+  private int hitCount;
+  private int missCount;
+
+  /**
+   * @param resources The resources used to create the drawables.
+   * @param width The width of a cell.
+   * @param height The height of a cell.
+   * @param maxPooled The maximum number of free bitmaps which are kept for reuse.
+   */
+  public CellBitmapPool(Resources resources, int width, int height, int maxPooled) {
+    this.resources = resources;
+    this.width = width;
+    this.height = height;
+    this.pool = new BitmapDrawable[maxPooled];
+    this.canvas = new Canvas();
+    this.sourceBounds = new Rect();
+  }
+
+  /**
+   * Draws a snapshot of the source drawable, scaled to fit and centered in the cell, into a pooled
+   * bitmap.
+   *
+   * @param source The drawable to copy, or null to get an empty cell.
+   * @return A drawable which should be handed back with {@link #release(Drawable)} once it is no
+   *     longer displayed.
+   */
+  public Drawable obtainCellDrawable(Drawable source) {
+    BitmapDrawable drawable;
+    if (pooledCount > 0) {
+      drawable = pool[--pooledCount];
+      pool[pooledCount] = null;
+      hitCount++;
+    } else {
+      drawable = new BitmapDrawable(resources, Bitmap.createBitmap(width, height, BITMAP_CONFIG));
+      missCount++;
+    }
+    inUseCount++;
+
+    Bitmap bitmap = drawable.getBitmap();
+    bitmap.eraseColor(Color.BLACK);
+    if (source != null) {
+      canvas.setBitmap(bitmap);
+      source.copyBounds(sourceBounds);
+      setFitCenterBounds(source);
+      source.draw(canvas);
+      source.setBounds(sourceBounds);
+    }
+    return drawable;
+  }
+
+  /**
+   * Sets the bounds of a drawable to the largest rectangle of its aspect ratio which fits in the
+   * cell, centered in it. Drawables without an intrinsic size are stretched to the cell.
+   */
+  private void setFitCenterBounds(Drawable source) {
+    int sourceWidth = source.getIntrinsicWidth();
+    int sourceHeight = source.getIntrinsicHeight();
+    if (sourceWidth <= 0 || sourceHeight <= 0) {
+      source.setBounds(0, 0, width, height);
+      return;
+    }
+    int scaledWidth = width;
+    int scaledHeight = height;
+    if ((long) sourceWidth * height > (long) width * sourceHeight) {
+      scaledHeight = (int) ((long) width * sourceHeight / sourceWidth);
+    } else {
+      scaledWidth = (int) ((long) height * sourceWidth / sourceHeight);
+    }
+    int left = (width - scaledWidth) / 2;
+    int top = (height - scaledHeight) / 2;
+    source.setBounds(left, top, left + scaledWidth, top + scaledHeight);
+  }
+
+  /**
+   * Returns a drawable obtained from {@link #obtainCellDrawable(Drawable)} to the pool. Passing
+   * null is allowed and does nothing.
+   */
+  public void release(Drawable drawable) {
+    if (drawable == null) {
+      return;
+    }
+    inUseCount--;
+    if (pooledCount < pool.length) {
+      pool[pooledCount++] = (BitmapDrawable) drawable;
+    }
+  }
+
+  /** Returns the number of drawables which reused a pooled bitmap. */
+  public int getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of drawables for which a new bitmap had to be allocated. */
+  public int getMissCount() {
+    return missCount;
+  }
+
+  /** Returns the size of the bitmaps which are currently handed out. */
+  public long getBytesInUse() {
+    return (long) inUseCount * width * height * BYTES_PER_PIXEL;
+  }
+
+  /** Returns the size of the free bitmaps kept for reuse. */
+  public long getBytesPooled() {
+    return (long) pooledCount * width * height * BYTES_PER_PIXEL;
+  }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.ui;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Message;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * Fires periodic flip ticks against absolute deadlines, so that the time it takes to handle a tick
+ * does not make the period drift.
+ * <p>
+ * From Jelly Bean on, ticks are delivered from a {@link Choreographer} frame callback, so flips
+ * start on a frame boundary. Older platforms fall back to a {@link Handler}.
+ */
+public abstract class FlipScheduler {
+
+  /**
+   * Defines an interface to enable listening to flip ticks.
+   */
+  public interface Listener {
+
+    /**
+     * Called on the main thread once per period while the scheduler is running.
+     */
+    void onFlipTick();
+
+  }
+
+  protected final Listener listener;
+  protected long periodMillis;
+  protected boolean running;
+  // Bumped on every start and stop, so a tick can tell whether its listener restarted or stopped
+  // the scheduler.
+  protected int generation;
+
+  /**
+   * Creates the scheduler best suited to the platform.
+   *
+   * @param listener The listener to which ticks are delivered.
+   * @param periodMillis The initial period between ticks.
+   */
+  public static FlipScheduler create(Listener listener, long periodMillis) {
+    if (Build.VERSION.SDK_INT >= 16) {
+      return new ChoreographerFlipScheduler(listener, periodMillis);
+    } else {
+      return new HandlerFlipScheduler(listener, periodMillis);
+    }
+  }
+
+  protected FlipScheduler(Listener listener, long periodMillis) {
+    this.listener = listener;
+    this.periodMillis = periodMillis;
+  }
+
+  /**
+   * Changes the period, starting with the deadline after the next one.
+   */
+  public void setPeriodMillis(long periodMillis) {
+    this.periodMillis = periodMillis;
+  }
+
+  /**
+   * Starts delivering ticks, the first one after the given delay. Restarting a running scheduler
+   * moves its next deadline.
+   */
+  public void start(long delayMillis) {
+    stop();
+    running = true;
+    generation++;
+    schedule(delayMillis);
+  }
+
+  /**
+   * Stops delivering ticks. No tick is delivered after this returns.
+   */
+  public void stop() {
+    running = false;
+    generation++;
+    cancel();
+  }
+
+  protected abstract void schedule(long delayMillis);
+
+  protected abstract void cancel();
+
+  /**
+   * Delivers ticks from the frame callback of the first frame at or after each deadline.
+   */
+  @TargetApi(16)
+  private static final class ChoreographerFlipScheduler extends FlipScheduler
+      implements Choreographer.FrameCallback {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+    private static final long DEADLINE_TOLERANCE_NANOS = 8 * NANOS_PER_MILLI;
+
+    private final Choreographer choreographer;
+    private long deadlineNanos;
+
+    public ChoreographerFlipScheduler(Listener listener, long periodMillis) {
+      super(listener, periodMillis);
+      choreographer = Choreographer.getInstance();
+    }
+
+    @Override
+    protected void schedule(long delayMillis) {
+      deadlineNanos = System.nanoTime() + delayMillis * NANOS_PER_MILLI;
+      choreographer.postFrameCallbackDelayed(this, delayMillis);
+    }
+
+    @Override
+    protected void cancel() {
+      choreographer.removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      if (!running) {
+        return;
+      }
+      // The frame time is when the frame started, which may be a little before the deadline.
+      if (frameTimeNanos >= deadlineNanos - DEADLINE_TOLERANCE_NANOS) {
+        int tickGeneration = generation;
+        listener.onFlipTick();
+        if (generation != tickGeneration) {
+          return;
+        }
+        deadlineNanos += periodMillis * NANOS_PER_MILLI;
+        if (deadlineNanos <= frameTimeNanos) {
+          // Far behind, for instance after a long stall, so don't try to catch up.
+          deadlineNanos = frameTimeNanos + periodMillis * NANOS_PER_MILLI;
+        }
+      }
+      long delayMillis = (deadlineNanos - frameTimeNanos) / NANOS_PER_MILLI;
+      choreographer.postFrameCallbackDelayed(this, delayMillis);
+    }
+
+  }
+
+  /**
+   * Delivers ticks from messages posted at each deadline.
+   */
+  private static final class HandlerFlipScheduler extends FlipScheduler {
+
+    private final Handler handler;
+    private long deadlineMillis;
+
+    public HandlerFlipScheduler(Listener listener, long periodMillis) {
+      super(listener, periodMillis);
+      handler = new Handler() {
+        @Override
+        public void handleMessage(Message msg) {
+          onDeadline();
+        }
+      };
+    }
+
+    @Override
+    protected void schedule(long delayMillis) {
+      deadlineMillis = SystemClock.uptimeMillis() + delayMillis;
+      handler.sendEmptyMessageAtTime(0, deadlineMillis);
+    }
+
+    @Override
+    protected void cancel() {
+      handler.removeMessages(0);
+    }
+
+    private void onDeadline() {
+      if (!running) {
+        return;
+      }
+      int tickGeneration = generation;
+      listener.onFlipTick();
+      if (generation != tickGeneration) {
+        return;
+      }
+      long now = SystemClock.uptimeMillis();
+      deadlineMillis += periodMillis;
+      if (deadlineMillis <= now) {
+        deadlineMillis = now + periodMillis;
+      }
+      handler.sendEmptyMessageAtTime(0, deadlineMillis);
+    }
+
+  }
+
+}
@@ -16,6 +16,9 @@
 
 package com.examples.youtubeapidemo.ui;
 
+import com.examples.youtubeapidemo.trace.TraceEvent;
+import com.examples.youtubeapidemo.trace.TraceRecorder;
+
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.AnimatorSet;
@@ -29,6 +32,10 @@ import android.widget.ImageView;
 
 /**
  * A view which flips from one ImageView to another view using a 3D flip animation.
+ * <p>
+ * The animations are built once and reused for every flip. With hardware layers enabled, both
+ * faces are rendered into a layer for the length of a flip, so that each frame only transforms the
+ * layers rather than drawing the images again.
  */
 public class FlippingView extends FrameLayout {
 
@@ -36,6 +43,7 @@ public class FlippingView extends FrameLayout {
   private final ImageView flipInView;
   private final AnimatorSet animations;
   private final Listener listener;
+  private boolean useHardwareLayers;
 
   /**
    * Defines an interface to enable listening to flip events.
@@ -80,6 +88,14 @@ public class FlippingView extends FrameLayout {
     animations.addListener(new AnimationListener());
   }
 
+  /**
+   * Sets whether both faces are promoted to hardware layers while flipping. Takes effect from the
+   * next flip.
+   */
+  public void setUseHardwareLayers(boolean useHardwareLayers) {
+    this.useHardwareLayers = useHardwareLayers;
+  }
+
   public void setFlipInDrawable(Drawable drawable) {
     flipInView.setImageDrawable(drawable);
   }
@@ -93,18 +109,33 @@ public class FlippingView extends FrameLayout {
   }
 
   public void flip() {
+    if (useHardwareLayers) {
+      flipOutView.setLayerType(LAYER_TYPE_HARDWARE, null);
+      flipInView.setLayerType(LAYER_TYPE_HARDWARE, null);
+      if (getWindowToken() != null) {
+        // Render the layers now rather than in the first frame of the animation.
+        flipOutView.buildLayer();
+        flipInView.buildLayer();
+      }
+    }
+    TraceRecorder.record(TraceEvent.FLIP_BEGIN, System.identityHashCode(this));
     animations.start();
   }
 
   /**
    * Listens to the end of the flip animation to signal to listeners that the flip is complete
    */
-  public final class AnimationListener extends AnimatorListenerAdapter {
+  private final class AnimationListener extends AnimatorListenerAdapter {
 
     @Override
     public void onAnimationEnd(Animator animation) {
       flipOutView.setRotationY(0);
       flipInView.setRotationY(-90);
+      if (flipOutView.getLayerType() != LAYER_TYPE_NONE) {
+        flipOutView.setLayerType(LAYER_TYPE_NONE, null);
+        flipInView.setLayerType(LAYER_TYPE_NONE, null);
+      }
+      TraceRecorder.record(TraceEvent.FLIP_END, System.identityHashCode(FlippingView.this));
       listener.onFlipped(FlippingView.this);
     }
   }
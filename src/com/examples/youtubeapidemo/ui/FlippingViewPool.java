@@ -0,0 +1,213 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.ui;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+/**
+ * A fixed set of {@link FlippingView}s, so that several cells of a wall can be flipped at once.
+ * <p>
+ * The number of flips allowed to run at the same time adapts to the measured frame time: it grows
+ * while the running flips keep within the frame budget, and shrinks as soon as they don't. The
+ * frames dropped while each flip runs are counted as well.
+ */
+public final class FlippingViewPool implements ViewTreeObserver.OnPreDrawListener {
+
+  // The number of frames over which the frame time is averaged before adjusting the limit.
+  private static final int FRAMES_PER_ADJUSTMENT = 30;
+
+  private final FlippingView[] views;
+  private final boolean[] busy;
+  private final int[] droppedFrames;
+  private int busyCount;
+
+  private final long frameIntervalNanos;
+  private int concurrentFlipLimit;
+
+  private final FrameDurationRecorder frameDurations;
+  private long lastFrameNanos;
+  private long frameNanosSum;
+  private int frameCount;
+
+  private int completedFlips;
+  private int jankyFlips;
+  private long totalDroppedFrames;
+  private int maxDroppedFrames;
+
+  /**
+   * Creates the flipping views and adds them, invisible, to the given parent.
+   *
+   * @param context The context associated with the views.
+   * @param listener A listener which is informed of when any of the views has completed flipping.
+   * @param parent The view group the flipping views are added to.
+   * @param width The width of a flipping view.
+   * @param height The height of a flipping view.
+   * @param size The number of flipping views, which is the most flips that can ever run at once.
+   * @param frameRate The refresh rate of the display, in frames per second.
+   */
+  public FlippingViewPool(Context context, FlippingView.Listener listener, ViewGroup parent,
+      int width, int height, int size, float frameRate) {
+    views = new FlippingView[size];
+    busy = new boolean[size];
+    droppedFrames = new int[size];
+    for (int i = 0; i < size; i++) {
+      views[i] = new FlippingView(context, listener, width, height);
+      views[i].setVisibility(View.INVISIBLE);
+      parent.addView(views[i], width, height);
+    }
+    frameIntervalNanos = (long) (1000000000L / frameRate);
+    concurrentFlipLimit = 1;
+    frameDurations = new FrameDurationRecorder();
+    parent.getViewTreeObserver().addOnPreDrawListener(this);
+  }
+
+  public void setFlipDuration(int flipDuration) {
+    for (FlippingView view : views) {
+      view.setFlipDuration(flipDuration);
+    }
+  }
+
+  /**
+   * Sets whether the flipping views promote their faces to hardware layers while flipping.
+   */
+  public void setUseHardwareLayers(boolean useHardwareLayers) {
+    for (FlippingView view : views) {
+      view.setUseHardwareLayers(useHardwareLayers);
+    }
+  }
+
+  /**
+   * Returns the durations of the frames drawn while any flip was running.
+   */
+  public FrameDurationRecorder getFrameDurations() {
+    return frameDurations;
+  }
+
+  /**
+   * Returns the number of flips which may currently run at the same time.
+   */
+  public int getConcurrentFlipLimit() {
+    return concurrentFlipLimit;
+  }
+
+  /**
+   * Takes an idle view out of the pool.
+   *
+   * @return The index of the view, or -1 if the concurrent flip limit has been reached.
+   */
+  public int obtain() {
+    if (busyCount >= concurrentFlipLimit) {
+      return -1;
+    }
+    for (int i = 0; i < views.length; i++) {
+      if (!busy[i]) {
+        busy[i] = true;
+        droppedFrames[i] = 0;
+        busyCount++;
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public FlippingView get(int index) {
+    return views[index];
+  }
+
+  public int indexOf(FlippingView view) {
+    for (int i = 0; i < views.length; i++) {
+      if (views[i] == view) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns a view to the pool once its flip has completed.
+   */
+  public void release(int index) {
+    if (busy[index]) {
+      busy[index] = false;
+      busyCount--;
+      completedFlips++;
+      if (droppedFrames[index] > 0) {
+        jankyFlips++;
+        totalDroppedFrames += droppedFrames[index];
+        maxDroppedFrames = Math.max(maxDroppedFrames, droppedFrames[index]);
+      }
+    }
+  }
+
+  /** Returns the number of flips which have completed. */
+  public int getCompletedFlipCount() {
+    return completedFlips;
+  }
+
+  /** Returns the number of completed flips during which at least one frame was dropped. */
+  public int getJankyFlipCount() {
+    return jankyFlips;
+  }
+
+  /** Returns the number of frames dropped during all completed flips. */
+  public long getTotalDroppedFrames() {
+    return totalDroppedFrames;
+  }
+
+  /** Returns the most frames dropped during a single flip. */
+  public int getMaxDroppedFrames() {
+    return maxDroppedFrames;
+  }
+
+  @Override
+  public boolean onPreDraw() {
+    long now = System.nanoTime();
+    if (busyCount > 0 && lastFrameNanos != 0) {
+      long frameNanos = now - lastFrameNanos;
+      // A frame which took more than one and a half refresh intervals has dropped some.
+      int dropped = (int) ((frameNanos + frameIntervalNanos / 2) / frameIntervalNanos) - 1;
+      if (dropped > 0) {
+        for (int i = 0; i < views.length; i++) {
+          if (busy[i]) {
+            droppedFrames[i] += dropped;
+          }
+        }
+      }
+      frameDurations.record(frameNanos);
+      frameNanosSum += frameNanos;
+      if (++frameCount == FRAMES_PER_ADJUSTMENT) {
+        long averageFrameNanos = frameNanosSum / frameCount;
+        if (averageFrameNanos > frameIntervalNanos + frameIntervalNanos / 4) {
+          concurrentFlipLimit = Math.max(1, concurrentFlipLimit - 1);
+        } else if (averageFrameNanos < frameIntervalNanos + frameIntervalNanos / 8
+            && busyCount >= concurrentFlipLimit) {
+          // Only raise the limit when it is what holds the flips back.
+          concurrentFlipLimit = Math.min(views.length, concurrentFlipLimit + 1);
+        }
+        frameNanosSum = 0;
+        frameCount = 0;
+      }
+    }
+    // Frames drawn while nothing is flipping say nothing about the cost of a flip.
+    lastFrameNanos = busyCount > 0 ? now : 0;
+    return true;
+  }
+
+}
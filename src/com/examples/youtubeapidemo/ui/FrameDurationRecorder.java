@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.ui;
+
+/**
+ * Records frame durations into a histogram of one millisecond buckets, so that any number of
+ * frames can be recorded without allocating.
+ */
+public final class FrameDurationRecorder {
+
+  private static final long NANOS_PER_MILLI = 1000000;
+  // Frames of this many milliseconds or longer all go into the last bucket.
+  private static final int MAX_TRACKED_MILLIS = 100;
+
+  private final int[] buckets;
+  private int count;
+  private long totalNanos;
+  private long maxNanos;
+
+  public FrameDurationRecorder() {
+    buckets = new int[MAX_TRACKED_MILLIS + 1];
+  }
+
+  public void record(long frameNanos) {
+    int bucket = (int) Math.min(frameNanos / NANOS_PER_MILLI, MAX_TRACKED_MILLIS);
+    buckets[bucket]++;
+    count++;
+    totalNanos += frameNanos;
+    maxNanos = Math.max(maxNanos, frameNanos);
+  }
+
+  public void reset() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = 0;
+    }
+    count = 0;
+    totalNanos = 0;
+    maxNanos = 0;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public float getAverageMillis() {
+    return count == 0 ? 0 : (float) totalNanos / count / NANOS_PER_MILLI;
+  }
+
+  public float getMaxMillis() {
+    return (float) maxNanos / NANOS_PER_MILLI;
+  }
+
+  /**
+   * Returns the duration, rounded up to the next millisecond, which the given percentage of the
+   * recorded frames did not exceed.
+   */
+  public int getPercentileMillis(int percent) {
+    int threshold = (int) Math.ceil(count * percent / 100d);
+    int seen = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      seen += buckets[i];
+      if (seen >= threshold && seen > 0) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+}
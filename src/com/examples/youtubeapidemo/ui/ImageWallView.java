@@ -17,50 +17,95 @@
 package com.examples.youtubeapidemo.ui;
 
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.util.DisplayMetrics;
-import android.util.Pair;
-import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Random;
 
 /**
  * A view which displays a grid of images.
+ * <p>
+ * In {@link RenderMode#VIEWS} mode each cell is an {@link ImageView} child. In
+ * {@link RenderMode#CANVAS} mode the wall has no children and draws every cell itself, so large
+ * walls do not pay for measuring, laying out and drawing hundreds of views, and changing one cell
+ * only invalidates that cell's bounds.
  */
 public class ImageWallView extends ViewGroup {
 
+  /** Returned by {@link #getNextLoadTarget()} when every candidate cell is hidden. */
+  public static final long NO_TARGET = -1;
+
+  /**
+   * How the cells of the wall are rendered.
+   */
+  public enum RenderMode {
+    /** Each cell is rendered by its own ImageView. */
+    VIEWS,
+    /** All cells are drawn directly onto the wall's canvas. */
+    CANVAS,
+  }
+
   private final Context context;
   private final Random random;
+  private final RenderMode renderMode;
 
   private final int imageHeight;
   private final int imageWidth;
   private final int interImagePadding;
 
   private ImageView[] images;
-  private List<Integer> unInitializedImages;
+  private Drawable[] drawables;
+  private boolean[] initialized;
+  private boolean[] hidden;
+  private int numberOfUnInitializedImages;
+
+  // Visible cells which have not been given a drawable yet.
+  private final CellSet unInitializedTargets;
+  // Visible cells outside the first and last columns.
+  private final CellSet visibleInnerTargets;
+
+  private final Rect clipBounds;
 
   private int numberOfColumns;
   private int numberOfRows;
+  private int columnCapacity;
+  private int rowCapacity;
 
   public ImageWallView(Context context, int imageWidth, int imageHeight, int interImagePadding) {
+    this(context, imageWidth, imageHeight, interImagePadding, RenderMode.VIEWS);
+  }
+
+  public ImageWallView(Context context, int imageWidth, int imageHeight, int interImagePadding,
+      RenderMode renderMode) {
     super(context);
     this.context = context;
+    this.renderMode = renderMode;
     random = new Random();
 
     this.imageWidth = imageWidth;
     this.imageHeight = imageHeight;
     this.interImagePadding = interImagePadding;
     this.images = new ImageView[0];
-    this.unInitializedImages = new ArrayList<Integer>();
+    this.drawables = new Drawable[0];
+    this.initialized = new boolean[0];
+    this.hidden = new boolean[0];
+    this.unInitializedTargets = new CellSet();
+    this.visibleInnerTargets = new CellSet();
+    this.clipBounds = new Rect();
+
+    setWillNotDraw(renderMode != RenderMode.CANVAS);
   }
 
   @Override
   protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+    int oldNumberOfColumns = numberOfColumns;
+    int oldNumberOfRows = numberOfRows;
+
     // create enough columns to fill view's width, plus an extra column at either side to allow
     // images to have diagonal offset across the screen.
     numberOfColumns = width / (imageWidth + interImagePadding) + 2;
@@ -73,25 +118,81 @@ public class ImageWallView extends ViewGroup {
           + " rows and " + numberOfColumns + " columns. Both values must be greater than zero.");
     }
 
-    if (images.length < (numberOfColumns * numberOfRows)) {
-      images = Arrays.copyOf(images, numberOfColumns * numberOfRows);
-    }
+    ensureCapacity(numberOfColumns, numberOfRows);
+    unInitializedTargets.reset(drawables.length);
+    visibleInnerTargets.reset(drawables.length);
+    numberOfUnInitializedImages = 0;
 
-    removeAllViews();
+    // Only the cells which fall outside of the new grid are detached, and only the cells which were
+    // outside of the old grid are attached. Detached cells keep their images, so they reappear if
+    // the wall grows again.
+    if (renderMode == RenderMode.VIEWS) {
+      for (int col = 0; col < oldNumberOfColumns; col++) {
+        for (int row = 0; row < oldNumberOfRows; row++) {
+          if (col >= numberOfColumns || row >= numberOfRows) {
+            removeViewInLayout(images[getElementIdx(col, row)]);
+          }
+        }
+      }
+    }
     for (int col = 0; col < numberOfColumns; col++) {
       for (int row = 0; row < numberOfRows; row++) {
         int elementIdx = getElementIdx(col, row);
-        if (images[elementIdx] == null) {
-          ImageView thumbnail = new ImageView(context);
-          thumbnail.setLayoutParams(new LayoutParams(imageWidth, imageHeight));
-          images[elementIdx] = thumbnail;
-          unInitializedImages.add(elementIdx);
+        if (!initialized[elementIdx]) {
+          numberOfUnInitializedImages++;
+        }
+        updateTargets(elementIdx);
+        boolean isNewCell = col >= oldNumberOfColumns || row >= oldNumberOfRows;
+        if (renderMode == RenderMode.VIEWS && isNewCell) {
+          if (images[elementIdx] == null) {
+            ImageView thumbnail = new ImageView(context);
+            thumbnail.setLayoutParams(new LayoutParams(imageWidth, imageHeight));
+            images[elementIdx] = thumbnail;
+          }
+          addViewInLayout(images[elementIdx], -1, images[elementIdx].getLayoutParams(), true);
         }
-        addView(images[elementIdx]);
       }
     }
   }
 
+  /**
+   * Grows the cell arrays so they can hold a grid of the given size. Cells are indexed with a fixed
+   * row stride, which is only changed here, so a cell keeps its image when the number of rows on
+   * screen changes.
+   */
+  private void ensureCapacity(int columns, int rows) {
+    if (columns <= columnCapacity && rows <= rowCapacity) {
+      return;
+    }
+    int newColumnCapacity = Math.max(columns, columnCapacity);
+    int newRowCapacity = Math.max(rows, rowCapacity);
+    int size = newColumnCapacity * newRowCapacity;
+
+    ImageView[] newImages = new ImageView[renderMode == RenderMode.VIEWS ? size : 0];
+    Drawable[] newDrawables = new Drawable[size];
+    boolean[] newInitialized = new boolean[size];
+    boolean[] newHidden = new boolean[size];
+    for (int col = 0; col < columnCapacity; col++) {
+      for (int row = 0; row < rowCapacity; row++) {
+        int oldIdx = getElementIdx(col, row);
+        int newIdx = (col * newRowCapacity) + row;
+        if (renderMode == RenderMode.VIEWS) {
+          newImages[newIdx] = images[oldIdx];
+        }
+        newDrawables[newIdx] = drawables[oldIdx];
+        newInitialized[newIdx] = initialized[oldIdx];
+        newHidden[newIdx] = hidden[oldIdx];
+      }
+    }
+
+    images = newImages;
+    drawables = newDrawables;
+    initialized = newInitialized;
+    hidden = newHidden;
+    columnCapacity = newColumnCapacity;
+    rowCapacity = newRowCapacity;
+  }
+
   @Override
   protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
     DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
@@ -102,65 +203,198 @@ public class ImageWallView extends ViewGroup {
 
   @Override
   protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+    if (renderMode != RenderMode.VIEWS) {
+      return;
+    }
+    for (int col = 0; col < numberOfColumns; col++) {
+      for (int row = 0; row < numberOfRows; row++) {
+        int x = getXPosition(col, row);
+        int y = getYPosition(col, row);
+        images[getElementIdx(col, row)].layout(x, y, x + imageWidth, y + imageHeight);
+      }
+    }
+  }
+
+  @Override
+  protected void onDraw(Canvas canvas) {
+    if (renderMode != RenderMode.CANVAS || !canvas.getClipBounds(clipBounds)) {
+      return;
+    }
     for (int col = 0; col < numberOfColumns; col++) {
       for (int row = 0; row < numberOfRows; row++) {
-        int x = (col - 1) * (imageWidth + interImagePadding) + (row * (imageWidth / numberOfRows));
-        int y = row * (imageHeight + interImagePadding);
-        images[col * numberOfRows + row].layout(x, y, x + imageWidth, y + imageHeight);
+        int elementIdx = getElementIdx(col, row);
+        Drawable drawable = drawables[elementIdx];
+        if (drawable == null || hidden[elementIdx]) {
+          continue;
+        }
+        int x = getXPosition(col, row);
+        int y = getYPosition(col, row);
+        if (clipBounds.intersects(x, y, x + imageWidth, y + imageHeight)) {
+          drawable.setBounds(x, y, x + imageWidth, y + imageHeight);
+          drawable.draw(canvas);
+        }
       }
     }
   }
 
   public int getXPosition(int col, int row) {
-    return images[getElementIdx(col, row)].getLeft();
+    return (col - 1) * (imageWidth + interImagePadding) + (row * (imageWidth / numberOfRows));
   }
 
   public int getYPosition(int col, int row) {
-    return images[getElementIdx(col, row)].getTop();
+    return row * (imageHeight + interImagePadding);
   }
 
   private int getElementIdx(int col, int row) {
-    return (col * numberOfRows) + row;
+    return (col * rowCapacity) + row;
   }
 
   public void hideImage(int col, int row) {
-    images[getElementIdx(col, row)].setVisibility(View.INVISIBLE);
+    int elementIdx = getElementIdx(col, row);
+    hidden[elementIdx] = true;
+    if (renderMode == RenderMode.VIEWS) {
+      images[elementIdx].setVisibility(INVISIBLE);
+    } else {
+      invalidateCell(col, row);
+    }
+    updateTargets(elementIdx);
   }
 
   public void showImage(int col, int row) {
-    images[getElementIdx(col, row)].setVisibility(View.VISIBLE);
+    int elementIdx = getElementIdx(col, row);
+    hidden[elementIdx] = false;
+    if (renderMode == RenderMode.VIEWS) {
+      images[elementIdx].setVisibility(VISIBLE);
+    } else {
+      invalidateCell(col, row);
+    }
+    updateTargets(elementIdx);
+  }
+
+  public boolean isImageHidden(int col, int row) {
+    return hidden[getElementIdx(col, row)];
   }
 
   public void setImageDrawable(int col, int row, Drawable drawable) {
     int elementIdx = getElementIdx(col, row);
-    // manually boxing elementIdx to avoid calling List.remove(int position) method overload
-    unInitializedImages.remove(new Integer(elementIdx));
-    images[elementIdx].setImageDrawable(drawable);
+    if (!initialized[elementIdx]) {
+      initialized[elementIdx] = true;
+      numberOfUnInitializedImages--;
+      updateTargets(elementIdx);
+    }
+    drawables[elementIdx] = drawable;
+    if (renderMode == RenderMode.VIEWS) {
+      images[elementIdx].setImageDrawable(drawable);
+    } else {
+      invalidateCell(col, row);
+    }
   }
 
   public Drawable getImageDrawable(int col, int row) {
-    int elementIdx = getElementIdx(col, row);
-    return images[elementIdx].getDrawable();
+    return drawables[getElementIdx(col, row)];
   }
 
-  public Pair<Integer, Integer> getNextLoadTarget() {
-    int nextElement;
-    do {
-      if (unInitializedImages.isEmpty()) {
-        // Don't choose the first or last columns (since they are partly hidden)
-        nextElement = random.nextInt((numberOfColumns - 2) * numberOfRows) + numberOfRows;
-      } else {
-        nextElement = unInitializedImages.get(random.nextInt(unInitializedImages.size()));
-      }
-    } while (images[nextElement].getVisibility() != View.VISIBLE);
+  private void invalidateCell(int col, int row) {
+    int x = getXPosition(col, row);
+    int y = getYPosition(col, row);
+    invalidate(x, y, x + imageWidth, y + imageHeight);
+  }
+
+  /**
+   * Picks a random visible cell to load a new image into, preferring cells which have not been
+   * loaded yet. Runs in constant time and does not allocate.
+   *
+   * @return The column and row of the cell packed into a long (decode them with
+   *     {@link #getTargetColumn(long)} and {@link #getTargetRow(long)}), or {@link #NO_TARGET} if
+   *     every candidate cell is currently hidden.
+   */
+  public long getNextLoadTarget() {
+    CellSet targets = unInitializedTargets.isEmpty() ? visibleInnerTargets : unInitializedTargets;
+    if (targets.isEmpty()) {
+      return NO_TARGET;
+    }
+    int nextElement = targets.get(random.nextInt(targets.size()));
+    int col = nextElement / rowCapacity;
+    int row = nextElement % rowCapacity;
+    return ((long) col << 32) | row;
+  }
 
-    int col = nextElement / numberOfRows;
-    int row = nextElement % numberOfRows;
-    return new Pair<Integer, Integer>(col, row);
+  public static int getTargetColumn(long target) {
+    return (int) (target >>> 32);
+  }
+
+  public static int getTargetRow(long target) {
+    return (int) target;
   }
 
   public boolean allImagesLoaded() {
-    return unInitializedImages.isEmpty();
+    return numberOfUnInitializedImages == 0;
+  }
+
+  private void updateTargets(int elementIdx) {
+    if (!hidden[elementIdx] && !initialized[elementIdx]) {
+      unInitializedTargets.add(elementIdx);
+    } else {
+      unInitializedTargets.remove(elementIdx);
+    }
+    // Don't choose the first or last columns (since they are partly hidden)
+    int col = elementIdx / rowCapacity;
+    if (!hidden[elementIdx] && col > 0 && col < numberOfColumns - 1) {
+      visibleInnerTargets.add(elementIdx);
+    } else {
+      visibleInnerTargets.remove(elementIdx);
+    }
+  }
+
+  /**
+   * A set of element indices supporting constant time insertion, removal and random access. Removal
+   * swaps the last element into the freed slot, so the order of the elements is not preserved.
+   */
+  private static final class CellSet {
+
+    private int[] elements = new int[0];
+    // The position of each element in elements, or -1 if it is not in the set.
+    private int[] positions = new int[0];
+    private int size;
+
+    public void reset(int capacity) {
+      if (elements.length < capacity) {
+        elements = new int[capacity];
+        positions = new int[capacity];
+      }
+      Arrays.fill(positions, -1);
+      size = 0;
+    }
+
+    public void add(int element) {
+      if (positions[element] < 0) {
+        positions[element] = size;
+        elements[size++] = element;
+      }
+    }
+
+    public void remove(int element) {
+      int position = positions[element];
+      if (position >= 0) {
+        int last = elements[--size];
+        elements[position] = last;
+        positions[last] = position;
+        positions[element] = -1;
+      }
+    }
+
+    public int get(int position) {
+      return elements[position];
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
   }
 
 }
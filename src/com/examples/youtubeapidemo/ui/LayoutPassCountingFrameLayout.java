@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.ui;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.FrameLayout;
+
+/**
+ * A FrameLayout which counts the measure and layout passes it goes through, and how long they take,
+ * so that the cost of changing a layout can be read off after the change.
+ */
+public class LayoutPassCountingFrameLayout extends FrameLayout {
+
+  private int measurePasses;
+  private long measureNanos;
+  private int layoutPasses;
+  private long layoutNanos;
+
+  public LayoutPassCountingFrameLayout(Context context) {
+    super(context);
+  }
+
+  public LayoutPassCountingFrameLayout(Context context, AttributeSet attrs) {
+    super(context, attrs);
+  }
+
+  @Override
+  protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    long start = System.nanoTime();
+    super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    measureNanos += System.nanoTime() - start;
+    measurePasses++;
+  }
+
+  @Override
+  protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+    long start = System.nanoTime();
+    super.onLayout(changed, left, top, right, bottom);
+    layoutNanos += System.nanoTime() - start;
+    layoutPasses++;
+  }
+
+  /** Starts counting from zero. */
+  public void resetPassCounts() {
+    measurePasses = 0;
+    measureNanos = 0;
+    layoutPasses = 0;
+    layoutNanos = 0;
+  }
+
+  public int getMeasurePassCount() {
+    return measurePasses;
+  }
+
+  /** Returns the time spent measuring this view and its descendants, in nanoseconds. */
+  public long getMeasureNanos() {
+    return measureNanos;
+  }
+
+  public int getLayoutPassCount() {
+    return layoutPasses;
+  }
+
+  /** Returns the time spent laying out this view and its descendants, in nanoseconds. */
+  public long getLayoutNanos() {
+    return layoutNanos;
+  }
+
+}
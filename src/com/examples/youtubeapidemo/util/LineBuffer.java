@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+/**
+ * A reusable buffer for building lines of text without allocating, once it has grown to the length
+ * of the longest line. The contents can be handed to
+ * {@link android.widget.TextView#setText(char[], int, int)} directly, which avoids creating a
+ * string for every update.
+ */
+public final class LineBuffer {
+
+  private char[] chars;
+  private int length;
+
+  /**
+   * @param capacity The initial capacity, which grows as needed.
+   */
+  public LineBuffer(int capacity) {
+    chars = new char[capacity];
+  }
+
+  public LineBuffer clear() {
+    length = 0;
+    return this;
+  }
+
+  public LineBuffer append(char c) {
+    ensureCapacity(length + 1);
+    chars[length++] = c;
+    return this;
+  }
+
+  public LineBuffer append(String s) {
+    int count = s.length();
+    ensureCapacity(length + count);
+    s.getChars(0, count, chars, length);
+    length += count;
+    return this;
+  }
+
+  public LineBuffer append(LineBuffer line) {
+    ensureCapacity(length + line.length);
+    System.arraycopy(line.chars, 0, chars, length, line.length);
+    length += line.length;
+    return this;
+  }
+
+  /**
+   * Appends a non-negative number in decimal, padded with zeros to at least the given width.
+   */
+  public LineBuffer append(int value, int minWidth) {
+    int digits = 1;
+    for (int rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    int width = Math.max(digits, minWidth);
+    ensureCapacity(length + width);
+    for (int i = length + width - 1; i >= length; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    length += width;
+    return this;
+  }
+
+  /**
+   * Appends a time as <code>mm:ss</code>, or as <code>h:mm:ss</code> from an hour on.
+   */
+  public LineBuffer appendTime(int millis) {
+    int seconds = Math.max(0, millis) / 1000;
+    int minutes = seconds / 60;
+    int hours = minutes / 60;
+    if (hours != 0) {
+      append(hours, 1).append(':');
+    }
+    return append(minutes % 60, 2).append(':').append(seconds % 60, 2);
+  }
+
+  /** Returns the buffer holding the line, which is only valid up to {@link #length()}. */
+  public char[] getChars() {
+    return chars;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public String toString() {
+    return new String(chars, 0, length);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > chars.length) {
+      char[] newChars = new char[Math.max(capacity, chars.length * 2)];
+      System.arraycopy(chars, 0, newChars, 0, length);
+      chars = newChars;
+    }
+  }
+
+}
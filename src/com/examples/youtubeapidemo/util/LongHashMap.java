@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+/**
+ * A map from longs to objects, using open addressing with linear probing over parallel arrays, so
+ * that neither keys nor entries are boxed. Any long, including 0, can be a key. Null values are not
+ * allowed.
+ */
+public final class LongHashMap<V> {
+
+  private static final int MIN_CAPACITY = 8;
+
+  // A key of 0 marks a free slot, so the value of the key 0 itself is kept aside.
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+  private Object zeroValue;
+
+  public LongHashMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize The number of entries which fit without growing the map.
+   */
+  public LongHashMap(int expectedSize) {
+    allocate(LongHashing.capacityFor(expectedSize, MIN_CAPACITY));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  /** Returns the value of the key, or null if there is none. */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    if (key == 0) {
+      return (V) zeroValue;
+    }
+    int slot = LongHashing.slot(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        return (V) values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Associates the value with the key.
+   *
+   * @return The previous value of the key, or null if there was none.
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (value == null) {
+      throw new NullPointerException("value");
+    }
+    if (key == 0) {
+      Object previous = zeroValue;
+      zeroValue = value;
+      if (previous == null) {
+        size++;
+      }
+      return (V) previous;
+    }
+    int slot = LongHashing.slot(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        Object previous = values[slot];
+        values[slot] = value;
+        return (V) previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > LongHashing.maxSize(mask)) {
+      allocate((mask + 1) * 2);
+    }
+    return null;
+  }
+
+  /**
+   * Removes the key.
+   *
+   * @return The value of the key, or null if there was none.
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    if (key == 0) {
+      Object previous = zeroValue;
+      zeroValue = null;
+      if (previous != null) {
+        size--;
+      }
+      return (V) previous;
+    }
+    int slot = LongHashing.slot(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        Object previous = values[slot];
+        removeSlot(slot);
+        size--;
+        return (V) previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  public void clear() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = 0;
+      values[i] = null;
+    }
+    zeroValue = null;
+    size = 0;
+  }
+
+  /**
+   * Frees a slot by moving back any later key of the same run which would no longer be found past
+   * the gap, so that lookups never need tombstones.
+   */
+  private void removeSlot(int gap) {
+    int slot = gap;
+    while (true) {
+      slot = (slot + 1) & mask;
+      long key = keys[slot];
+      if (key == 0) {
+        break;
+      }
+      int home = LongHashing.slot(key, mask);
+      if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+        keys[gap] = key;
+        values[gap] = values[slot];
+        gap = slot;
+      }
+    }
+    keys[gap] = 0;
+    values[gap] = null;
+  }
+
+  private void allocate(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    if (oldKeys == null) {
+      return;
+    }
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != 0) {
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+/**
+ * A set of longs, using open addressing with linear probing, so that elements are never boxed. Any
+ * long, including 0, can be an element.
+ */
+public final class LongHashSet {
+
+  private static final int MIN_CAPACITY = 8;
+
+  // An element of 0 marks a free slot, so whether 0 itself is in the set is kept aside.
+  private long[] elements;
+  private int mask;
+  private int size;
+  private boolean containsZero;
+
+  public LongHashSet() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize The number of elements which fit without growing the set.
+   */
+  public LongHashSet(int expectedSize) {
+    allocate(LongHashing.capacityFor(expectedSize, MIN_CAPACITY));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(long element) {
+    if (element == 0) {
+      return containsZero;
+    }
+    int slot = LongHashing.slot(element, mask);
+    while (elements[slot] != 0) {
+      if (elements[slot] == element) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * @return Whether the element was added, as opposed to being in the set already.
+   */
+  public boolean add(long element) {
+    if (element == 0) {
+      if (containsZero) {
+        return false;
+      }
+      containsZero = true;
+      size++;
+      return true;
+    }
+    int slot = LongHashing.slot(element, mask);
+    while (elements[slot] != 0) {
+      if (elements[slot] == element) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    elements[slot] = element;
+    if (++size > LongHashing.maxSize(mask)) {
+      allocate((mask + 1) * 2);
+    }
+    return true;
+  }
+
+  /**
+   * @return Whether the element was in the set.
+   */
+  public boolean remove(long element) {
+    if (element == 0) {
+      if (!containsZero) {
+        return false;
+      }
+      containsZero = false;
+      size--;
+      return true;
+    }
+    int slot = LongHashing.slot(element, mask);
+    while (elements[slot] != 0) {
+      if (elements[slot] == element) {
+        removeSlot(slot);
+        size--;
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  public void clear() {
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = 0;
+    }
+    containsZero = false;
+    size = 0;
+  }
+
+  /**
+   * Frees a slot by moving back any later element of the same run which would no longer be found
+   * past the gap, so that lookups never need tombstones.
+   */
+  private void removeSlot(int gap) {
+    int slot = gap;
+    while (true) {
+      slot = (slot + 1) & mask;
+      long element = elements[slot];
+      if (element == 0) {
+        break;
+      }
+      int home = LongHashing.slot(element, mask);
+      if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+        elements[gap] = element;
+        gap = slot;
+      }
+    }
+    elements[gap] = 0;
+  }
+
+  private void allocate(int capacity) {
+    long[] oldElements = elements;
+    elements = new long[capacity];
+    mask = capacity - 1;
+    if (oldElements == null) {
+      return;
+    }
+    for (long element : oldElements) {
+      if (element != 0) {
+        int slot = LongHashing.slot(element, mask);
+        while (elements[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        elements[slot] = element;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+/**
+ * The hashing shared by {@link LongHashMap} and {@link LongHashSet}.
+ */
+final class LongHashing {
+
+  private LongHashing() {
+  }
+
+  /** Returns the home slot of a key in a table of mask + 1 slots. */
+  static int slot(long key, int mask) {
+    // Fibonacci hashing spreads packed video ids, whose low bits are sparse, over the table.
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /** Returns the number of keys a table of mask + 1 slots holds before it has to grow. */
+  static int maxSize(int mask) {
+    // Keep the table at most three quarters full, so that runs of occupied slots stay short.
+    return (mask + 1) / 4 * 3;
+  }
+
+  /** Returns the power of two capacity which holds the given number of keys. */
+  static int capacityFor(int expectedSize, int minCapacity) {
+    int capacity = minCapacity;
+    while (maxSize(capacity - 1) < expectedSize) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+}
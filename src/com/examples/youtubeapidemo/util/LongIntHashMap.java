@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+/**
+ * A map from longs to ints, like {@link LongHashMap} but with the values kept in an int array, so
+ * that they are not boxed either. Lookups of missing keys return a default value given by the
+ * caller.
+ */
+public final class LongIntHashMap {
+
+  private static final int MIN_CAPACITY = 8;
+
+  // A key of 0 marks a free slot, so the value of the key 0 itself is kept aside.
+  private long[] keys;
+  private int[] values;
+  private int mask;
+  private int size;
+  private boolean hasZeroKey;
+  private int zeroValue;
+
+  public LongIntHashMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize The number of entries which fit without growing the map.
+   */
+  public LongIntHashMap(int expectedSize) {
+    allocate(LongHashing.capacityFor(expectedSize, MIN_CAPACITY));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean containsKey(long key) {
+    return key == 0 ? hasZeroKey : find(key) >= 0;
+  }
+
+  /** Returns the value of the key, or the default value if there is none. */
+  public int get(long key, int defaultValue) {
+    if (key == 0) {
+      return hasZeroKey ? zeroValue : defaultValue;
+    }
+    int slot = find(key);
+    return slot >= 0 ? values[slot] : defaultValue;
+  }
+
+  /** Associates the value with the key. */
+  public void put(long key, int value) {
+    if (key == 0) {
+      zeroValue = value;
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      return;
+    }
+    int slot = LongHashing.slot(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > LongHashing.maxSize(mask)) {
+      allocate((mask + 1) * 2);
+    }
+  }
+
+  /**
+   * Removes the key.
+   *
+   * @return The value of the key, or the default value if there was none.
+   */
+  public int remove(long key, int defaultValue) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        return defaultValue;
+      }
+      hasZeroKey = false;
+      size--;
+      return zeroValue;
+    }
+    int slot = find(key);
+    if (slot < 0) {
+      return defaultValue;
+    }
+    int previous = values[slot];
+    removeSlot(slot);
+    size--;
+    return previous;
+  }
+
+  public void clear() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = 0;
+    }
+    hasZeroKey = false;
+    size = 0;
+  }
+
+  /** Returns the slot of a key other than 0, or -1 if it is not in the map. */
+  private int find(long key) {
+    int slot = LongHashing.slot(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Frees a slot by moving back any later key of the same run which would no longer be found past
+   * the gap, as in {@link LongHashMap}.
+   */
+  private void removeSlot(int gap) {
+    int slot = gap;
+    while (true) {
+      slot = (slot + 1) & mask;
+      long key = keys[slot];
+      if (key == 0) {
+        break;
+      }
+      int home = LongHashing.slot(key, mask);
+      if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+        keys[gap] = key;
+        values[gap] = values[slot];
+        gap = slot;
+      }
+    }
+    keys[gap] = 0;
+  }
+
+  private void allocate(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+    if (oldKeys == null) {
+      return;
+    }
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != 0) {
+        int slot = LongHashing.slot(key, mask);
+        while (keys[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+}
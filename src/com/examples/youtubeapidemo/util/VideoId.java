@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+/**
+ * Packs YouTube video ids into longs.
+ * <p>
+ * A video id is 11 characters from the URL-safe base64 alphabet. The first 10 characters carry 6
+ * bits each, and the last one only 4, as it is always one of <code>AEIMQUYcgkosw048</code>, so an
+ * id fits exactly into the 64 bits of a long, and every long is the packed form of exactly one id.
+ * Packed ids can be kept in primitive collections such as {@link LongHashMap} and
+ * {@link LongHashSet}, which neither hash strings nor allocate per entry.
+ */
+public final class VideoId {
+
+  /** The length of a video id. */
+  public static final int LENGTH = 11;
+
+  private static final String ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+  private static final byte[] DECODING = new byte[128];
+  static {
+    for (int i = 0; i < DECODING.length; i++) {
+      DECODING[i] = -1;
+    }
+    for (int i = 0; i < ALPHABET.length(); i++) {
+      DECODING[ALPHABET.charAt(i)] = (byte) i;
+    }
+  }
+
+  private VideoId() {
+  }
+
+  /**
+   * Returns whether the string is shaped like a video id, and can therefore be packed. Playlist
+   * ids, for example, cannot.
+   */
+  public static boolean isPackable(String videoId) {
+    if (videoId == null || videoId.length() != LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < LENGTH; i++) {
+      if (decode(videoId.charAt(i)) < 0) {
+        return false;
+      }
+    }
+    // The last character only carries the top 4 of its 6 bits.
+    return (decode(videoId.charAt(LENGTH - 1)) & 3) == 0;
+  }
+
+  /**
+   * Packs a video id into a long.
+   *
+   * @throws IllegalArgumentException If the id is not {@link #isPackable(String) packable}.
+   */
+  public static long pack(String videoId) {
+    if (!isPackable(videoId)) {
+      throw new IllegalArgumentException("Not a video id: " + videoId);
+    }
+    long packed = 0;
+    for (int i = 0; i < LENGTH - 1; i++) {
+      packed = (packed << 6) | decode(videoId.charAt(i));
+    }
+    return (packed << 4) | (decode(videoId.charAt(LENGTH - 1)) >> 2);
+  }
+
+  /**
+   * Returns the video id packed into a long by {@link #pack(String)}.
+   */
+  public static String unpack(long packed) {
+    char[] chars = new char[LENGTH];
+    chars[LENGTH - 1] = ALPHABET.charAt((int) (packed & 0xf) << 2);
+    packed >>>= 4;
+    for (int i = LENGTH - 2; i >= 0; i--) {
+      chars[i] = ALPHABET.charAt((int) (packed & 0x3f));
+      packed >>>= 6;
+    }
+    return new String(chars);
+  }
+
+  private static int decode(char c) {
+    return c < DECODING.length ? DECODING[c] : -1;
+  }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.wall;
+
+import android.graphics.drawable.Drawable;
+
+import com.examples.youtubeapidemo.ui.CellBitmapPool;
+
+/**
+ * Keeps every slot of a {@link ThumbnailSource} busy loading consecutive playlist thumbnails, and
+ * collects the results in a bounded queue of ready thumbnails.
+ * <p>
+ * Each loaded thumbnail is copied into a cell-sized bitmap from a {@link CellBitmapPool} straight
+ * away, since the source reuses its drawable for the next load. No more loads are started than
+ * there is room for in the queue, so a consumer which stops taking thumbnails also stops the
+ * network traffic.
+ */
+public final class ThumbnailPrefetcher implements ThumbnailSource.Listener {
+
+  /**
+   * Informed when thumbnails become available.
+   */
+  public interface Listener {
+
+    /**
+     * Called when a thumbnail has been added to the ready queue.
+     */
+    void onThumbnailReady();
+
+  }
+
+  private final ThumbnailSource source;
+  private final CellBitmapPool bitmapPool;
+  private final Listener listener;
+
+  private final Drawable[] readyThumbnails;
+  private final String[] readyVideoIds;
+  private int readyHead;
+  private int readyCount;
+
+  private final boolean[] slotBusy;
+  private int busyCount;
+
+  private int nextPosition;
+  // The number of videos in the playlist, or 0 while it is still unknown.
+  private int playlistLength;
+  private boolean running;
+
+  /**
+   * @param source The source to load thumbnails from.
+   * @param bitmapPool The pool the ready thumbnails are copied into.
+   * @param capacity The maximum number of thumbnails which are ready or being loaded.
+   * @param listener Informed whenever a thumbnail becomes ready.
+   */
+  public ThumbnailPrefetcher(ThumbnailSource source, CellBitmapPool bitmapPool, int capacity,
+      Listener listener) {
+    this.source = source;
+    this.bitmapPool = bitmapPool;
+    this.listener = listener;
+    readyThumbnails = new Drawable[capacity];
+    readyVideoIds = new String[capacity];
+    slotBusy = new boolean[source.getSlotCount()];
+    source.setListener(this);
+  }
+
+  /**
+   * Starts, or resumes, loading thumbnails.
+   */
+  public void start() {
+    running = true;
+    fill();
+  }
+
+  /**
+   * Stops starting new loads. Loads which are already in flight still complete into the queue.
+   */
+  public void stop() {
+    running = false;
+  }
+
+  public boolean hasReadyThumbnail() {
+    return readyCount > 0;
+  }
+
+  /**
+   * Returns the video id of the thumbnail which {@link #takeThumbnail()} will return next.
+   */
+  public String peekVideoId() {
+    return readyCount > 0 ? readyVideoIds[readyHead] : null;
+  }
+
+  /**
+   * Removes the next thumbnail from the queue. It must be returned to the {@link CellBitmapPool}
+   * once it is no longer displayed.
+   */
+  public Drawable takeThumbnail() {
+    if (readyCount == 0) {
+      return null;
+    }
+    Drawable thumbnail = readyThumbnails[readyHead];
+    readyThumbnails[readyHead] = null;
+    readyVideoIds[readyHead] = null;
+    readyHead = (readyHead + 1) % readyThumbnails.length;
+    readyCount--;
+    fill();
+    return thumbnail;
+  }
+
+  @Override
+  public void onSlotReady(int slot) {
+    if (slotBusy[slot]) {
+      // The slot was released with a load in flight, which will never complete.
+      finishLoad(slot);
+    }
+    fill();
+  }
+
+  @Override
+  public void onThumbnailLoaded(int slot, int position, Drawable thumbnail, String videoId,
+      boolean hasNext) {
+    finishLoad(slot);
+    if (!hasNext) {
+      playlistLength = position + 1;
+      if (nextPosition >= playlistLength) {
+        nextPosition = 0;
+      }
+    }
+    int tail = (readyHead + readyCount) % readyThumbnails.length;
+    readyThumbnails[tail] = bitmapPool.obtainCellDrawable(thumbnail);
+    readyVideoIds[tail] = videoId;
+    readyCount++;
+    fill();
+    listener.onThumbnailReady();
+  }
+
+  @Override
+  public void onThumbnailError(int slot, int position) {
+    finishLoad(slot);
+    if (playlistLength == 0) {
+      // Until the last video has been seen the most likely cause of an error is a position past the
+      // end of the playlist, so start again from the beginning.
+      nextPosition = 0;
+    }
+    fill();
+  }
+
+  private void finishLoad(int slot) {
+    slotBusy[slot] = false;
+    busyCount--;
+  }
+
+  private void fill() {
+    for (int slot = 0; slot < slotBusy.length; slot++) {
+      if (!running || readyCount + busyCount >= readyThumbnails.length) {
+        return;
+      }
+      if (!slotBusy[slot] && source.isSlotReady(slot)) {
+        slotBusy[slot] = true;
+        busyCount++;
+        int position = nextPosition++;
+        if (playlistLength > 0 && nextPosition >= playlistLength) {
+          nextPosition = 0;
+        }
+        source.load(slot, position);
+      }
+    }
+  }
+
+}
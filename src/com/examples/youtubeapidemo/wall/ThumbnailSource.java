@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.wall;
+
+import android.graphics.drawable.Drawable;
+
+/**
+ * A source of playlist thumbnails with a fixed number of slots, each of which can load one
+ * thumbnail at a time. {@link YouTubeThumbnailSource} loads them with YouTubeThumbnailLoaders;
+ * other implementations (such as a fake which adds artificial latency) can be used to exercise a
+ * {@link ThumbnailPrefetcher} without the YouTube service.
+ */
+public interface ThumbnailSource {
+
+  /**
+   * Receives the results of the loads started with {@link ThumbnailSource#load(int, int)}.
+   */
+  interface Listener {
+
+    /**
+     * Called when a slot becomes able to load thumbnails, which may be again after it has been
+     * released. Any load it had in flight when it was released is abandoned, and is never
+     * reported.
+     */
+    void onSlotReady(int slot);
+
+    /**
+     * Called when a slot has loaded a thumbnail.
+     *
+     * @param slot The slot which loaded the thumbnail.
+     * @param position The position in the playlist which was loaded.
+     * @param thumbnail The thumbnail. It is only valid until the slot loads another one.
+     * @param videoId The id of the video at that position.
+     * @param hasNext Whether there are more videos after this position in the playlist.
+     */
+    void onThumbnailLoaded(int slot, int position, Drawable thumbnail, String videoId,
+        boolean hasNext);
+
+    /**
+     * Called when a slot failed to load a thumbnail, for example because the position is past the
+     * end of the playlist.
+     */
+    void onThumbnailError(int slot, int position);
+
+  }
+
+  void setListener(Listener listener);
+
+  int getSlotCount();
+
+  boolean isSlotReady(int slot);
+
+  /**
+   * Starts loading the thumbnail at the given playlist position into a ready, idle slot.
+   */
+  void load(int slot, int position);
+
+}
@@ -0,0 +1,604 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.wall;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The state machine driving the video wall, kept free of Android dependencies so that it can be
+ * exercised and profiled on a plain JVM.
+ * <p>
+ * The wall reports what happened as {@link Event}s, and {@link #handle(Event)} answers with a set
+ * of {@code ACTION_*} flags for the wall to carry out. Transitions are looked up in a table keyed
+ * by state and event, where each entry may be guarded by the number of ready thumbnails, the
+ * number of running flips and the state of the standby player. Up to
+ * {@link #setMaxConcurrentFlips(int)} cells may be flipped at once, but only one of them holds the
+ * video. Every handled event can be recorded along with the flip limit it was handled under, and
+ * {@link #replay(Event[], int[], int)} feeds a recorded trace back into a fresh machine.
+ * <p>
+ * Events which arrive while the wall is paused are held back until it is resumed. They are then
+ * handled one at a time through {@link #handlePendingEvent()}, as each may call for the same
+ * action, e.g. two flips, which a single set of flags could not express.
+ */
+public final class VideoWallStateMachine {
+
+  /**
+   * The state of the wall.
+   */
+  public enum State {
+    UNINITIALIZED,
+    LOADING_THUMBNAILS,
+    VIDEO_FLIPPED_OUT,
+    VIDEO_LOADING,
+    VIDEO_CUED,
+    VIDEO_PLAYING,
+    VIDEO_ENDED,
+    VIDEO_BEING_FLIPPED_OUT,
+  }
+
+  /**
+   * The events the wall reports to the state machine.
+   */
+  public enum Event {
+    /** The thumbnail loaders and the player are ready. */
+    START,
+    /** A thumbnail has been added to the ready queue. */
+    THUMBNAIL_READY,
+    /** The periodic flip timer fired. */
+    FLIP_TIMER,
+    /** A flip of a thumbnail into a random cell has finished. */
+    FLIP_DONE,
+    /** The flip bringing a video in, or flipping an ended one out, has finished. */
+    VIDEO_FLIP_DONE,
+    /** A flip of a thumbnail has finished, and every cell of the wall now has an image. */
+    WALL_FILLED,
+    /** The visible player has cued its video. */
+    VIDEO_LOADED,
+    /** The visible player's video has ended. */
+    VIDEO_ENDED,
+    /** The visible player reported a recoverable error. */
+    VIDEO_ERROR,
+    /** A standby player is available, so videos are cued while another one is playing. */
+    STANDBY_AVAILABLE,
+    /** The standby player has cued its video. */
+    STANDBY_LOADED,
+    /** The standby player reported a recoverable error. */
+    STANDBY_ERROR,
+    /** A player has been disconnected from the service, so the demo must stop. */
+    FATAL_ERROR,
+    PAUSE,
+    RESUME,
+    /**
+     * Raised internally in place of {@link #FLIP_TIMER} when a video has been loading for
+     * {@link VideoWallStateMachine#MAX_LOADING_TICKS} flip periods of a single flip.
+     */
+    CUE_TIMEOUT,
+  }
+
+  /** Start loading thumbnails. */
+  public static final int ACTION_START_THUMBNAILS = 1;
+  /** Return the thumbnail set aside for the visible player's video to the pool. */
+  public static final int ACTION_RELEASE_VIDEO_THUMBNAIL = 1 << 1;
+  /** Return the thumbnail set aside for the standby player's video to the pool. */
+  public static final int ACTION_RELEASE_STANDBY_THUMBNAIL = 1 << 2;
+  /** Show the image under the playing video and hide the player. */
+  public static final int ACTION_HIDE_VIDEO = 1 << 3;
+  /** Swap the cued standby player with the visible one. */
+  public static final int ACTION_PROMOTE_STANDBY = 1 << 4;
+  /** Set aside the next ready thumbnail and cue its video in the visible player. */
+  public static final int ACTION_CUE_VIDEO = 1 << 5;
+  /** Set aside the next ready thumbnail and cue its video in the standby player. */
+  public static final int ACTION_PREPARE_STANDBY = 1 << 6;
+  /** Flip the next ready thumbnail into a random cell. */
+  public static final int ACTION_FLIP_THUMBNAIL = 1 << 7;
+  /** Flip the next ready thumbnail into the cell of the video which has ended. */
+  public static final int ACTION_FLIP_OUT_VIDEO = 1 << 8;
+  /** Flip the thumbnail of the cued video into a random cell. */
+  public static final int ACTION_FLIP_IN_VIDEO = 1 << 9;
+  /** Show the player over the cell which was just flipped, and play it. */
+  public static final int ACTION_PLAY_VIDEO = 1 << 10;
+  /** Resume the video which was playing when the wall was paused. */
+  public static final int ACTION_RESUME_VIDEO = 1 << 11;
+  /** Switch to the normal flip duration and start the periodic flip timer. */
+  public static final int ACTION_START_FLIP_TIMER = 1 << 12;
+  /** Restart the periodic flip timer after a pause. */
+  public static final int ACTION_RESTART_FLIP_TIMER = 1 << 13;
+  /** Stop the demo. */
+  public static final int ACTION_STOP = 1 << 14;
+
+  /** The number of flip periods a video may take to load before it is given up on. */
+  public static final int MAX_LOADING_TICKS = 5;
+
+  private enum Guard {
+    ALWAYS,
+    CAN_FLIP_THUMBNAIL,
+    CAN_FLIP_VIDEO,
+    CAN_FLIP_OUT_VIDEO,
+    SINGLE_PLAYER_READY,
+    STANDBY_CUED,
+    STANDBY_CUED_AND_CAN_FLIP_VIDEO,
+    STANDBY_CUEING,
+    STANDBY_PREPARABLE,
+  }
+
+  private enum StandbyState {
+    IDLE,
+    CUEING,
+    CUED,
+  }
+
+  private static final class Transition {
+
+    final Guard guard;
+    final State nextState;
+    final int actions;
+
+    Transition(Guard guard, State nextState, int actions) {
+      this.guard = guard;
+      this.nextState = nextState;
+      this.actions = actions;
+    }
+
+  }
+
+  private static final Event[] EVENTS = Event.values();
+
+  // Candidate transitions indexed by state and event, in the order their guards are checked.
+  private static final Transition[][][] TRANSITIONS;
+  static {
+    TableBuilder table = new TableBuilder();
+
+    table.add(State.UNINITIALIZED, Event.START, Guard.ALWAYS, State.LOADING_THUMBNAILS,
+        ACTION_START_THUMBNAILS);
+
+    table.add(State.LOADING_THUMBNAILS, Event.THUMBNAIL_READY, Guard.CAN_FLIP_THUMBNAIL,
+        State.LOADING_THUMBNAILS, ACTION_FLIP_THUMBNAIL);
+    table.add(State.LOADING_THUMBNAILS, Event.FLIP_DONE, Guard.CAN_FLIP_THUMBNAIL,
+        State.LOADING_THUMBNAILS, ACTION_FLIP_THUMBNAIL);
+    table.addCueNextVideo(State.LOADING_THUMBNAILS, Event.WALL_FILLED, ACTION_START_FLIP_TIMER);
+
+    table.addCueNextVideo(State.VIDEO_FLIPPED_OUT, Event.THUMBNAIL_READY, 0);
+
+    table.add(State.VIDEO_LOADING, Event.VIDEO_LOADED, Guard.ALWAYS, State.VIDEO_CUED, 0);
+    table.add(State.VIDEO_LOADING, Event.STANDBY_LOADED, Guard.ALWAYS, State.VIDEO_CUED,
+        ACTION_PROMOTE_STANDBY);
+    table.addCueNextVideo(
+        State.VIDEO_LOADING, Event.STANDBY_ERROR, ACTION_RELEASE_STANDBY_THUMBNAIL);
+    table.addCueNextVideo(State.VIDEO_LOADING, Event.CUE_TIMEOUT,
+        ACTION_RELEASE_VIDEO_THUMBNAIL | ACTION_RELEASE_STANDBY_THUMBNAIL);
+    table.add(State.VIDEO_LOADING, Event.VIDEO_ERROR, Guard.ALWAYS, State.VIDEO_ENDED,
+        ACTION_RELEASE_VIDEO_THUMBNAIL);
+
+    table.add(State.VIDEO_CUED, Event.FLIP_TIMER, Guard.CAN_FLIP_VIDEO, State.VIDEO_CUED,
+        ACTION_FLIP_IN_VIDEO);
+    table.add(State.VIDEO_CUED, Event.VIDEO_FLIP_DONE, Guard.STANDBY_PREPARABLE,
+        State.VIDEO_PLAYING, ACTION_PLAY_VIDEO | ACTION_PREPARE_STANDBY);
+    table.add(State.VIDEO_CUED, Event.VIDEO_FLIP_DONE, Guard.ALWAYS, State.VIDEO_PLAYING,
+        ACTION_PLAY_VIDEO);
+    // A thumbnail flip which held back the video has finished.
+    table.add(State.VIDEO_CUED, Event.FLIP_DONE, Guard.CAN_FLIP_VIDEO, State.VIDEO_CUED,
+        ACTION_FLIP_IN_VIDEO);
+    table.add(State.VIDEO_CUED, Event.VIDEO_ERROR, Guard.ALWAYS, State.VIDEO_ENDED,
+        ACTION_RELEASE_VIDEO_THUMBNAIL);
+
+    table.add(State.VIDEO_PLAYING, Event.THUMBNAIL_READY, Guard.STANDBY_PREPARABLE,
+        State.VIDEO_PLAYING, ACTION_PREPARE_STANDBY);
+    table.add(State.VIDEO_PLAYING, Event.STANDBY_ERROR, Guard.STANDBY_PREPARABLE,
+        State.VIDEO_PLAYING, ACTION_RELEASE_STANDBY_THUMBNAIL | ACTION_PREPARE_STANDBY);
+    table.add(State.VIDEO_PLAYING, Event.VIDEO_ENDED, Guard.STANDBY_CUED_AND_CAN_FLIP_VIDEO,
+        State.VIDEO_CUED, ACTION_HIDE_VIDEO | ACTION_PROMOTE_STANDBY | ACTION_FLIP_IN_VIDEO);
+    table.add(State.VIDEO_PLAYING, Event.VIDEO_ENDED, Guard.STANDBY_CUED, State.VIDEO_CUED,
+        ACTION_HIDE_VIDEO | ACTION_PROMOTE_STANDBY);
+    table.add(State.VIDEO_PLAYING, Event.VIDEO_ENDED, Guard.ALWAYS, State.VIDEO_ENDED,
+        ACTION_HIDE_VIDEO);
+    table.add(State.VIDEO_PLAYING, Event.VIDEO_ERROR, Guard.ALWAYS, State.VIDEO_ENDED,
+        ACTION_HIDE_VIDEO);
+    table.add(State.VIDEO_PLAYING, Event.RESUME, Guard.ALWAYS, State.VIDEO_PLAYING,
+        ACTION_RESUME_VIDEO | ACTION_RESTART_FLIP_TIMER);
+
+    table.add(State.VIDEO_ENDED, Event.FLIP_TIMER, Guard.CAN_FLIP_OUT_VIDEO,
+        State.VIDEO_BEING_FLIPPED_OUT, ACTION_FLIP_OUT_VIDEO);
+
+    table.addCueNextVideo(State.VIDEO_BEING_FLIPPED_OUT, Event.VIDEO_FLIP_DONE, 0);
+
+    for (State state : State.values()) {
+      if (state != State.UNINITIALIZED && state != State.LOADING_THUMBNAILS) {
+        // Checked after the transitions above, so the video's flips take precedence.
+        table.add(state, Event.FLIP_TIMER, Guard.CAN_FLIP_THUMBNAIL, state,
+            ACTION_FLIP_THUMBNAIL);
+      }
+      table.add(state, Event.STANDBY_ERROR, Guard.ALWAYS, state, ACTION_RELEASE_STANDBY_THUMBNAIL);
+      table.add(state, Event.FATAL_ERROR, Guard.ALWAYS, State.UNINITIALIZED, ACTION_STOP);
+      if (state != State.UNINITIALIZED && state != State.LOADING_THUMBNAILS) {
+        table.add(state, Event.RESUME, Guard.ALWAYS, state, ACTION_RESTART_FLIP_TIMER);
+      }
+    }
+
+    TRANSITIONS = table.build();
+  }
+
+  private State state;
+  private StandbyState standbyState;
+  private boolean doubleBuffered;
+  private boolean resumed;
+
+  private int readyThumbnails;
+  private int maxConcurrentFlips;
+  private int flips;
+  private boolean flippingVideo;
+  private int loadingTicks;
+  private int cueTimeouts;
+  // Whether the video's flip ended while paused, handled first after RESUME.
+  private boolean deferredVideoFlipDone;
+  // The most significant end of a thumbnail flip which arrived while paused, handled next.
+  private Event deferredFlipEvent;
+  // Whether ready thumbnails are still to be handled after RESUME.
+  private boolean deferredThumbnailReady;
+
+  // Each entry holds the ordinal of the event in its low byte, and the flip limit above it.
+  private int[] trace;
+  private int traceLength;
+
+  public VideoWallStateMachine() {
+    state = State.UNINITIALIZED;
+    standbyState = StandbyState.IDLE;
+    maxConcurrentFlips = 1;
+    trace = new int[0];
+  }
+
+  /**
+   * Sets how many cells may be flipped at the same time. The flip timer is expected to fire this
+   * many times per flip period. The limit is recorded in the trace with every event handled under
+   * it, as guards depend on it.
+   */
+  public void setMaxConcurrentFlips(int maxConcurrentFlips) {
+    this.maxConcurrentFlips = maxConcurrentFlips;
+  }
+
+  /**
+   * Records up to the given number of handled events, which can be retrieved with
+   * {@link #getTrace()}. Recording stops once the trace is full.
+   */
+  public void setTraceCapacity(int capacity) {
+    trace = Arrays.copyOf(trace, capacity);
+    traceLength = Math.min(traceLength, capacity);
+  }
+
+  public Event[] getTrace() {
+    Event[] events = new Event[traceLength];
+    for (int i = 0; i < traceLength; i++) {
+      events[i] = EVENTS[trace[i] & 0xff];
+    }
+    return events;
+  }
+
+  /**
+   * Returns the flip limit each event of {@link #getTrace()} was handled under.
+   */
+  public int[] getTraceFlipLimits() {
+    int[] flipLimits = new int[traceLength];
+    for (int i = 0; i < traceLength; i++) {
+      flipLimits[i] = trace[i] >>> 8;
+    }
+    return flipLimits;
+  }
+
+  /**
+   * Feeds the events of a trace to a new state machine, each under the flip limit it was recorded
+   * with.
+   *
+   * @param events The events to replay, typically obtained from {@link #getTrace()}.
+   * @param flipLimits The flip limit of each event, from {@link #getTraceFlipLimits()}.
+   * @param traceCapacity The trace capacity of the new state machine.
+   * @return The state machine after handling all the events.
+   */
+  public static VideoWallStateMachine replay(Event[] events, int[] flipLimits,
+      int traceCapacity) {
+    if (flipLimits.length != events.length) {
+      throw new IllegalArgumentException(
+          flipLimits.length + " flip limits for " + events.length + " events");
+    }
+    VideoWallStateMachine stateMachine = new VideoWallStateMachine();
+    stateMachine.setTraceCapacity(traceCapacity);
+    for (int i = 0; i < events.length; i++) {
+      stateMachine.setMaxConcurrentFlips(flipLimits[i]);
+      stateMachine.handle(events[i]);
+      while (stateMachine.hasPendingEvent()) {
+        stateMachine.handlePendingEvent();
+      }
+    }
+    return stateMachine;
+  }
+
+  /**
+   * Writes the trace as text, one event per line followed by the flip limit it was handled under,
+   * so that it can be read back by {@link #replay(Reader, int)}.
+   */
+  public void writeTrace(Writer out) throws IOException {
+    for (int i = 0; i < traceLength; i++) {
+      out.write(EVENTS[trace[i] & 0xff].name() + " " + (trace[i] >>> 8) + "\n");
+    }
+    out.flush();
+  }
+
+  /**
+   * Replays a trace written by {@link #writeTrace(Writer)}.
+   *
+   * @throws IOException If the trace cannot be read or a line is malformed.
+   */
+  public static VideoWallStateMachine replay(Reader in, int traceCapacity) throws IOException {
+    List<Event> events = new ArrayList<Event>();
+    List<Integer> flipLimits = new ArrayList<Integer>();
+    BufferedReader reader = new BufferedReader(in);
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      int separator = line.indexOf(' ');
+      try {
+        events.add(Event.valueOf(line.substring(0, separator)));
+        flipLimits.add(Integer.parseInt(line.substring(separator + 1)));
+      } catch (RuntimeException e) {
+        throw new IOException("Malformed trace line: " + line);
+      }
+    }
+    int[] limits = new int[flipLimits.size()];
+    for (int i = 0; i < limits.length; i++) {
+      limits[i] = flipLimits.get(i);
+    }
+    return replay(events.toArray(new Event[events.size()]), limits, traceCapacity);
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Returns the number of times a video took so long to load that it was given up on.
+   */
+  public int getCueTimeoutCount() {
+    return cueTimeouts;
+  }
+
+  /**
+   * Handles an event. Once its actions are carried out, the wall should handle any
+   * {@link #hasPendingEvent() pending events}.
+   *
+   * @return The {@code ACTION_*} flags the wall should carry out, in the order they are declared.
+   */
+  public int handle(Event event) {
+    if (traceLength < trace.length) {
+      trace[traceLength++] = event.ordinal() | (maxConcurrentFlips << 8);
+    }
+
+    switch (event) {
+      case THUMBNAIL_READY:
+        readyThumbnails++;
+        break;
+      case VIDEO_FLIP_DONE:
+        flippingVideo = false;
+        flips--;
+        break;
+      case FLIP_DONE:
+      case WALL_FILLED:
+        flips--;
+        if (event == Event.WALL_FILLED && state != State.LOADING_THUMBNAILS) {
+          event = Event.FLIP_DONE;
+        }
+        break;
+      case STANDBY_AVAILABLE:
+        doubleBuffered = true;
+        break;
+      case STANDBY_LOADED:
+        standbyState = StandbyState.CUED;
+        break;
+      case STANDBY_ERROR:
+        standbyState = StandbyState.IDLE;
+        break;
+      case FLIP_TIMER:
+        if (state == State.VIDEO_LOADING
+            && ++loadingTicks >= MAX_LOADING_TICKS * maxConcurrentFlips) {
+          event = Event.CUE_TIMEOUT;
+          standbyState = StandbyState.IDLE;
+          cueTimeouts++;
+        }
+        break;
+      case PAUSE:
+        resumed = false;
+        return 0;
+      case RESUME:
+        return resume();
+      default:
+        break;
+    }
+
+    if (!resumed) {
+      // Nothing is flipped or loaded while paused, but the end of a flip is remembered so that the
+      // wall can carry on from it when resumed.
+      if (event == Event.VIDEO_FLIP_DONE) {
+        // The wall cannot carry on with its videos without it, so it is always handled.
+        deferredVideoFlipDone = true;
+        return 0;
+      } else if (event == Event.FLIP_DONE || event == Event.WALL_FILLED) {
+        // The wall being filled matters more than any other flip having ended.
+        if (deferredFlipEvent == null || event == Event.WALL_FILLED) {
+          deferredFlipEvent = event;
+        }
+        return 0;
+      } else if (event == Event.THUMBNAIL_READY || event == Event.FLIP_TIMER) {
+        return 0;
+      }
+    }
+    return transition(event);
+  }
+
+  /**
+   * Returns whether events held back while the wall was paused are waiting to be handled with
+   * {@link #handlePendingEvent()}.
+   */
+  public boolean hasPendingEvent() {
+    return resumed
+        && (deferredVideoFlipDone || deferredFlipEvent != null || deferredThumbnailReady);
+  }
+
+  /**
+   * Handles the next event held back while the wall was paused: the end of the video's flip first,
+   * then that of other flips, and then the thumbnails which became ready.
+   *
+   * @return The {@code ACTION_*} flags the wall should carry out before handling the next event.
+   */
+  public int handlePendingEvent() {
+    if (!resumed) {
+      return 0;
+    }
+    if (deferredVideoFlipDone) {
+      deferredVideoFlipDone = false;
+      return transition(Event.VIDEO_FLIP_DONE);
+    }
+    if (deferredFlipEvent != null) {
+      Event flipEvent = deferredFlipEvent;
+      deferredFlipEvent = null;
+      return transition(flipEvent);
+    }
+    if (deferredThumbnailReady) {
+      deferredThumbnailReady = false;
+      return readyThumbnails > 0 ? transition(Event.THUMBNAIL_READY) : 0;
+    }
+    return 0;
+  }
+
+  private int resume() {
+    resumed = true;
+    deferredThumbnailReady = true;
+    return transition(Event.RESUME);
+  }
+
+  private int transition(Event event) {
+    Transition[] candidates = TRANSITIONS[state.ordinal()][event.ordinal()];
+    for (Transition transition : candidates) {
+      if (isSatisfied(transition.guard)) {
+        apply(transition);
+        return transition.actions;
+      }
+    }
+    return 0;
+  }
+
+  private boolean isSatisfied(Guard guard) {
+    switch (guard) {
+      case ALWAYS:
+        return true;
+      // Nothing is flipped while paused, even by events which are not held back, like the end of
+      // a video.
+      case CAN_FLIP_THUMBNAIL:
+        return resumed && flips < maxConcurrentFlips && readyThumbnails > 0;
+      case CAN_FLIP_VIDEO:
+        return resumed && flips < maxConcurrentFlips && !flippingVideo;
+      case CAN_FLIP_OUT_VIDEO:
+        return isSatisfied(Guard.CAN_FLIP_VIDEO) && readyThumbnails > 0;
+      case SINGLE_PLAYER_READY:
+        return !doubleBuffered && readyThumbnails > 0;
+      case STANDBY_CUED:
+        return doubleBuffered && standbyState == StandbyState.CUED;
+      case STANDBY_CUED_AND_CAN_FLIP_VIDEO:
+        return isSatisfied(Guard.CAN_FLIP_VIDEO) && isSatisfied(Guard.STANDBY_CUED);
+      case STANDBY_CUEING:
+        return doubleBuffered && standbyState == StandbyState.CUEING;
+      case STANDBY_PREPARABLE:
+        return doubleBuffered && standbyState == StandbyState.IDLE && readyThumbnails > 0;
+      default:
+        throw new IllegalStateException("Unknown guard " + guard);
+    }
+  }
+
+  private void apply(Transition transition) {
+    int actions = transition.actions;
+    if ((actions & ACTION_PROMOTE_STANDBY) != 0) {
+      standbyState = StandbyState.IDLE;
+    }
+    if ((actions & ACTION_CUE_VIDEO) != 0) {
+      readyThumbnails--;
+    }
+    if ((actions & ACTION_PREPARE_STANDBY) != 0) {
+      readyThumbnails--;
+      standbyState = StandbyState.CUEING;
+    }
+    if ((actions & (ACTION_FLIP_THUMBNAIL | ACTION_FLIP_OUT_VIDEO)) != 0) {
+      readyThumbnails--;
+    }
+    if ((actions & (ACTION_FLIP_THUMBNAIL | ACTION_FLIP_IN_VIDEO | ACTION_FLIP_OUT_VIDEO)) != 0) {
+      flips++;
+    }
+    if ((actions & (ACTION_FLIP_IN_VIDEO | ACTION_FLIP_OUT_VIDEO)) != 0) {
+      flippingVideo = true;
+    }
+    if (transition.nextState != state) {
+      loadingTicks = 0;
+    }
+    state = transition.nextState;
+  }
+
+  /**
+   * Collects the transitions of the table before freezing them into arrays.
+   */
+  private static final class TableBuilder {
+
+    private final List<List<Transition>> cells;
+
+    public TableBuilder() {
+      cells = new ArrayList<List<Transition>>();
+      for (int i = 0; i < State.values().length * EVENTS.length; i++) {
+        cells.add(new ArrayList<Transition>());
+      }
+    }
+
+    public void add(State state, Event event, Guard guard, State nextState, int actions) {
+      cells.get(state.ordinal() * EVENTS.length + event.ordinal())
+          .add(new Transition(guard, nextState, actions));
+    }
+
+    /**
+     * Adds the transitions which get the next video loading once the previous one has been
+     * flipped out.
+     */
+    public void addCueNextVideo(State state, Event event, int actions) {
+      add(state, event, Guard.SINGLE_PLAYER_READY, State.VIDEO_LOADING,
+          actions | ACTION_CUE_VIDEO);
+      add(state, event, Guard.STANDBY_CUED, State.VIDEO_CUED, actions | ACTION_PROMOTE_STANDBY);
+      add(state, event, Guard.STANDBY_CUEING, State.VIDEO_LOADING, actions);
+      add(state, event, Guard.STANDBY_PREPARABLE, State.VIDEO_LOADING,
+          actions | ACTION_PREPARE_STANDBY);
+      add(state, event, Guard.ALWAYS, State.VIDEO_FLIPPED_OUT, actions);
+    }
+
+    public Transition[][][] build() {
+      Transition[][][] table = new Transition[State.values().length][EVENTS.length][];
+      for (int state = 0; state < table.length; state++) {
+        for (int event = 0; event < EVENTS.length; event++) {
+          List<Transition> cell = cells.get(state * EVENTS.length + event);
+          table[state][event] = cell.toArray(new Transition[cell.size()]);
+        }
+      }
+      return table;
+    }
+
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.examples.youtubeapidemo.wall;
+
+import com.google.android.youtube.player.YouTubeInitializationResult;
+import com.google.android.youtube.player.YouTubeThumbnailLoader;
+import com.google.android.youtube.player.YouTubeThumbnailView;
+
+import android.content.Context;
+
+/**
+ * A {@link ThumbnailSource} which loads the thumbnails of a playlist with one
+ * {@link YouTubeThumbnailLoader} per slot.
+ */
+public final class YouTubeThumbnailSource implements
+    ThumbnailSource,
+    YouTubeThumbnailView.OnInitializedListener,
+    YouTubeThumbnailLoader.OnThumbnailLoadedListener {
+
+  private final String playlistId;
+  private final YouTubeThumbnailView.OnInitializedListener initializedListener;
+
+  private final YouTubeThumbnailView[] views;
+  private final YouTubeThumbnailLoader[] loaders;
+  private final int[] positions;
+
+  private Listener listener;
+
+  /**
+   * @param context The context used to create the thumbnail views.
+   * @param playlistId The playlist to load thumbnails from.
+   * @param slotCount The number of loaders, and therefore of thumbnails loading in parallel.
+   * @param initializedListener Informed of the result of initializing each loader.
+   */
+  public YouTubeThumbnailSource(Context context, String playlistId, int slotCount,
+      YouTubeThumbnailView.OnInitializedListener initializedListener) {
+    this.playlistId = playlistId;
+    this.initializedListener = initializedListener;
+    views = new YouTubeThumbnailView[slotCount];
+    loaders = new YouTubeThumbnailLoader[slotCount];
+    positions = new int[slotCount];
+    for (int i = 0; i < slotCount; i++) {
+      views[i] = new YouTubeThumbnailView(context);
+    }
+  }
+
+  /**
+   * Initializes the loaders of all the slots which do not have one yet.
+   */
+  public void initialize(String developerKey) {
+    for (int i = 0; i < views.length; i++) {
+      if (loaders[i] == null) {
+        views[i].initialize(developerKey, this);
+      }
+    }
+  }
+
+  /**
+   * Returns whether at least one slot is able to load thumbnails.
+   */
+  public boolean isInitialized() {
+    for (YouTubeThumbnailLoader loader : loaders) {
+      if (loader != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Releases the loaders of all the slots. Loads in flight are abandoned, and the slots become
+   * ready again once {@link #initialize(String)} has succeeded.
+   */
+  public void release() {
+    for (int i = 0; i < loaders.length; i++) {
+      if (loaders[i] != null) {
+        loaders[i].release();
+        loaders[i] = null;
+      }
+    }
+  }
+
+  @Override
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public int getSlotCount() {
+    return views.length;
+  }
+
+  @Override
+  public boolean isSlotReady(int slot) {
+    return loaders[slot] != null;
+  }
+
+  @Override
+  public void load(int slot, int position) {
+    positions[slot] = position;
+    loaders[slot].setPlaylist(playlistId, position);
+  }
+
+  @Override
+  public void onInitializationSuccess(YouTubeThumbnailView view, YouTubeThumbnailLoader loader) {
+    int slot = getSlot(view);
+    loaders[slot] = loader;
+    loader.setOnThumbnailLoadedListener(this);
+    initializedListener.onInitializationSuccess(view, loader);
+    if (listener != null) {
+      listener.onSlotReady(slot);
+    }
+  }
+
+  @Override
+  public void onInitializationFailure(
+      YouTubeThumbnailView view, YouTubeInitializationResult errorReason) {
+    initializedListener.onInitializationFailure(view, errorReason);
+  }
+
+  @Override
+  public void onThumbnailLoaded(YouTubeThumbnailView view, String videoId) {
+    int slot = getSlot(view);
+    if (listener != null && loaders[slot] != null) {
+      listener.onThumbnailLoaded(
+          slot, positions[slot], view.getDrawable(), videoId, loaders[slot].hasNext());
+    }
+  }
+
+  @Override
+  public void onThumbnailError(
+      YouTubeThumbnailView view, YouTubeThumbnailLoader.ErrorReason reason) {
+    int slot = getSlot(view);
+    if (listener != null && loaders[slot] != null) {
+      listener.onThumbnailError(slot, positions[slot]);
+    }
+  }
+
+  private int getSlot(YouTubeThumbnailView view) {
+    for (int i = 0; i < views.length; i++) {
+      if (views[i] == view) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unknown thumbnail view " + view);
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.examples.youtubeapidemo;
+
+import android.content.Context;
+import android.test.InstrumentationTestCase;
+import android.view.View;
+import android.widget.ListView;
+
+import com.examples.youtubeapidemo.VideoListDemoActivity.PageAdapter;
+import com.examples.youtubeapidemo.list.StaticCatalogSource;
+import com.examples.youtubeapidemo.list.ThumbnailCache;
+import com.examples.youtubeapidemo.list.VideoEntry;
+import com.examples.youtubeapidemo.list.VideoThumbnailSource;
+import com.examples.youtubeapidemo.util.VideoId;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scrolls a list of more than a thousand rows bound by a {@link PageAdapter}, and checks that the
+ * adapter only keeps the holders of the rows on screen.
+ */
+public class PageAdapterTest extends InstrumentationTestCase {
+
+  private static final int ROWS = 1500;
+  private static final int PAGE_SIZE = 50;
+  private static final int LIST_WIDTH = 480;
+  private static final int LIST_HEIGHT = 800;
+  private static final int ROWS_PER_STEP = 7;
+
+  private File directory;
+  private ListView listView;
+  private PageAdapter adapter;
+  private ThumbnailCache thumbnailCache;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    final Context context = getInstrumentation().getTargetContext();
+    directory = new File(getInstrumentation().getContext().getCacheDir(), "PageAdapterTest");
+    final List<VideoEntry> entries = new ArrayList<VideoEntry>();
+    for (int i = 0; i < ROWS; i++) {
+      entries.add(new VideoEntry("Video " + i, VideoId.unpack(i)));
+    }
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        thumbnailCache = new ThumbnailCache(new IdleSource(), directory, 1024 * 1024, 1024 * 1024);
+        adapter = new PageAdapter(
+            context, new StaticCatalogSource(entries, PAGE_SIZE), thumbnailCache);
+        listView = new ListView(context);
+        listView.setRecyclerListener(adapter);
+        listView.setAdapter(adapter);
+      }
+    });
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        thumbnailCache.release();
+      }
+    });
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+    super.tearDown();
+  }
+
+  public void testKeepsOnlyTheHoldersOfRowsOnScreen() {
+    // Pages arrive as rows near the end of the loaded ones are bound, so scroll until all are in.
+    int maxChildCount = 0;
+    for (int position = 0; position < ROWS; position += ROWS_PER_STEP) {
+      scrollTo(position);
+      assertTrue("Only " + adapter.getCount() + " rows at position " + position,
+          adapter.getCount() > position);
+      assertTrue(adapter.getRowHolderCount() <= listView.getChildCount());
+      maxChildCount = Math.max(maxChildCount, listView.getChildCount());
+    }
+    assertEquals(ROWS, adapter.getCount());
+    assertTrue(maxChildCount > 0);
+    assertTrue(adapter.getBindCount() >= ROWS);
+  }
+
+  public void testLabelsOfReusedRowsFollowTheVisibility() {
+    scrollTo(0);
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        adapter.setLabelVisibility(false);
+      }
+    });
+    scrollTo(ROWS_PER_STEP * 10);
+    assertLabelVisibility(View.GONE);
+
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        adapter.setLabelVisibility(true);
+      }
+    });
+    assertLabelVisibility(View.VISIBLE);
+  }
+
+  /**
+   * Shows the row at a position at the top of the list, once every pending page has arrived.
+   */
+  private void scrollTo(final int position) {
+    getInstrumentation().waitForIdleSync();
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        listView.setSelection(position);
+        listView.measure(View.MeasureSpec.makeMeasureSpec(LIST_WIDTH, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(LIST_HEIGHT, View.MeasureSpec.EXACTLY));
+        listView.layout(0, 0, LIST_WIDTH, LIST_HEIGHT);
+      }
+    });
+    getInstrumentation().waitForIdleSync();
+  }
+
+  private void assertLabelVisibility(int visibility) {
+    for (int i = 0; i < listView.getChildCount(); i++) {
+      assertEquals(visibility, listView.getChildAt(i).findViewById(R.id.text).getVisibility());
+    }
+  }
+
+  /**
+   * A source which never delivers, so that every row keeps waiting for its thumbnail.
+   */
+  private static final class IdleSource implements VideoThumbnailSource {
+
+    @Override
+    public void setListener(Listener listener) {
+    }
+
+    @Override
+    public void load(String videoId) {
+    }
+
+    @Override
+    public boolean cancel(String videoId) {
+      return true;
+    }
+
+    @Override
+    public void release() {
+    }
+
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.examples.youtubeapidemo.adapter;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.widget.ListView;
+
+import com.examples.youtubeapidemo.YouTubeAPIDemoActivity;
+import com.examples.youtubeapidemo.util.LineBuffer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes 100,000 events through an {@link EventLogAdapter} shown by a list attached to a window,
+ * in bursts on the main thread as a player firing callbacks rapidly would, and logs the time spent
+ * adding events and how many times the list was refreshed.
+ */
+public class EventLogAdapterBenchmark
+    extends ActivityInstrumentationTestCase2<YouTubeAPIDemoActivity> {
+
+  private static final String TAG = "EventLogAdapterBenchmark";
+
+  private static final int EVENTS = 100000;
+  private static final int EVENTS_PER_BURST = 100;
+  private static final int BURST_INTERVAL_MILLIS = 2;
+  // The same capacity as the player controls demo.
+  private static final int CAPACITY = 500;
+  // How long to wait after the last burst for the refresh it posted.
+  private static final int SETTLE_MILLIS = 100;
+  private static final int WARMUP_ROUNDS = 3;
+  private static final long TIMEOUT_SECONDS = 60;
+
+  public EventLogAdapterBenchmark() {
+    super(YouTubeAPIDemoActivity.class);
+  }
+
+  public void testAddEvents() throws Exception {
+    Activity activity = getActivity();
+    Run run = null;
+    for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+      run = new Run(activity);
+      getInstrumentation().runOnMainSync(run);
+      assertTrue(run.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      getInstrumentation().runOnMainSync(run.removeList);
+    }
+    assertEquals(EVENTS, run.adapter.getMessageCount());
+    assertEquals(CAPACITY, run.adapter.getCount());
+    Log.i(TAG, EVENTS + " events: " + run.addNanos / EVENTS + " ns per add, "
+        + run.adapter.getRefreshCount() + " refreshes over " + run.elapsedMillis + " ms");
+  }
+
+  /**
+   * Attaches a list to the activity and adds the events to its adapter, one burst at a time.
+   */
+  private static final class Run implements Runnable {
+
+    private final Activity activity;
+    private final Handler handler;
+    private final LineBuffer line;
+    private final CountDownLatch done;
+    private final Runnable removeList;
+
+    private ListView listView;
+    private EventLogAdapter adapter;
+    private int events;
+    private long startMillis;
+    private long addNanos;
+    private long elapsedMillis;
+
+    public Run(Activity activity) {
+      this.activity = activity;
+      handler = new Handler(activity.getMainLooper());
+      line = new LineBuffer(64);
+      done = new CountDownLatch(1);
+      removeList = new Runnable() {
+        @Override
+        public void run() {
+          ((ViewGroup) listView.getParent()).removeView(listView);
+        }
+      };
+    }
+
+    @Override
+    public void run() {
+      if (listView == null) {
+        listView = new ListView(activity);
+        activity.addContentView(listView, new ViewGroup.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        adapter = new EventLogAdapter(activity, listView, CAPACITY);
+        listView.setAdapter(adapter);
+        startMillis = System.currentTimeMillis();
+      }
+
+      long startNanos = System.nanoTime();
+      for (int i = 0; i < EVENTS_PER_BURST; i++) {
+        line.clear().append("\tBUFFERING ").append(events++, 6);
+        adapter.add(line);
+      }
+      addNanos += System.nanoTime() - startNanos;
+
+      if (events < EVENTS) {
+        handler.postDelayed(this, BURST_INTERVAL_MILLIS);
+      } else {
+        elapsedMillis = System.currentTimeMillis() - startMillis;
+        handler.postDelayed(new Runnable() {
+          @Override
+          public void run() {
+            done.countDown();
+          }
+        }, SETTLE_MILLIS);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.adapter;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.view.View;
+
+import com.examples.youtubeapidemo.util.LineBuffer;
+
+/**
+ * Tests {@link EventLogAdapter} without a frame ever coming, so that nothing is published.
+ */
+public class EventLogAdapterTest extends AndroidTestCase {
+
+  private static final int CAPACITY = 4;
+
+  private EventLogAdapter adapter;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    adapter = new EventLogAdapter(getContext(), new View(getContext()), CAPACITY);
+  }
+
+  public void testMessagesAreNotShownBeforeTheNextFrame() {
+    for (int i = 0; i < 3 * CAPACITY; i++) {
+      adapter.add("message");
+    }
+    assertEquals(0, adapter.getCount());
+    assertEquals(3 * CAPACITY, adapter.getMessageCount());
+  }
+
+  public void testAddingAllocatesNothingOnceWarm() {
+    LineBuffer line = new LineBuffer(64).append("\tPLAYING (00:01/04:00)");
+    // Creates the buffers of the pending messages, and posts the refresh.
+    for (int i = 0; i < CAPACITY; i++) {
+      adapter.add(line);
+    }
+
+    Debug.startAllocCounting();
+    try {
+      Debug.resetThreadAllocCount();
+      for (int i = 0; i < 1000; i++) {
+        adapter.add(line);
+        adapter.add("\tSTOPPED");
+      }
+      assertEquals(0, Debug.getThreadAllocCount());
+    } finally {
+      Debug.stopAllocCounting();
+    }
+  }
+
+}
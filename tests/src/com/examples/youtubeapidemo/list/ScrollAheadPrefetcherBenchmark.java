@@ -0,0 +1,280 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.examples.youtubeapidemo.list;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrolls a simulated list through a {@link ThumbnailCache} in front of a source with a fixed
+ * latency, with and without a {@link ScrollAheadPrefetcher}, at a slow and a fast scroll speed.
+ * Logs the hit rate of the rows scrolled into view, and the stutter: how many rows were shown with
+ * a placeholder, and how long they waited for their thumbnail on average.
+ * <p>
+ * The list scrolls in real time on the main thread, as the prefetcher measures the scroll speed
+ * with the uptime clock. There are no warm-up rounds, as the figures are counts and latencies
+ * rather than CPU time.
+ */
+public class ScrollAheadPrefetcherBenchmark extends InstrumentationTestCase {
+
+  private static final String TAG = "ScrollAheadPrefetcherBenchmark";
+
+  private static final int ROWS = 200;
+  private static final int VISIBLE_ROWS = 6;
+  private static final int[] ROWS_PER_SECOND = {10, 30};
+  private static final int FRAME_MILLIS = 16;
+  private static final int LOAD_MILLIS = 150;
+  // The same distance as the list demo.
+  private static final int PREFETCH_DISTANCE = 5;
+  private static final int THUMBNAIL_WIDTH = 32;
+  private static final int THUMBNAIL_HEIGHT = 18;
+
+  private File directory;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = new File(getInstrumentation().getContext().getCacheDir(), TAG);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    deleteDirectory();
+    super.tearDown();
+  }
+
+  public void testScrollWithAndWithoutPrefetcher() throws Exception {
+    for (int rowsPerSecond : ROWS_PER_SECOND) {
+      for (int prefetch = 0; prefetch < 2; prefetch++) {
+        deleteDirectory();
+        ScrollRun run = new ScrollRun(rowsPerSecond, prefetch == 1);
+        run.start();
+        assertTrue(run.await());
+        Log.i(TAG, rowsPerSecond + " rows/s, " + (prefetch == 1 ? "with" : "without")
+            + " prefetcher: hit rate " + run.getHitRate() + ", " + run.placeholderRows + " of "
+            + run.shownRows + " rows shown with a placeholder, waiting "
+            + run.getAverageWaitMillis() + " ms on average, " + run.cache.getPrefetchCount()
+            + " prefetches");
+      }
+    }
+  }
+
+  private void deleteDirectory() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  /**
+   * Scrolls the list from top to bottom, one frame at a time, binding the rows which come into
+   * view the way the list demo's adapter does.
+   */
+  private final class ScrollRun implements Runnable, ThumbnailCache.Listener,
+      ScrollAheadPrefetcher.VideoIds {
+
+    private final int rowsPerSecond;
+    private final Handler handler;
+    private final CountDownLatch done;
+    private final ThumbnailCache cache;
+    private final ScrollAheadPrefetcher prefetcher;
+    // The rows shown with a placeholder which are still waiting, by video id, with their bind time.
+    private final Map<String, Long> waitingSince;
+
+    private long startTime;
+    private int firstVisibleRow;
+    private int shownRows;
+    private int placeholderRows;
+    private int thumbnailsShownLate;
+    private long totalWaitMillis;
+
+    public ScrollRun(int rowsPerSecond, boolean prefetch) {
+      this.rowsPerSecond = rowsPerSecond;
+      handler = new Handler(Looper.getMainLooper());
+      done = new CountDownLatch(1);
+      waitingSince = new HashMap<String, Long>();
+      final ThumbnailCache[] cache = new ThumbnailCache[1];
+      getInstrumentation().runOnMainSync(new Runnable() {
+        @Override
+        public void run() {
+          cache[0] = new ThumbnailCache(new DelayedSource(), directory, Integer.MAX_VALUE,
+              Long.MAX_VALUE);
+        }
+      });
+      this.cache = cache[0];
+      this.cache.setListener(this);
+      prefetcher = prefetch ? new ScrollAheadPrefetcher(this.cache, this, PREFETCH_DISTANCE) : null;
+      firstVisibleRow = -1;
+    }
+
+    public void start() {
+      handler.post(this);
+    }
+
+    public boolean await() throws InterruptedException {
+      long runMillis = 2000L + 1000L * ROWS / rowsPerSecond;
+      return done.await(runMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+      long now = SystemClock.uptimeMillis();
+      if (firstVisibleRow < 0) {
+        startTime = now;
+      }
+      int row = Math.min(ROWS - VISIBLE_ROWS, (int) ((now - startTime) * rowsPerSecond / 1000));
+      if (row != firstVisibleRow) {
+        int firstNewRow = row;
+        if (firstVisibleRow >= 0) {
+          for (int i = firstVisibleRow; i < row; i++) {
+            unbind(i);
+          }
+          firstNewRow = Math.max(row, firstVisibleRow + VISIBLE_ROWS);
+        }
+        firstVisibleRow = row;
+        for (int i = firstNewRow; i < row + VISIBLE_ROWS; i++) {
+          bind(i);
+        }
+        if (prefetcher != null) {
+          prefetcher.onScroll(null, row, VISIBLE_ROWS, ROWS);
+        }
+      }
+      if (row < ROWS - VISIBLE_ROWS || !waitingSince.isEmpty()) {
+        handler.postDelayed(this, FRAME_MILLIS);
+      } else {
+        cache.release();
+        done.countDown();
+      }
+    }
+
+    private void bind(int row) {
+      String videoId = getVideoId(row);
+      shownRows++;
+      if (cache.get(videoId) == null) {
+        placeholderRows++;
+        waitingSince.put(videoId, SystemClock.uptimeMillis());
+        cache.request(videoId);
+      }
+    }
+
+    private void unbind(int row) {
+      String videoId = getVideoId(row);
+      if (waitingSince.remove(videoId) != null) {
+        cache.cancel(videoId);
+      }
+    }
+
+    public float getHitRate() {
+      return shownRows == 0 ? 0 : (float) (shownRows - placeholderRows) / shownRows;
+    }
+
+    public long getAverageWaitMillis() {
+      return thumbnailsShownLate == 0 ? 0 : totalWaitMillis / thumbnailsShownLate;
+    }
+
+    @Override
+    public void onThumbnailAvailable(String videoId, Bitmap thumbnail) {
+      Long bindTime = waitingSince.remove(videoId);
+      if (bindTime != null) {
+        thumbnailsShownLate++;
+        totalWaitMillis += SystemClock.uptimeMillis() - bindTime;
+      }
+    }
+
+    @Override
+    public void onThumbnailUnavailable(String videoId) {
+      waitingSince.remove(videoId);
+    }
+
+    @Override
+    public int getCount() {
+      return ROWS;
+    }
+
+    @Override
+    public String getVideoId(int position) {
+      return "video" + position;
+    }
+
+  }
+
+  /**
+   * A source which delivers every thumbnail {@link #LOAD_MILLIS} after it was asked for, loading
+   * any number in parallel.
+   */
+  private static final class DelayedSource implements VideoThumbnailSource {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Runnable> pendingLoads = new HashMap<String, Runnable>();
+
+    private Listener listener;
+
+    @Override
+    public void setListener(Listener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void load(final String videoId) {
+      Runnable load = new Runnable() {
+        @Override
+        public void run() {
+          pendingLoads.remove(videoId);
+          listener.onThumbnailLoaded(videoId,
+              Bitmap.createBitmap(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, Bitmap.Config.RGB_565));
+        }
+      };
+      pendingLoads.put(videoId, load);
+      handler.postDelayed(load, LOAD_MILLIS);
+    }
+
+    @Override
+    public boolean cancel(String videoId) {
+      Runnable load = pendingLoads.remove(videoId);
+      if (load == null) {
+        return false;
+      }
+      handler.removeCallbacks(load);
+      return true;
+    }
+
+    @Override
+    public void release() {
+      for (Runnable load : pendingLoads.values()) {
+        handler.removeCallbacks(load);
+      }
+      pendingLoads.clear();
+    }
+
+  }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.examples.youtubeapidemo.list;
+
+import android.test.InstrumentationTestCase;
+import android.util.JsonReader;
+import android.util.Log;
+
+import com.examples.youtubeapidemo.util.VideoId;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a generated catalog of 100,000 entries in newline-delimited JSON through a
+ * {@link StreamingCatalogSource}, and compares it with parsing the whole catalog up front and
+ * serving it from a {@link StaticCatalogSource}. Logs the time to the first row, and the heap used
+ * once the first page is shown and at most while every page is delivered and dropped.
+ */
+public class StreamingCatalogSourceBenchmark extends InstrumentationTestCase {
+
+  private static final String TAG = "StreamingCatalogSourceBenchmark";
+
+  private static final int ENTRIES = 100000;
+  // The same page size as the list demo.
+  private static final int PAGE_SIZE = 50;
+  // The heap is measured after a collection every so many pages, as collecting is slow.
+  private static final int PAGES_PER_HEAP_SAMPLE = 200;
+  private static final int WARMUP_ROUNDS = 3;
+  private static final long TIMEOUT_SECONDS = 120;
+
+  private File file;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    file = new File(getInstrumentation().getContext().getCacheDir(), TAG + ".json");
+    Writer writer =
+        new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    try {
+      for (int i = 0; i < ENTRIES; i++) {
+        writer.write("{\"text\": \"Video " + i + "\", \"videoId\": \""
+            + VideoId.unpack(i * 7919L) + "\"}\n");
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+    super.tearDown();
+  }
+
+  public void testStreamingCatalog() throws Exception {
+    PageReader pageReader = null;
+    for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+      final PageReader[] created = new PageReader[1];
+      getInstrumentation().runOnMainSync(new Runnable() {
+        @Override
+        public void run() {
+          created[0] =
+              new PageReader(System.nanoTime(), StreamingCatalogSource.forFile(file, PAGE_SIZE));
+        }
+      });
+      pageReader = created[0];
+      pageReader.await();
+    }
+    log("Streaming", pageReader);
+  }
+
+  public void testParsedCatalog() throws Exception {
+    PageReader pageReader = null;
+    for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+      final long startNanos = System.nanoTime();
+      final List<VideoEntry> entries = parseCatalog();
+      final PageReader[] created = new PageReader[1];
+      getInstrumentation().runOnMainSync(new Runnable() {
+        @Override
+        public void run() {
+          created[0] = new PageReader(startNanos, new StaticCatalogSource(entries, PAGE_SIZE));
+        }
+      });
+      pageReader = created[0];
+      pageReader.await();
+    }
+    log("Parsed up front", pageReader);
+  }
+
+  private static void log(String mode, PageReader pageReader) {
+    assertEquals(ENTRIES, pageReader.entryCount);
+    Log.i(TAG, mode + ": first row after " + pageReader.firstPageNanos / 1000000 + " ms, all "
+        + ENTRIES + " after " + pageReader.lastPageNanos / 1000000 + " ms, "
+        + pageReader.firstPageHeapBytes / 1024 + " KB heap used after the first page, at most "
+        + pageReader.maxHeapBytes / 1024 + " KB while reading");
+  }
+
+  /**
+   * Parses the whole catalog, as a source without streaming would before showing any row.
+   */
+  private List<VideoEntry> parseCatalog() throws IOException {
+    List<VideoEntry> entries = new ArrayList<VideoEntry>();
+    JsonReader reader = new JsonReader(
+        new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8")));
+    try {
+      reader.setLenient(true);
+      for (int i = 0; i < ENTRIES; i++) {
+        String text = null;
+        String videoId = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String name = reader.nextName();
+          if ("text".equals(name)) {
+            text = reader.nextString();
+          } else {
+            videoId = reader.nextString();
+          }
+        }
+        reader.endObject();
+        entries.add(new VideoEntry(text, videoId));
+      }
+    } finally {
+      reader.close();
+    }
+    return entries;
+  }
+
+  private static long getUsedHeapBytes() {
+    Runtime runtime = Runtime.getRuntime();
+    runtime.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Asks a source for every page on the main thread, dropping each one once delivered.
+   */
+  private static final class PageReader implements CatalogSource.Listener {
+
+    private final long startNanos;
+    private final CatalogSource source;
+    private final CountDownLatch done;
+
+    private int pageCount;
+    private int entryCount;
+    private boolean failed;
+    private long firstPageNanos;
+    private long lastPageNanos;
+    private long firstPageHeapBytes;
+    private long maxHeapBytes;
+
+    public PageReader(long startNanos, CatalogSource source) {
+      this.startNanos = startNanos;
+      this.source = source;
+      done = new CountDownLatch(1);
+      source.setListener(this);
+      source.loadNextPage();
+    }
+
+    public void await() throws InterruptedException {
+      assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      assertFalse("Catalog error after " + entryCount + " entries", failed);
+    }
+
+    @Override
+    public void onPageLoaded(List<VideoEntry> page, boolean lastPage) {
+      long nanos = System.nanoTime() - startNanos;
+      if (pageCount == 0) {
+        firstPageNanos = nanos;
+        firstPageHeapBytes = getUsedHeapBytes();
+        maxHeapBytes = firstPageHeapBytes;
+      } else if (pageCount % PAGES_PER_HEAP_SAMPLE == 0) {
+        maxHeapBytes = Math.max(maxHeapBytes, getUsedHeapBytes());
+      }
+      pageCount++;
+      entryCount += page.size();
+      if (lastPage) {
+        lastPageNanos = nanos;
+        source.release();
+        done.countDown();
+      } else {
+        source.loadNextPage();
+      }
+    }
+
+    @Override
+    public void onCatalogError() {
+      failed = true;
+      source.release();
+      done.countDown();
+    }
+
+  }
+
+}
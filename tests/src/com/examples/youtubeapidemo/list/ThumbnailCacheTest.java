@@ -0,0 +1,301 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.examples.youtubeapidemo.list;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.test.InstrumentationTestCase;
+
+import java.io.File;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the memory and disk tiers of a {@link ThumbnailCache} in front of a fake source. The cache
+ * is driven on the main thread, while the test waits for the disk thread through the source and
+ * the listener.
+ */
+public class ThumbnailCacheTest extends InstrumentationTestCase {
+
+  private static final int WIDTH = 32;
+  private static final int HEIGHT = 18;
+  // Thumbnails are decoded from disk as RGB_565, so the loaded ones are created the same way.
+  private static final int THUMBNAIL_BYTES = WIDTH * HEIGHT * 2;
+  private static final long UNLIMITED_DISK_BYTES = Long.MAX_VALUE;
+  private static final long TIMEOUT_SECONDS = 5;
+
+  private File directory;
+  private Bitmap thumbnail;
+  private BlockingQueue<String> loadRequests;
+  private BlockingQueue<String> availableVideoIds;
+  private ThumbnailCache cache;
+  private int syncCount;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = new File(getInstrumentation().getContext().getCacheDir(), "ThumbnailCacheTest");
+    deleteDirectory();
+    thumbnail = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.RGB_565);
+    thumbnail.eraseColor(Color.RED);
+    loadRequests = new LinkedBlockingQueue<String>();
+    availableVideoIds = new LinkedBlockingQueue<String>();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    releaseCache();
+    deleteDirectory();
+    super.tearDown();
+  }
+
+  public void testMissThenMemoryHit() throws Exception {
+    createCache(2 * THUMBNAIL_BYTES, UNLIMITED_DISK_BYTES);
+    request("a");
+    assertEquals("a", takeLoadRequest());
+    load("a");
+    assertEquals("a", takeAvailableVideoId());
+
+    assertTrue(get("a"));
+    assertEquals(1, cache.getMemoryHitCount());
+    assertEquals(0, cache.getDiskHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  public void testDiskHitAfterEvictionFromMemory() throws Exception {
+    createCache(THUMBNAIL_BYTES, UNLIMITED_DISK_BYTES);
+    load("a");
+    load("b");
+    assertFalse(get("a"));
+
+    request("a");
+    assertEquals("a", takeAvailableVideoId());
+    assertTrue(loadRequests.isEmpty());
+    assertEquals(1, cache.getDiskHitCount());
+    assertEquals(0, cache.getMissCount());
+    assertTrue(get("a"));
+  }
+
+  public void testDiskHitAfterRestart() throws Exception {
+    createCache(THUMBNAIL_BYTES, UNLIMITED_DISK_BYTES);
+    load("a");
+    releaseCache();
+
+    createCache(THUMBNAIL_BYTES, UNLIMITED_DISK_BYTES);
+    assertFalse(get("a"));
+    request("a");
+    assertEquals("a", takeAvailableVideoId());
+    assertEquals(1, cache.getDiskHitCount());
+  }
+
+  public void testTrimsTheDiskToTheLimit() throws Exception {
+    long maxDiskBytes = measureMaxDiskBytes(3);
+    createCache(THUMBNAIL_BYTES, maxDiskBytes);
+    for (int i = 0; i < 10; i++) {
+      load("video" + i);
+      syncDisk();
+      assertTrue(totalFileBytes() <= maxDiskBytes);
+    }
+    assertEquals(3, countFiles());
+  }
+
+  public void testCountsTheFilesAlreadyOnDisk() throws Exception {
+    long maxDiskBytes = measureMaxDiskBytes(3);
+    createCache(THUMBNAIL_BYTES, UNLIMITED_DISK_BYTES);
+    load("a");
+    load("b");
+    load("c");
+    releaseCache();
+
+    // The running total starts from the files left by the previous cache.
+    createCache(THUMBNAIL_BYTES, maxDiskBytes);
+    load("d");
+    syncDisk();
+    assertEquals(3, countFiles());
+    assertTrue(new File(directory, "d.jpg").exists());
+  }
+
+  public void testRewritingAThumbnailKeepsTheOthers() throws Exception {
+    long maxDiskBytes = measureMaxDiskBytes(3);
+    createCache(THUMBNAIL_BYTES, maxDiskBytes);
+    load("a");
+    load("b");
+    load("c");
+    // Each write of "a" replaces its file, so the total stays within the limit.
+    for (int i = 0; i < 5; i++) {
+      load("a");
+    }
+    syncDisk();
+
+    assertEquals(3, countFiles());
+    assertTrue(new File(directory, "b.jpg").exists());
+    assertTrue(new File(directory, "c.jpg").exists());
+  }
+
+  private void createCache(final int maxMemoryBytes, final long maxDiskBytes) {
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        cache = new ThumbnailCache(new FakeSource(), directory, maxMemoryBytes, maxDiskBytes);
+        cache.setListener(new ThumbnailCache.Listener() {
+          @Override
+          public void onThumbnailAvailable(String videoId, Bitmap thumbnail) {
+            availableVideoIds.add(videoId);
+          }
+
+          @Override
+          public void onThumbnailUnavailable(String videoId) {
+            fail("Unavailable: " + videoId);
+          }
+        });
+      }
+    });
+  }
+
+  private void releaseCache() throws Exception {
+    if (cache != null) {
+      syncDisk();
+      getInstrumentation().runOnMainSync(new Runnable() {
+        @Override
+        public void run() {
+          cache.release();
+        }
+      });
+      cache = null;
+    }
+  }
+
+  /**
+   * Writes a thumbnail through a cache without a disk limit, and returns a limit with room for the
+   * given number of such files but not for one more. The directory is left empty.
+   */
+  private long measureMaxDiskBytes(int files) throws Exception {
+    createCache(THUMBNAIL_BYTES, UNLIMITED_DISK_BYTES);
+    load("measured");
+    releaseCache();
+    long fileBytes = new File(directory, "measured.jpg").length();
+    assertTrue(fileBytes > 0);
+    deleteDirectory();
+    return files * fileBytes + fileBytes / 2;
+  }
+
+  private void request(final String videoId) {
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        cache.request(videoId);
+      }
+    });
+  }
+
+  /**
+   * Delivers a thumbnail as the source would once loaded, which also writes it to disk.
+   */
+  private void load(final String videoId) {
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        cache.onThumbnailLoaded(videoId, thumbnail);
+      }
+    });
+    availableVideoIds.remove(videoId);
+  }
+
+  private boolean get(final String videoId) {
+    final boolean[] found = new boolean[1];
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        found[0] = cache.get(videoId) != null;
+      }
+    });
+    return found[0];
+  }
+
+  /**
+   * Waits until the disk thread has handled everything posted to it so far, by requesting a
+   * thumbnail which is on neither tier and waiting for the cache to hand it to the source.
+   */
+  private void syncDisk() throws Exception {
+    String videoId = "sync" + syncCount++;
+    request(videoId);
+    assertEquals(videoId, takeLoadRequest());
+  }
+
+  private String takeLoadRequest() throws InterruptedException {
+    return loadRequests.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private String takeAvailableVideoId() throws InterruptedException {
+    return availableVideoIds.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private int countFiles() {
+    File[] files = directory.listFiles();
+    return files == null ? 0 : files.length;
+  }
+
+  private long totalFileBytes() {
+    long totalBytes = 0;
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        totalBytes += file.length();
+      }
+    }
+    return totalBytes;
+  }
+
+  private void deleteDirectory() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  /**
+   * A source which only records the videos it is asked to load.
+   */
+  private class FakeSource implements VideoThumbnailSource {
+
+    @Override
+    public void setListener(Listener listener) {
+    }
+
+    @Override
+    public void load(String videoId) {
+      loadRequests.add(videoId);
+    }
+
+    @Override
+    public boolean cancel(String videoId) {
+      return loadRequests.remove(videoId);
+    }
+
+    @Override
+    public void release() {
+    }
+
+  }
+
+}
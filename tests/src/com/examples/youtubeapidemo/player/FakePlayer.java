@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.examples.youtubeapidemo.player;
+
+import com.google.android.youtube.player.YouTubePlayer;
+import com.google.android.youtube.player.YouTubePlayer.PlaybackEventListener;
+import com.google.android.youtube.player.YouTubePlayer.PlayerStateChangeListener;
+
+import android.os.SystemClock;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A {@link YouTubePlayer} which needs no YouTube service. It keeps the listeners set on it, so
+ * that a test can script their callbacks, and reports a position which advances with the uptime
+ * while it is playing. Every other call is ignored, and returns false, zero or null.
+ */
+final class FakePlayer implements InvocationHandler {
+
+  private final YouTubePlayer player;
+
+  private PlaybackEventListener playbackEventListener;
+  private PlayerStateChangeListener playerStateChangeListener;
+  private int positionMillis;
+  private final int durationMillis;
+  // The uptime at which the player started playing from positionMillis, or -1 if it is not.
+  private long playingSince = -1;
+
+  public FakePlayer(int durationMillis) {
+    this.durationMillis = durationMillis;
+    player = (YouTubePlayer) Proxy.newProxyInstance(YouTubePlayer.class.getClassLoader(),
+        new Class<?>[] {YouTubePlayer.class}, this);
+  }
+
+  public YouTubePlayer getPlayer() {
+    return player;
+  }
+
+  public PlaybackEventListener getPlaybackEventListener() {
+    return playbackEventListener;
+  }
+
+  public PlayerStateChangeListener getPlayerStateChangeListener() {
+    return playerStateChangeListener;
+  }
+
+  /** Starts advancing the position, without calling any listener. */
+  public void startPlaying() {
+    if (playingSince < 0) {
+      playingSince = SystemClock.uptimeMillis();
+    }
+  }
+
+  /** Stops advancing the position, without calling any listener. */
+  public void stopPlaying() {
+    positionMillis = getCurrentTimeMillis();
+    playingSince = -1;
+  }
+
+  private int getCurrentTimeMillis() {
+    if (playingSince < 0) {
+      return positionMillis;
+    }
+    long position = positionMillis + SystemClock.uptimeMillis() - playingSince;
+    return (int) Math.min(position, durationMillis);
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    String name = method.getName();
+    if (name.equals("setPlaybackEventListener")) {
+      playbackEventListener = (PlaybackEventListener) args[0];
+    } else if (name.equals("setPlayerStateChangeListener")) {
+      playerStateChangeListener = (PlayerStateChangeListener) args[0];
+    } else if (name.equals("getCurrentTimeMillis")) {
+      return getCurrentTimeMillis();
+    } else if (name.equals("getDurationMillis")) {
+      return durationMillis;
+    } else if (name.equals("isPlaying")) {
+      return playingSince >= 0;
+    } else if (name.equals("hashCode")) {
+      return System.identityHashCode(proxy);
+    } else if (name.equals("equals")) {
+      return proxy == args[0];
+    } else if (name.equals("toString")) {
+      return "FakePlayer";
+    }
+    return getDefaultValue(method.getReturnType());
+  }
+
+  private static Object getDefaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == float.class) {
+      return 0f;
+    }
+    return null;
+  }
+
+}
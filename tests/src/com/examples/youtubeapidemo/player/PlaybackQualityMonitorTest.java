@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.examples.youtubeapidemo.player;
+
+import com.google.android.youtube.player.YouTubePlayer.ErrorReason;
+import com.google.android.youtube.player.YouTubePlayer.PlaybackEventListener;
+import com.google.android.youtube.player.YouTubePlayer.PlayerStateChangeListener;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the metrics of a {@link PlaybackQualityMonitor} attached to a {@link FakePlayer}, whose
+ * callbacks are scripted at chosen times of a fake clock.
+ */
+public class PlaybackQualityMonitorTest extends TestCase {
+
+  private static final String VIDEO_ID = "abcdefghijk";
+  private static final int DURATION_MILLIS = 60000;
+
+  private long now;
+  private FakePlayer player;
+  private PlaybackQualityMonitor monitor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    monitor = new PlaybackQualityMonitor(new PlaybackQualityMonitor.Clock() {
+      @Override
+      public long uptimeMillis() {
+        return now;
+      }
+    });
+    player = new FakePlayer(DURATION_MILLIS);
+    monitor.attach(player.getPlayer(), null, null);
+  }
+
+  public void testAttachesToThePlayer() {
+    assertSame(monitor, player.getPlaybackEventListener());
+    assertSame(monitor, player.getPlayerStateChangeListener());
+  }
+
+  public void testCueToLoadedAndLoadedToStarted() {
+    startVideo(0, 300, 1000);
+    stateChanges().onVideoEnded();
+    startVideo(5000, 5100, 5400);
+
+    PlaybackQualityMonitor.Snapshot snapshot = monitor.getSnapshot();
+    assertEquals(2, snapshot.getCueCount());
+    assertEquals(2, snapshot.getLoadCount());
+    assertEquals(2, snapshot.getStartCount());
+    assertEquals(2, snapshot.getCueToLoaded().getCount());
+    assertEquals(200, snapshot.getCueToLoaded().getAverageMillis());
+    assertEquals(300, snapshot.getCueToLoaded().getMaxMillis());
+    assertEquals(2, snapshot.getLoadedToStarted().getCount());
+    assertEquals(500, snapshot.getLoadedToStarted().getAverageMillis());
+    assertEquals(700, snapshot.getLoadedToStarted().getMaxMillis());
+  }
+
+  public void testSeekLatency() {
+    startVideo(0, 100, 200);
+    // A seek which has to buffer ends when buffering does.
+    now = 2000;
+    playback().onSeekTo(30000);
+    playback().onBuffering(true);
+    now = 2250;
+    playback().onBuffering(false);
+    playback().onPlaying();
+    // A seek within the buffered part ends when playing resumes.
+    now = 4000;
+    playback().onSeekTo(10000);
+    now = 4100;
+    playback().onPlaying();
+
+    PlaybackQualityMonitor.Snapshot snapshot = monitor.getSnapshot();
+    assertEquals(2, snapshot.getSeekLatency().getCount());
+    assertEquals(175, snapshot.getSeekLatency().getAverageMillis());
+    assertEquals(250, snapshot.getSeekLatency().getMaxMillis());
+    // Buffering after a seek is part of the seek.
+    assertEquals(0, snapshot.getRebufferCount());
+  }
+
+  public void testErrorRatePerReason() {
+    cue(0);
+    stateChanges().onError(ErrorReason.NETWORK_ERROR);
+    cue(1000);
+    now = 1100;
+    stateChanges().onLoaded(VIDEO_ID);
+    stateChanges().onError(ErrorReason.NOT_PLAYABLE);
+    cue(2000);
+    stateChanges().onError(ErrorReason.NETWORK_ERROR);
+    startVideo(3000, 3100, 3200);
+
+    PlaybackQualityMonitor.Snapshot snapshot = monitor.getSnapshot();
+    assertEquals(4, snapshot.getCueCount());
+    assertEquals(2, snapshot.getErrorCount(ErrorReason.NETWORK_ERROR));
+    assertEquals(0.5f, snapshot.getErrorRate(ErrorReason.NETWORK_ERROR), 0.001f);
+    assertEquals(1, snapshot.getErrorCount(ErrorReason.NOT_PLAYABLE));
+    assertEquals(0.25f, snapshot.getErrorRate(ErrorReason.NOT_PLAYABLE), 0.001f);
+    assertEquals(0, snapshot.getErrorCount(ErrorReason.INTERNAL_ERROR));
+    assertEquals(0f, snapshot.getErrorRate(ErrorReason.INTERNAL_ERROR));
+    // Videos which failed are left out of the latencies they never completed.
+    assertEquals(2, snapshot.getCueToLoaded().getCount());
+    assertEquals(1, snapshot.getLoadedToStarted().getCount());
+  }
+
+  public void testStallEndedByPlaying() {
+    startStall();
+    playback().onBuffering(false);
+    playback().onPlaying();
+    playback().onPaused();
+    assertRebufferedUntilNow();
+  }
+
+  public void testStallEndedByPausing() {
+    startStall();
+    playback().onPaused();
+    assertRebufferedUntilNow();
+  }
+
+  public void testStallEndedByStopping() {
+    startStall();
+    playback().onStopped();
+    assertRebufferedUntilNow();
+  }
+
+  public void testStallEndedByError() {
+    startStall();
+    stateChanges().onError(ErrorReason.NETWORK_ERROR);
+    assertRebufferedUntilNow();
+  }
+
+  public void testStallEndedByCue() {
+    startStall();
+    cue(now);
+    assertRebufferedUntilNow();
+  }
+
+  private PlaybackEventListener playback() {
+    return player.getPlaybackEventListener();
+  }
+
+  private PlayerStateChangeListener stateChanges() {
+    return player.getPlayerStateChangeListener();
+  }
+
+  /**
+   * Cues a video, which the app reports to the monitor as the player does not.
+   */
+  private void cue(long cueTime) {
+    now = cueTime;
+    monitor.onCue();
+    player.getPlayer().cueVideo(VIDEO_ID);
+    stateChanges().onLoading();
+  }
+
+  /**
+   * Cues a video, and has the player load it and start playing it at the given times.
+   */
+  private void startVideo(long cueTime, long loadedTime, long startedTime) {
+    cue(cueTime);
+    now = loadedTime;
+    stateChanges().onLoaded(VIDEO_ID);
+    now = startedTime;
+    stateChanges().onVideoStarted();
+    playback().onPlaying();
+  }
+
+  /**
+   * Plays a video for 1000 ms, then has it stall for 500 ms.
+   */
+  private void startStall() {
+    startVideo(0, 0, 0);
+    now = 1000;
+    playback().onBuffering(true);
+    now = 1500;
+  }
+
+  private void assertRebufferedUntilNow() {
+    now = 10000;
+    PlaybackQualityMonitor.Snapshot snapshot = monitor.getSnapshot();
+    assertEquals(1, snapshot.getRebufferCount());
+    assertEquals(1, snapshot.getRebufferDuration().getCount());
+    assertEquals(500, snapshot.getRebufferDuration().getMaxMillis());
+    // 1000 ms of playing and 500 of rebuffering, with nothing counted after the stall ended.
+    assertEquals(1 / 3f, snapshot.getRebufferRatio(), 0.001f);
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.examples.youtubeapidemo.player;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+
+/**
+ * Measures the overhead of a {@link PositionSampler} on the main thread at 10, 30 and 60 samples
+ * per second, sampling a {@link FakePlayer} which plays for a fixed time. Logs the samples taken,
+ * the time per sample, and the CPU time of the main thread over the run, next to an idle run in
+ * which the sampler has no listener and so does not sample at all.
+ */
+public class PositionSamplerBenchmark extends InstrumentationTestCase {
+
+  private static final String TAG = "PositionSamplerBenchmark";
+
+  private static final int[] SAMPLES_PER_SECOND = {10, 30, 60};
+  private static final int RUN_MILLIS = 2000;
+  private static final int CAPACITY = 256;
+  private static final int DURATION_MILLIS = 60 * 60 * 1000;
+  private static final int WARMUP_ROUNDS = 3;
+
+  private final PositionSampler.Listener listener = new PositionSampler.Listener() {
+    @Override
+    public void onSample(int positionMillis, int durationMillis) {
+    }
+
+    @Override
+    public void onStallChanged(boolean stalled) {
+    }
+  };
+
+  public void testOverhead() throws Exception {
+    for (int samplesPerSecond : SAMPLES_PER_SECOND) {
+      long idleCpuNanos = 0;
+      long samplingCpuNanos = 0;
+      PositionSampler sampler = null;
+      for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+        idleCpuNanos = run(newSampler(samplesPerSecond), false);
+        sampler = newSampler(samplesPerSecond);
+        samplingCpuNanos = run(sampler, true);
+      }
+      int expectedSamples = RUN_MILLIS * samplesPerSecond / 1000;
+      assertTrue(sampler.getTotalSampleCount() >= expectedSamples / 2);
+      assertEquals(0, sampler.getStallCount());
+      Log.i(TAG, samplesPerSecond + " Hz: " + sampler.getTotalSampleCount() + " samples of "
+          + expectedSamples + " expected, " + sampler.getAverageSampleNanos()
+          + " ns per sample, main thread CPU " + samplingCpuNanos / 1000 + " us over "
+          + RUN_MILLIS + " ms, " + idleCpuNanos / 1000 + " us without a listener");
+    }
+  }
+
+  private PositionSampler newSampler(final int samplesPerSecond) {
+    final PositionSampler[] sampler = new PositionSampler[1];
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        sampler[0] = new PositionSampler(samplesPerSecond, CAPACITY);
+      }
+    });
+    return sampler[0];
+  }
+
+  /**
+   * Plays a fake player for {@link #RUN_MILLIS}, sampled with or without a listener.
+   *
+   * @return The CPU time of the main thread over the run.
+   */
+  private long run(final PositionSampler sampler, final boolean withListener) {
+    final FakePlayer player = new FakePlayer(DURATION_MILLIS);
+    final long[] cpuNanos = new long[1];
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        cpuNanos[0] = Debug.threadCpuTimeNanos();
+        player.startPlaying();
+        sampler.setPlayer(player.getPlayer());
+        sampler.setListener(withListener ? listener : null);
+        sampler.start();
+      }
+    });
+    SystemClock.sleep(RUN_MILLIS);
+    getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        sampler.stop();
+        player.stopPlaying();
+        cpuNanos[0] = Debug.threadCpuTimeNanos() - cpuNanos[0];
+      }
+    });
+    return cpuNanos[0];
+  }
+
+}
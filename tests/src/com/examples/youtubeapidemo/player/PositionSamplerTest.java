@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.player;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the checks of {@link PositionSampler}'s arguments.
+ */
+public class PositionSamplerTest extends TestCase {
+
+  public void testRejectsRatesOutOfRange() {
+    int[] rates = {Integer.MIN_VALUE, -1, 0, 1001, Integer.MAX_VALUE};
+    for (int rate : rates) {
+      try {
+        new PositionSampler(rate, 10);
+        fail("Accepted " + rate + " samples per second");
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  public void testRejectsCapacitiesBelowOne() {
+    int[] capacities = {Integer.MIN_VALUE, -1, 0};
+    for (int capacity : capacities) {
+      try {
+        new PositionSampler(10, capacity);
+        fail("Accepted a capacity of " + capacity);
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.trace;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+/**
+ * Tests that a {@link TraceRecorder} file wraps around, converts oldest event first, and is kept
+ * when the next process starts recording.
+ */
+public class TraceRecorderTest extends TestCase {
+
+  private static final int CAPACITY = 4;
+
+  private File file;
+  private File previousFile;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // The application may be recording already.
+    TraceRecorder.stop();
+    file = File.createTempFile("trace", ".bin");
+    previousFile = new File(file.getPath() + TraceRecorder.PREVIOUS_TRACE_SUFFIX);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    TraceRecorder.stop();
+    file.delete();
+    previousFile.delete();
+    super.tearDown();
+  }
+
+  public void testKeepsAllEventsUntilFull() throws Exception {
+    record(CAPACITY - 1);
+    String json = convert();
+    assertEventValues(json, 0, CAPACITY - 1);
+    assertTrue(json.contains("\"overwrittenEvents\":\"0\""));
+  }
+
+  public void testOverwritesOldestEventsOnceFull() throws Exception {
+    record(2 * CAPACITY + 1);
+    String json = convert();
+    assertEventValues(json, CAPACITY + 1, 2 * CAPACITY + 1);
+    assertTrue(json.contains("\"overwrittenEvents\":\"" + (CAPACITY + 1) + "\""));
+  }
+
+  public void testKeepsThePreviousTrace() throws Exception {
+    record(CAPACITY - 1);
+    assertFalse(previousFile.exists());
+
+    record(1);
+    assertEventValues(convert(previousFile), 0, CAPACITY - 1);
+    assertEventValues(convert(file), 0, 1);
+
+    // Only one previous trace is kept.
+    record(2);
+    assertEventValues(convert(previousFile), 0, 1);
+    assertEventValues(convert(file), 0, 2);
+  }
+
+  private void record(int count) {
+    assertTrue(TraceRecorder.start(file,
+        TraceRecorder.HEADER_SIZE + CAPACITY * TraceRecorder.RECORD_SIZE));
+    for (int i = 0; i < count; i++) {
+      TraceRecorder.record(TraceEvent.PLAYBACK_SEEK, "abcdefghijk", i);
+    }
+    TraceRecorder.stop();
+  }
+
+  private String convert() throws Exception {
+    return convert(file);
+  }
+
+  private static String convert(File file) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    InputStream in = new FileInputStream(file);
+    try {
+      TraceConverter.convert(in, out);
+    } finally {
+      in.close();
+    }
+    return out.toString("UTF-8");
+  }
+
+  /** Asserts that the trace holds the events of the given values, in order, and no others. */
+  private static void assertEventValues(String json, int start, int end) {
+    int index = 0;
+    for (int value = start; value < end; value++) {
+      index = json.indexOf("{\"value\":" + value + ",\"videoId\":\"abcdefghijk\"}", index);
+      assertTrue("Missing event " + value + " in " + json, index >= 0);
+    }
+    assertEquals(end - start, json.split("\"name\"", -1).length - 1);
+  }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.ui;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.util.Pair;
+
+import com.examples.youtubeapidemo.ui.ImageWallView.RenderMode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the cost of picking load targets on an {@link ImageWallView} with the rejection
+ * sampling picker it replaced, on walls of 10 to 10,000 cells most of which are hidden, and the
+ * frame durations of the two {@link RenderMode}s. Results are logged, in nanoseconds per operation
+ * or milliseconds per frame.
+ */
+public class ImageWallViewBenchmark extends AndroidTestCase {
+
+  private static final String TAG = "ImageWallViewBenchmark";
+
+  private static final int[] CELL_COUNTS = {10, 100, 1000, 10000};
+  private static final int CELL_SIZE = 10;
+  private static final float HIDDEN_FRACTION = 0.9f;
+  private static final int PICKS = 100000;
+  private static final int WARMUP_ROUNDS = 3;
+
+  // A wall the size of a 1280x720 screen, with thumbnails of the demo's size.
+  private static final int SCREEN_WIDTH = 1280;
+  private static final int SCREEN_HEIGHT = 720;
+  private static final int THUMBNAIL_WIDTH = 160;
+  private static final int THUMBNAIL_HEIGHT = 90;
+  private static final int FRAMES = 300;
+
+  private Random random;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    random = new Random(0);
+  }
+
+  public void testInitializeAllCells() {
+    for (int cells : CELL_COUNTS) {
+      long wallNanos = 0;
+      long baselineNanos = 0;
+      int cellCount = 0;
+      for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+        Grid grid = new Grid(cells);
+        ImageWallView wall = grid.newWall();
+        RejectionSamplingPicker baseline = grid.newBaseline();
+        List<Integer> order = grid.getShuffledCells(random, false);
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < order.size(); i++) {
+          int elementIdx = order.get(i);
+          wall.setImageDrawable(grid.getColumn(elementIdx), grid.getRow(elementIdx), null);
+        }
+        wallNanos = System.nanoTime() - startNanos;
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < order.size(); i++) {
+          baseline.setInitialized(order.get(i));
+        }
+        baselineNanos = System.nanoTime() - startNanos;
+
+        assertTrue(wall.allImagesLoaded());
+        cellCount = grid.getCellCount();
+      }
+      Log.i(TAG, "Initializing " + cellCount + " cells: " + wallNanos / cellCount
+          + " ns per cell, was " + baselineNanos / cellCount);
+    }
+  }
+
+  public void testGetNextLoadTargetWithMostCellsHidden() {
+    for (int cells : CELL_COUNTS) {
+      long wallNanos = 0;
+      long baselineNanos = 0;
+      int cellCount = 0;
+      for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+        Grid grid = new Grid(cells);
+        ImageWallView wall = grid.newWall();
+        RejectionSamplingPicker baseline = grid.newBaseline();
+        for (int elementIdx = 0; elementIdx < grid.getCellCount(); elementIdx++) {
+          wall.setImageDrawable(grid.getColumn(elementIdx), grid.getRow(elementIdx), null);
+          baseline.setInitialized(elementIdx);
+        }
+        List<Integer> innerCells = grid.getShuffledCells(random, true);
+        // Leave at least one cell visible, or the baseline would never return.
+        int hiddenCount = Math.min((int) (innerCells.size() * HIDDEN_FRACTION),
+            innerCells.size() - 1);
+        for (int i = 0; i < hiddenCount; i++) {
+          int elementIdx = innerCells.get(i);
+          wall.hideImage(grid.getColumn(elementIdx), grid.getRow(elementIdx));
+          baseline.hidden[elementIdx] = true;
+        }
+
+        long checksum = 0;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < PICKS; i++) {
+          checksum += wall.getNextLoadTarget();
+        }
+        wallNanos = System.nanoTime() - startNanos;
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < PICKS; i++) {
+          checksum += baseline.getNextLoadTarget().first;
+        }
+        baselineNanos = System.nanoTime() - startNanos;
+
+        long target = wall.getNextLoadTarget();
+        assertFalse(wall.isImageHidden(
+            ImageWallView.getTargetColumn(target), ImageWallView.getTargetRow(target)));
+        assertTrue(checksum != 0);
+        cellCount = grid.getCellCount();
+      }
+      Log.i(TAG, "Picking among " + cellCount + " cells, " + (int) (HIDDEN_FRACTION * 100)
+          + "% hidden: " + wallNanos / PICKS + " ns per pick, was " + baselineNanos / PICKS);
+    }
+  }
+
+  /**
+   * Draws every frame in full into a bitmap, so that both modes do the work of a frame in the
+   * benchmark, rather than recording display lists of very different sizes as they would when
+   * hardware accelerated.
+   */
+  public void testFrameDurationsPerRenderMode() {
+    Bitmap thumbnail = Bitmap.createBitmap(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT,
+        Bitmap.Config.RGB_565);
+    thumbnail.eraseColor(Color.GRAY);
+    Bitmap frame = Bitmap.createBitmap(SCREEN_WIDTH, SCREEN_HEIGHT, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(frame);
+    for (RenderMode mode : RenderMode.values()) {
+      ImageWallView wall = new ImageWallView(getContext(), THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, 0,
+          mode);
+      wall.layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+      // No cell is hidden, so the picker returns every cell which has no image yet.
+      while (!wall.allImagesLoaded()) {
+        long target = wall.getNextLoadTarget();
+        wall.setImageDrawable(ImageWallView.getTargetColumn(target),
+            ImageWallView.getTargetRow(target),
+            new BitmapDrawable(getContext().getResources(), thumbnail));
+      }
+
+      FrameDurationRecorder frameDurations = new FrameDurationRecorder();
+      for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+        frameDurations.reset();
+        for (int i = 0; i < FRAMES; i++) {
+          long startNanos = System.nanoTime();
+          wall.draw(canvas);
+          frameDurations.record(System.nanoTime() - startNanos);
+        }
+      }
+      Log.i(TAG, "Drawing a " + SCREEN_WIDTH + "x" + SCREEN_HEIGHT + " wall in " + mode
+          + " mode: " + frameDurations.getAverageMillis() + " ms per frame on average, 90th "
+          + "percentile " + frameDurations.getPercentileMillis(90) + " ms, max "
+          + frameDurations.getMaxMillis() + " ms");
+    }
+  }
+
+  /**
+   * The dimensions of a wall of about the given number of cells, in which cells are numbered
+   * column by column like in the wall itself.
+   */
+  private final class Grid {
+
+    private final int columns;
+    private final int rows;
+
+    public Grid(int cells) {
+      rows = Math.max(1, (int) Math.sqrt(cells));
+      // The wall always has a partly hidden column on either side.
+      columns = Math.max(3, cells / rows);
+    }
+
+    public ImageWallView newWall() {
+      ImageWallView wall = new ImageWallView(getContext(), CELL_SIZE, CELL_SIZE, 0,
+          RenderMode.CANVAS);
+      wall.layout(0, 0, (columns - 2) * CELL_SIZE, rows * CELL_SIZE);
+      return wall;
+    }
+
+    public RejectionSamplingPicker newBaseline() {
+      return new RejectionSamplingPicker(columns, rows);
+    }
+
+    public int getCellCount() {
+      return columns * rows;
+    }
+
+    public int getColumn(int elementIdx) {
+      return elementIdx / rows;
+    }
+
+    public int getRow(int elementIdx) {
+      return elementIdx % rows;
+    }
+
+    public List<Integer> getShuffledCells(Random random, boolean innerOnly) {
+      List<Integer> cells = new ArrayList<Integer>();
+      int start = innerOnly ? rows : 0;
+      int end = innerOnly ? (columns - 1) * rows : columns * rows;
+      for (int elementIdx = start; elementIdx < end; elementIdx++) {
+        cells.add(elementIdx);
+      }
+      Collections.shuffle(cells, random);
+      return cells;
+    }
+
+  }
+
+  /**
+   * The picker {@link ImageWallView#getNextLoadTarget()} used to have, which draws random cells
+   * until it finds a visible one, keeps the uninitialized cells in a list of boxed indices, and
+   * returns a new pair for every pick.
+   */
+  private static final class RejectionSamplingPicker {
+
+    private final Random random;
+    private final int numberOfColumns;
+    private final int numberOfRows;
+    private final List<Integer> unInitializedImages;
+    private final boolean[] hidden;
+
+    public RejectionSamplingPicker(int numberOfColumns, int numberOfRows) {
+      this.random = new Random();
+      this.numberOfColumns = numberOfColumns;
+      this.numberOfRows = numberOfRows;
+      this.unInitializedImages = new ArrayList<Integer>();
+      this.hidden = new boolean[numberOfColumns * numberOfRows];
+      for (int elementIdx = 0; elementIdx < hidden.length; elementIdx++) {
+        unInitializedImages.add(elementIdx);
+      }
+    }
+
+    public void setInitialized(int elementIdx) {
+      unInitializedImages.remove(Integer.valueOf(elementIdx));
+    }
+
+    public Pair<Integer, Integer> getNextLoadTarget() {
+      int nextElement;
+      do {
+        if (unInitializedImages.isEmpty()) {
+          // Don't choose the first or last columns (since they are partly hidden)
+          nextElement = random.nextInt((numberOfColumns - 2) * numberOfRows) + numberOfRows;
+        } else {
+          nextElement = unInitializedImages.get(random.nextInt(unInitializedImages.size()));
+        }
+      } while (hidden[nextElement]);
+
+      int col = nextElement / numberOfRows;
+      int row = nextElement % numberOfRows;
+      return new Pair<Integer, Integer>(col, row);
+    }
+
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares building a log line with {@link LineBuffer} with the String.format based formatting it
+ * replaced. Results are logged, in nanoseconds per line.
+ */
+public class LineBufferBenchmark extends TestCase {
+
+  private static final String TAG = "LineBufferBenchmark";
+
+  private static final int LINES = 100000;
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int DURATION_MILLIS = 4000000;
+
+  public void testFormatLogLine() {
+    long bufferNanos = 0;
+    long formatNanos = 0;
+    for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+      LineBuffer line = new LineBuffer(64);
+      int length = 0;
+      long startNanos = System.nanoTime();
+      for (int i = 0; i < LINES; i++) {
+        line.clear().append("\tPLAYING (").appendTime(i * 37).append('/')
+            .appendTime(DURATION_MILLIS).append(')');
+        length += line.length();
+      }
+      bufferNanos = System.nanoTime() - startNanos;
+
+      startNanos = System.nanoTime();
+      for (int i = 0; i < LINES; i++) {
+        String text = String.format("(%s/%s)", LineBufferTest.formatTime(i * 37),
+            LineBufferTest.formatTime(DURATION_MILLIS));
+        length -= ("\tPLAYING " + text).length();
+      }
+      formatNanos = System.nanoTime() - startNanos;
+
+      assertEquals(0, length);
+    }
+    Log.i(TAG, "Formatting a log line: " + bufferNanos / LINES + " ns per line, was "
+        + formatNanos / LINES);
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+import android.os.Debug;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests {@link LineBuffer}, and that it stops allocating once it has grown.
+ */
+public class LineBufferTest extends TestCase {
+
+  private static final int[] TIMES = {0, 999, 1000, 59999, 60000, 3599999, 3600000, 36000000,
+      Integer.MAX_VALUE};
+
+  public void testAppendTimeMatchesFormatTime() {
+    LineBuffer line = new LineBuffer(1);
+    for (int millis : TIMES) {
+      assertEquals(formatTime(millis), line.clear().appendTime(millis).toString());
+    }
+    for (int millis = 0; millis < 7200000; millis += 997) {
+      assertEquals(formatTime(millis), line.clear().appendTime(millis).toString());
+    }
+  }
+
+  public void testAppend() {
+    LineBuffer other = new LineBuffer(4).append("LOADED ").append("abc");
+    LineBuffer line = new LineBuffer(1).append('[').append(other).append(7, 3).append(']');
+    assertEquals("[LOADED abc007]", line.toString());
+    assertEquals(line.length(), line.toString().length());
+  }
+
+  public void testAppendingAllocatesNothingOnceGrown() {
+    LineBuffer line = new LineBuffer(1);
+    LineBuffer state = new LineBuffer(1).append("LOADED abcdefghijk");
+    appendLines(line, state, 1);
+
+    Debug.startAllocCounting();
+    try {
+      Debug.resetThreadAllocCount();
+      appendLines(line, state, 1000);
+      assertEquals(0, Debug.getThreadAllocCount());
+    } finally {
+      Debug.stopAllocCounting();
+    }
+  }
+
+  private static void appendLines(LineBuffer line, LineBuffer state, int count) {
+    for (int i = 0; i < count; i++) {
+      line.clear().append("\tPLAYING (").appendTime(i * 1000).append('/')
+          .appendTime(Integer.MAX_VALUE).append(") ").append(state);
+    }
+  }
+
+  /** The formatting {@link LineBuffer#appendTime(int)} replaced. */
+  static String formatTime(int millis) {
+    int seconds = millis / 1000;
+    int minutes = seconds / 60;
+    int hours = minutes / 60;
+
+    return (hours == 0 ? "" : hours + ":")
+        + String.format("%02d:%02d", minutes % 60, seconds % 60);
+  }
+
+}
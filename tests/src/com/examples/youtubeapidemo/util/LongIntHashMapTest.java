@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests {@link LongIntHashMap} against a {@link HashMap}.
+ */
+public class LongIntHashMapTest extends TestCase {
+
+  public void testZeroKey() {
+    LongIntHashMap map = new LongIntHashMap();
+    assertEquals(-1, map.get(0, -1));
+    map.put(0, 5);
+    assertTrue(map.containsKey(0));
+    assertEquals(1, map.size());
+    assertEquals(5, map.remove(0, -1));
+    assertEquals(-1, map.remove(0, -1));
+    assertTrue(map.isEmpty());
+  }
+
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    LongIntHashMap map = new LongIntHashMap();
+    Map<Long, Integer> expected = new HashMap<Long, Integer>();
+    for (int i = 0; i < 100000; i++) {
+      // Few distinct keys, so that keys are often replaced and removed, with colliding runs.
+      long key = random.nextInt(1000) * 0x100000000L;
+      int value = random.nextInt();
+      if (random.nextBoolean()) {
+        map.put(key, value);
+        expected.put(key, value);
+      } else {
+        Integer removed = expected.remove(key);
+        assertEquals(removed == null ? -1 : removed.intValue(), map.remove(key, -1));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (long key = 0; key < 1000; key++) {
+      Integer value = expected.get(key * 0x100000000L);
+      assertEquals(value == null ? -1 : value.intValue(), map.get(key * 0x100000000L, -1));
+    }
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertFalse(map.containsKey(0x100000000L));
+  }
+
+}
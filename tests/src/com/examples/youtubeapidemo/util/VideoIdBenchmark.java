@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.util;
+
+import android.util.Log;
+
+import com.examples.youtubeapidemo.list.VideoEntry;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares {@link LongHashMap} and {@link LongHashSet} keyed by packed video ids with the
+ * {@link HashMap} and {@link HashSet} keyed by video id strings they replaced, and measures the
+ * cost of {@link VideoEntry#getVideoId()}. Results are logged, in nanoseconds per operation.
+ */
+public class VideoIdBenchmark extends TestCase {
+
+  private static final String TAG = "VideoIdBenchmark";
+
+  private static final int[] ENTRY_COUNTS = {1000, 100000};
+  private static final int LOOKUPS = 1000000;
+  private static final int WARMUP_ROUNDS = 3;
+
+  private Random random;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    random = new Random(0);
+  }
+
+  public void testPackUnpack() {
+    for (int i = 0; i < 1000; i++) {
+      String videoId = newVideoId(random);
+      assertTrue(VideoId.isPackable(videoId));
+      assertEquals(videoId, VideoId.unpack(VideoId.pack(videoId)));
+    }
+    assertFalse(VideoId.isPackable("PL12345678"));
+    assertFalse(VideoId.isPackable("ABCDEFGHIJB"));
+  }
+
+  public void testMapLookups() {
+    for (int entries : ENTRY_COUNTS) {
+      long longNanos = 0;
+      long stringNanos = 0;
+      for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+        String[] videoIds = newVideoIds(entries);
+        long[] packedIds = new long[entries];
+        LongHashMap<String> longMap = new LongHashMap<String>();
+        Map<String, String> stringMap = new HashMap<String, String>();
+        for (int i = 0; i < entries; i++) {
+          packedIds[i] = VideoId.pack(videoIds[i]);
+          longMap.put(packedIds[i], videoIds[i]);
+          stringMap.put(videoIds[i], videoIds[i]);
+        }
+
+        int hits = 0;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+          if (longMap.get(packedIds[i % entries]) != null) {
+            hits++;
+          }
+        }
+        longNanos = System.nanoTime() - startNanos;
+
+        startNanos = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+          if (stringMap.get(videoIds[i % entries]) != null) {
+            hits++;
+          }
+        }
+        stringNanos = System.nanoTime() - startNanos;
+
+        assertEquals(2 * LOOKUPS, hits);
+      }
+      Log.i(TAG, "Map lookups among " + entries + " entries: " + longNanos / LOOKUPS
+          + " ns per lookup, was " + stringNanos / LOOKUPS);
+    }
+  }
+
+  public void testSetAdds() {
+    for (int entries : ENTRY_COUNTS) {
+      long longNanos = 0;
+      long stringNanos = 0;
+      for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+        String[] videoIds = newVideoIds(entries);
+        long[] packedIds = new long[entries];
+        for (int i = 0; i < entries; i++) {
+          packedIds[i] = VideoId.pack(videoIds[i]);
+        }
+
+        // Every id is added twice, like videos listed twice in the catalog.
+        int added = 0;
+        long startNanos = System.nanoTime();
+        LongHashSet longSet = new LongHashSet();
+        for (int i = 0; i < 2 * entries; i++) {
+          if (longSet.add(packedIds[i % entries])) {
+            added++;
+          }
+        }
+        longNanos = System.nanoTime() - startNanos;
+
+        startNanos = System.nanoTime();
+        Set<String> stringSet = new HashSet<String>();
+        for (int i = 0; i < 2 * entries; i++) {
+          if (stringSet.add(videoIds[i % entries])) {
+            added++;
+          }
+        }
+        stringNanos = System.nanoTime() - startNanos;
+
+        assertEquals(2 * entries, added);
+      }
+      Log.i(TAG, "Adding " + entries + " entries twice: " + longNanos / (2 * entries)
+          + " ns per add, was " + stringNanos / (2 * entries));
+    }
+  }
+
+  public void testGetVideoId() {
+    int entries = ENTRY_COUNTS[0];
+    long cachedNanos = 0;
+    long unpackNanos = 0;
+    for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+      String[] videoIds = newVideoIds(entries);
+      VideoEntry[] videoEntries = new VideoEntry[entries];
+      for (int i = 0; i < entries; i++) {
+        videoEntries[i] = new VideoEntry(videoIds[i], videoIds[i]);
+      }
+
+      int length = 0;
+      long startNanos = System.nanoTime();
+      for (int i = 0; i < LOOKUPS; i++) {
+        length += videoEntries[i % entries].getVideoId().length();
+      }
+      cachedNanos = System.nanoTime() - startNanos;
+
+      // What getVideoId() used to do on every call.
+      startNanos = System.nanoTime();
+      for (int i = 0; i < LOOKUPS; i++) {
+        length += VideoId.unpack(videoEntries[i % entries].getPackedVideoId()).length();
+      }
+      unpackNanos = System.nanoTime() - startNanos;
+
+      assertEquals(2 * LOOKUPS * VideoId.LENGTH, length);
+    }
+    Log.i(TAG, "getVideoId(): " + cachedNanos / LOOKUPS + " ns per call, was "
+        + unpackNanos / LOOKUPS);
+  }
+
+  private String[] newVideoIds(int count) {
+    // Packed ids are distinct exactly when the ids are.
+    LongHashSet packedIds = new LongHashSet(count);
+    String[] videoIds = new String[count];
+    for (int i = 0; i < count; i++) {
+      String videoId;
+      do {
+        videoId = newVideoId(random);
+      } while (!packedIds.add(VideoId.pack(videoId)));
+      videoIds[i] = videoId;
+    }
+    return videoIds;
+  }
+
+  private static String newVideoId(Random random) {
+    return VideoId.unpack(random.nextLong());
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.wall;
+
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import junit.framework.Assert;
+
+/**
+ * A {@link ThumbnailSource} of a playlist of a given length, whose loads only complete when the
+ * test says so, in the order they were started. It can be released and initialized again like
+ * {@link YouTubeThumbnailSource}, abandoning the loads in flight.
+ */
+final class FakeThumbnailSource implements ThumbnailSource {
+
+  private final int playlistLength;
+  private final boolean[] ready;
+  // The position being loaded by each slot, or -1, and the order in which loads were started.
+  private final int[] positions;
+  private final long[] startOrder;
+  private final Drawable thumbnail;
+
+  private Listener listener;
+  private long startedLoads;
+
+  public FakeThumbnailSource(int slotCount, int playlistLength) {
+    this.playlistLength = playlistLength;
+    ready = new boolean[slotCount];
+    positions = new int[slotCount];
+    startOrder = new long[slotCount];
+    for (int slot = 0; slot < slotCount; slot++) {
+      positions[slot] = -1;
+    }
+    thumbnail = new ColorDrawable(Color.RED);
+  }
+
+  /** Makes every slot ready, like a successful initialization of all the loaders. */
+  public void initialize() {
+    for (int slot = 0; slot < ready.length; slot++) {
+      if (!ready[slot]) {
+        ready[slot] = true;
+        listener.onSlotReady(slot);
+      }
+    }
+  }
+
+  /** Releases every slot, abandoning the loads in flight. */
+  public void release() {
+    for (int slot = 0; slot < ready.length; slot++) {
+      ready[slot] = false;
+      positions[slot] = -1;
+    }
+  }
+
+  /** Returns the number of loads in flight. */
+  public int getLoadingCount() {
+    int count = 0;
+    for (int position : positions) {
+      if (position >= 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public long getStartedLoadCount() {
+    return startedLoads;
+  }
+
+  /**
+   * Completes the oldest loads in flight, failing those past the end of the playlist.
+   *
+   * @return The number of loads completed.
+   */
+  public int completeLoads(int count) {
+    int completed = 0;
+    for (; completed < count; completed++) {
+      int oldest = -1;
+      for (int slot = 0; slot < positions.length; slot++) {
+        if (positions[slot] >= 0 && (oldest < 0 || startOrder[slot] < startOrder[oldest])) {
+          oldest = slot;
+        }
+      }
+      if (oldest < 0) {
+        break;
+      }
+      int position = positions[oldest];
+      positions[oldest] = -1;
+      if (position < playlistLength) {
+        listener.onThumbnailLoaded(oldest, position, thumbnail, "video" + position,
+            position < playlistLength - 1);
+      } else {
+        listener.onThumbnailError(oldest, position);
+      }
+    }
+    return completed;
+  }
+
+  @Override
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public int getSlotCount() {
+    return ready.length;
+  }
+
+  @Override
+  public boolean isSlotReady(int slot) {
+    return ready[slot];
+  }
+
+  @Override
+  public void load(int slot, int position) {
+    Assert.assertTrue("Loading into a released slot", ready[slot]);
+    Assert.assertEquals("Loading into a busy slot", -1, positions[slot]);
+    positions[slot] = position;
+    startOrder[slot] = startedLoads++;
+  }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.wall;
+
+import com.examples.youtubeapidemo.wall.VideoWallStateMachine.Event;
+
+import junit.framework.Assert;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * A video wall without views or players, which carries out the actions of a
+ * {@link VideoWallStateMachine} by keeping count of thumbnails, flips and videos, and reports back
+ * the events a real wall would. Actions which the wall could not carry out, such as flipping a
+ * thumbnail which is not there, fail the test.
+ */
+final class SimulatedWall {
+
+  private final VideoWallStateMachine stateMachine;
+  // The event ending each running flip, oldest first.
+  private final LinkedList<Event> runningFlips;
+  private final int cellCount;
+
+  private int flipLimit;
+  private int filledCells;
+  private int readyThumbnails;
+  private boolean visibleCueing;
+  private boolean standbyCueing;
+  private boolean standbyCued;
+  private boolean playing;
+  private boolean paused;
+
+  private int startedFlips;
+  private int playedVideos;
+  private int lastActions;
+
+  /**
+   * @param flipLimit The initial maximum number of concurrent flips.
+   * @param cellCount The number of cells the wall has to fill before it plays videos.
+   */
+  public SimulatedWall(int flipLimit, int cellCount) {
+    this.cellCount = cellCount;
+    stateMachine = new VideoWallStateMachine();
+    runningFlips = new LinkedList<Event>();
+    setFlipLimit(flipLimit);
+  }
+
+  public VideoWallStateMachine getStateMachine() {
+    return stateMachine;
+  }
+
+  public void setFlipLimit(int flipLimit) {
+    this.flipLimit = flipLimit;
+    stateMachine.setMaxConcurrentFlips(flipLimit);
+  }
+
+  public int getFlipLimit() {
+    return flipLimit;
+  }
+
+  /**
+   * Reports an event, carries out the actions of its transition and those of the events held back
+   * while paused, one transition at a time like the real wall.
+   *
+   * @return The actions of all the transitions together.
+   */
+  public int send(Event event) {
+    if (event == Event.PAUSE) {
+      paused = true;
+    } else if (event == Event.RESUME) {
+      paused = false;
+    }
+    int actions = perform(stateMachine.handle(event));
+    while (stateMachine.hasPendingEvent()) {
+      actions |= perform(stateMachine.handlePendingEvent());
+    }
+    lastActions = actions;
+    return actions;
+  }
+
+  public int getLastActions() {
+    return lastActions;
+  }
+
+  public void start() {
+    send(Event.RESUME);
+    send(Event.START);
+  }
+
+  public void addThumbnail() {
+    readyThumbnails++;
+    send(Event.THUMBNAIL_READY);
+  }
+
+  public boolean hasRunningFlip() {
+    return !runningFlips.isEmpty();
+  }
+
+  public int getRunningFlipCount() {
+    return runningFlips.size();
+  }
+
+  /**
+   * Finishes the flip which started first, reporting that the wall is filled if it now is.
+   */
+  public void finishOldestFlip() {
+    Event event = runningFlips.removeFirst();
+    send(event == Event.FLIP_DONE && filledCells >= cellCount ? Event.WALL_FILLED : event);
+  }
+
+  public void finishAllFlips() {
+    while (hasRunningFlip()) {
+      finishOldestFlip();
+    }
+  }
+
+  public boolean isVisibleCueing() {
+    return visibleCueing;
+  }
+
+  public void loadVisibleVideo() {
+    visibleCueing = false;
+    send(Event.VIDEO_LOADED);
+  }
+
+  public boolean isStandbyCueing() {
+    return standbyCueing;
+  }
+
+  public void loadStandbyVideo() {
+    standbyCueing = false;
+    standbyCued = true;
+    send(Event.STANDBY_LOADED);
+  }
+
+  public void failStandbyVideo() {
+    standbyCueing = false;
+    standbyCued = false;
+    send(Event.STANDBY_ERROR);
+  }
+
+  public boolean isPlaying() {
+    return playing;
+  }
+
+  public void endVideo() {
+    playing = false;
+    send(Event.VIDEO_ENDED);
+  }
+
+  public void failVisibleVideo() {
+    visibleCueing = false;
+    playing = false;
+    send(Event.VIDEO_ERROR);
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
+  public int getReadyThumbnailCount() {
+    return readyThumbnails;
+  }
+
+  /** Returns the number of flips started so far. */
+  public int getStartedFlipCount() {
+    return startedFlips;
+  }
+
+  public int getPlayedVideoCount() {
+    return playedVideos;
+  }
+
+  /**
+   * Reports a random event which the wall could send in its current state.
+   *
+   * @param maxFlipLimit The highest flip limit to switch to.
+   */
+  public void step(Random random, int maxFlipLimit) {
+    int dice = random.nextInt(100);
+    if (dice < 30) {
+      if (readyThumbnails < 8) {
+        addThumbnail();
+      }
+    } else if (dice < 55) {
+      if (hasRunningFlip()) {
+        finishOldestFlip();
+      }
+    } else if (dice < 75) {
+      send(Event.FLIP_TIMER);
+    } else if (dice < 83) {
+      if (visibleCueing) {
+        loadVisibleVideo();
+      }
+    } else if (dice < 88) {
+      if (standbyCueing) {
+        loadStandbyVideo();
+      }
+    } else if (dice < 93) {
+      if (playing) {
+        endVideo();
+      }
+    } else if (dice < 94) {
+      if (visibleCueing || playing) {
+        failVisibleVideo();
+      }
+    } else if (dice < 95) {
+      if (standbyCueing) {
+        failStandbyVideo();
+      }
+    } else if (dice < 97) {
+      send(paused ? Event.RESUME : Event.PAUSE);
+    } else {
+      setFlipLimit(1 + random.nextInt(maxFlipLimit));
+    }
+  }
+
+  /**
+   * Reports random events until the wall has gone the given number of steps without playing a
+   * video while resumed. A wall which keeps flipping thumbnails but never gets to the next video
+   * counts as stalled.
+   *
+   * @return The step at which the wall stalled, or -1 if it kept going for all the steps.
+   */
+  public int runUntilStall(Random random, int steps, int maxFlipLimit, int stallSteps) {
+    int lastPlayedVideos = playedVideos;
+    int idleSteps = 0;
+    for (int i = 0; i < steps; i++) {
+      step(random, maxFlipLimit);
+      if (playedVideos != lastPlayedVideos || paused) {
+        lastPlayedVideos = playedVideos;
+        idleSteps = 0;
+      } else if (++idleSteps >= stallSteps) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int perform(int actions) {
+    // In the order the actions are declared, like the real wall.
+    if ((actions & VideoWallStateMachine.ACTION_RELEASE_STANDBY_THUMBNAIL) != 0) {
+      standbyCueing = false;
+      standbyCued = false;
+    }
+    if ((actions & VideoWallStateMachine.ACTION_HIDE_VIDEO) != 0) {
+      playing = false;
+    }
+    if ((actions & VideoWallStateMachine.ACTION_PROMOTE_STANDBY) != 0) {
+      Assert.assertTrue("Promoted a standby player which is not cued", standbyCued);
+      standbyCued = false;
+      visibleCueing = false;
+    }
+    if ((actions & VideoWallStateMachine.ACTION_CUE_VIDEO) != 0) {
+      takeThumbnail();
+      visibleCueing = true;
+    }
+    if ((actions & VideoWallStateMachine.ACTION_PREPARE_STANDBY) != 0) {
+      takeThumbnail();
+      standbyCueing = true;
+    }
+    if ((actions & VideoWallStateMachine.ACTION_FLIP_THUMBNAIL) != 0) {
+      takeThumbnail();
+      filledCells++;
+      startFlip(Event.FLIP_DONE);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_FLIP_OUT_VIDEO) != 0) {
+      takeThumbnail();
+      startFlip(Event.VIDEO_FLIP_DONE);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_FLIP_IN_VIDEO) != 0) {
+      startFlip(Event.VIDEO_FLIP_DONE);
+    }
+    if ((actions & VideoWallStateMachine.ACTION_PLAY_VIDEO) != 0) {
+      Assert.assertFalse("Played a video while another one is playing", playing);
+      playing = true;
+      playedVideos++;
+    }
+    return actions;
+  }
+
+  private void takeThumbnail() {
+    Assert.assertTrue("Took a thumbnail which is not ready", readyThumbnails > 0);
+    readyThumbnails--;
+  }
+
+  private void startFlip(Event endEvent) {
+    Assert.assertFalse("Flipped while paused", paused);
+    runningFlips.addLast(endEvent);
+    startedFlips++;
+  }
+
+}
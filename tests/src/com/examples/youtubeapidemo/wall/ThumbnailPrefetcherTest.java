@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.wall;
+
+import android.graphics.drawable.Drawable;
+import android.test.AndroidTestCase;
+
+import com.examples.youtubeapidemo.ui.CellBitmapPool;
+
+/**
+ * Tests {@link ThumbnailPrefetcher} against a {@link FakeThumbnailSource} whose loads complete
+ * late, when the test lets them.
+ */
+public class ThumbnailPrefetcherTest extends AndroidTestCase {
+
+  private static final int SLOTS = 4;
+  private static final int CAPACITY = 6;
+  private static final int PLAYLIST_LENGTH = 10;
+
+  private FakeThumbnailSource source;
+  private CellBitmapPool bitmapPool;
+  private ThumbnailPrefetcher prefetcher;
+  private int readyNotifications;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    source = new FakeThumbnailSource(SLOTS, PLAYLIST_LENGTH);
+    bitmapPool = new CellBitmapPool(getContext().getResources(), 16, 9, CAPACITY);
+    prefetcher = new ThumbnailPrefetcher(source, bitmapPool, CAPACITY,
+        new ThumbnailPrefetcher.Listener() {
+          @Override
+          public void onThumbnailReady() {
+            readyNotifications++;
+          }
+        });
+    source.initialize();
+    prefetcher.start();
+  }
+
+  public void testLoadsNoMoreThanTheQueueHolds() {
+    assertEquals(SLOTS, source.getLoadingCount());
+    assertEquals(SLOTS, source.completeLoads(SLOTS));
+    assertEquals(SLOTS, readyNotifications);
+    assertEquals(CAPACITY - SLOTS, source.getLoadingCount());
+
+    source.completeLoads(SLOTS);
+    assertEquals(0, source.getLoadingCount());
+    assertEquals("video0", prefetcher.peekVideoId());
+    takeThumbnail();
+    assertEquals(1, source.getLoadingCount());
+  }
+
+  public void testStopsAndResumes() {
+    prefetcher.stop();
+    source.completeLoads(SLOTS);
+    assertEquals(0, source.getLoadingCount());
+    prefetcher.start();
+    assertEquals(CAPACITY - SLOTS, source.getLoadingCount());
+  }
+
+  public void testWrapsAroundThePlaylist() {
+    for (int i = 0; i < 3 * PLAYLIST_LENGTH; i++) {
+      // Until the end of the playlist is known, loads past it are started, and fail.
+      while (!prefetcher.hasReadyThumbnail()) {
+        assertEquals(1, source.completeLoads(1));
+      }
+      assertEquals("video" + (i % PLAYLIST_LENGTH), prefetcher.peekVideoId());
+      takeThumbnail();
+    }
+  }
+
+  public void testRecoversSlotsReleasedWithLoadsInFlight() {
+    source.release();
+    assertEquals(0, source.getLoadingCount());
+    source.initialize();
+    assertEquals(SLOTS, source.getLoadingCount());
+
+    // Releasing again, this time with thumbnails waiting, leaves room for fewer loads.
+    source.completeLoads(SLOTS);
+    source.release();
+    source.initialize();
+    assertEquals(CAPACITY - SLOTS, source.getLoadingCount());
+    for (int i = 0; i < 2 * CAPACITY; i++) {
+      source.completeLoads(SLOTS);
+      while (prefetcher.hasReadyThumbnail()) {
+        takeThumbnail();
+      }
+    }
+    assertEquals(SLOTS, source.getLoadingCount());
+  }
+
+  private void takeThumbnail() {
+    Drawable thumbnail = prefetcher.takeThumbnail();
+    assertNotNull(thumbnail);
+    bitmapPool.release(thumbnail);
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.wall;
+
+import android.util.Log;
+
+import com.examples.youtubeapidemo.wall.VideoWallStateMachine.Event;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Runs millions of events through simulated video walls, failing if a wall stops playing videos,
+ * and measures how long the {@link VideoWallStateMachine} takes to handle them. Results are
+ * logged, in nanoseconds per event.
+ */
+public class VideoWallStateMachineBenchmark extends TestCase {
+
+  private static final String TAG = "VideoWallStateMachineBenchmark";
+
+  private static final int[] FLIP_LIMITS = {1, 2, 4, 8};
+  private static final int CELL_COUNT = 100;
+  private static final int EVENTS = 2000000;
+  private static final int STALL_STEPS = 10000;
+  private static final int REPLAYS = 5;
+
+  public void testSimulatedWallCycles() {
+    Random random = new Random(0);
+    for (int flipLimit : FLIP_LIMITS) {
+      for (int doubleBuffered = 0; doubleBuffered < 2; doubleBuffered++) {
+        SimulatedWall wall = new SimulatedWall(flipLimit, CELL_COUNT);
+        if (doubleBuffered == 1) {
+          wall.send(Event.STANDBY_AVAILABLE);
+        }
+        wall.start();
+
+        long startNanos = System.nanoTime();
+        int stallStep = wall.runUntilStall(random, EVENTS, flipLimit, STALL_STEPS);
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        assertEquals("Stalled in " + wall.getStateMachine().getState() + " with flip limit "
+            + flipLimit, -1, stallStep);
+        Log.i(TAG, "Flip limit " + flipLimit + (doubleBuffered == 1 ? ", double buffered" : "")
+            + ": " + wall.getPlayedVideoCount() + " videos and " + wall.getStartedFlipCount()
+            + " flips in " + EVENTS + " events, " + wall.getStateMachine().getCueTimeoutCount()
+            + " cue timeouts, " + elapsedNanos / EVENTS + " ns per simulated event");
+      }
+    }
+  }
+
+  /**
+   * Measures the state machine alone, by replaying a recorded trace without the simulation.
+   */
+  public void testHandle() {
+    SimulatedWall wall = new SimulatedWall(1, CELL_COUNT);
+    wall.getStateMachine().setTraceCapacity(EVENTS);
+    wall.send(Event.STANDBY_AVAILABLE);
+    wall.start();
+    Random random = new Random(0);
+    Event[] trace;
+    do {
+      for (int i = 0; i < EVENTS; i++) {
+        wall.step(random, 1);
+      }
+      trace = wall.getStateMachine().getTrace();
+    } while (trace.length < EVENTS);
+    int[] flipLimits = wall.getStateMachine().getTraceFlipLimits();
+
+    long bestNanos = Long.MAX_VALUE;
+    for (int i = 0; i < REPLAYS; i++) {
+      long startNanos = System.nanoTime();
+      VideoWallStateMachine replayed = VideoWallStateMachine.replay(trace, flipLimits, 0);
+      bestNanos = Math.min(bestNanos, System.nanoTime() - startNanos);
+      assertNotNull(replayed.getState());
+    }
+    Log.i(TAG, "Handled " + trace.length + " events in " + bestNanos / trace.length
+        + " ns per event");
+  }
+
+}
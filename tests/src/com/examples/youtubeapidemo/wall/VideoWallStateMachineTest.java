@@ -0,0 +1,242 @@
+/*
+ * Copyright 2012 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.examples.youtubeapidemo.wall;
+
+import com.examples.youtubeapidemo.wall.VideoWallStateMachine.Event;
+import com.examples.youtubeapidemo.wall.VideoWallStateMachine.State;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for {@link VideoWallStateMachine}, driven through a {@link SimulatedWall}.
+ */
+public class VideoWallStateMachineTest extends TestCase {
+
+  private static final int MAX_FLIP_LIMIT = 6;
+  private static final int CELL_COUNT = 100;
+  private static final int RANDOM_STEPS = 100000;
+  private static final int STALL_STEPS = 10000;
+
+  public void testStartFlipsThumbnailsUpToTheFlipLimit() {
+    for (int flipLimit = 1; flipLimit <= MAX_FLIP_LIMIT; flipLimit++) {
+      SimulatedWall wall = new SimulatedWall(flipLimit, CELL_COUNT);
+      wall.start();
+      for (int i = 0; i < MAX_FLIP_LIMIT + 2; i++) {
+        wall.addThumbnail();
+      }
+      assertEquals(State.LOADING_THUMBNAILS, wall.getStateMachine().getState());
+      assertEquals(flipLimit, wall.getRunningFlipCount());
+    }
+  }
+
+  public void testVideoCycle() {
+    SimulatedWall wall = new SimulatedWall(1, 1);
+    wall.start();
+    wall.addThumbnail();
+    wall.finishOldestFlip();
+    assertEquals(State.VIDEO_FLIPPED_OUT, wall.getStateMachine().getState());
+
+    wall.addThumbnail();
+    assertEquals(State.VIDEO_LOADING, wall.getStateMachine().getState());
+    assertTrue(wall.isVisibleCueing());
+    wall.loadVisibleVideo();
+    assertEquals(State.VIDEO_CUED, wall.getStateMachine().getState());
+
+    assertEquals(VideoWallStateMachine.ACTION_FLIP_IN_VIDEO, wall.send(Event.FLIP_TIMER));
+    wall.finishOldestFlip();
+    assertEquals(State.VIDEO_PLAYING, wall.getStateMachine().getState());
+    assertTrue(wall.isPlaying());
+
+    wall.endVideo();
+    assertEquals(State.VIDEO_ENDED, wall.getStateMachine().getState());
+    wall.addThumbnail();
+    assertEquals(VideoWallStateMachine.ACTION_FLIP_OUT_VIDEO, wall.send(Event.FLIP_TIMER));
+    wall.addThumbnail();
+    wall.finishOldestFlip();
+    assertEquals(State.VIDEO_LOADING, wall.getStateMachine().getState());
+    assertEquals(1, wall.getPlayedVideoCount());
+  }
+
+  public void testCueTimeoutCuesAnotherVideo() {
+    for (int flipLimit = 1; flipLimit <= MAX_FLIP_LIMIT; flipLimit++) {
+      SimulatedWall wall = new SimulatedWall(flipLimit, 1);
+      wall.start();
+      wall.addThumbnail();
+      wall.finishOldestFlip();
+      wall.addThumbnail();
+      assertEquals(State.VIDEO_LOADING, wall.getStateMachine().getState());
+
+      wall.addThumbnail();
+      for (int i = 1; i < VideoWallStateMachine.MAX_LOADING_TICKS * flipLimit; i++) {
+        wall.send(Event.FLIP_TIMER);
+        wall.finishAllFlips();
+        wall.addThumbnail();
+      }
+      assertEquals(0, wall.getStateMachine().getCueTimeoutCount());
+      wall.send(Event.FLIP_TIMER);
+      assertEquals(1, wall.getStateMachine().getCueTimeoutCount());
+      assertTrue((wall.getLastActions() & VideoWallStateMachine.ACTION_CUE_VIDEO) != 0);
+      assertEquals(State.VIDEO_LOADING, wall.getStateMachine().getState());
+    }
+  }
+
+  public void testNothingFlipsWhilePaused() {
+    SimulatedWall wall = new SimulatedWall(2, CELL_COUNT);
+    wall.start();
+    wall.send(Event.PAUSE);
+    wall.addThumbnail();
+    wall.addThumbnail();
+    assertEquals(0, wall.getRunningFlipCount());
+
+    wall.send(Event.RESUME);
+    assertEquals(1, wall.getRunningFlipCount());
+  }
+
+  /**
+   * Resuming used to merge the actions of the deferred flip and of the ready thumbnails, so two
+   * flips were counted but only one was carried out, and the wall stalled once the flip limit
+   * dropped to one.
+   */
+  public void testResumeCarriesOutEveryCountedFlip() {
+    SimulatedWall wall = new SimulatedWall(2, CELL_COUNT);
+    wall.start();
+    for (int i = 0; i < 4; i++) {
+      wall.addThumbnail();
+    }
+    wall.send(Event.PAUSE);
+    wall.finishOldestFlip();
+    wall.finishOldestFlip();
+    wall.send(Event.RESUME);
+    assertEquals(2, wall.getRunningFlipCount());
+    wall.finishOldestFlip();
+    wall.setFlipLimit(1);
+
+    assertNotStalled(wall);
+  }
+
+  public void testPauseAndResumeWithFlipLimits() {
+    for (int flipLimit = 1; flipLimit <= MAX_FLIP_LIMIT; flipLimit++) {
+      for (int finishedWhilePaused = 0; finishedWhilePaused <= flipLimit; finishedWhilePaused++) {
+        for (int readyWhilePaused = 0; readyWhilePaused <= flipLimit; readyWhilePaused++) {
+          SimulatedWall wall = new SimulatedWall(flipLimit, CELL_COUNT);
+          wall.start();
+          for (int i = 0; i < 2 * flipLimit; i++) {
+            wall.addThumbnail();
+          }
+          wall.send(Event.PAUSE);
+          for (int i = 0; i < finishedWhilePaused; i++) {
+            wall.finishOldestFlip();
+          }
+          for (int i = 0; i < readyWhilePaused; i++) {
+            wall.addThumbnail();
+          }
+          wall.send(Event.RESUME);
+          assertTrue(wall.getRunningFlipCount() <= flipLimit);
+          assertTrue(wall.getRunningFlipCount() > 0);
+
+          wall.setFlipLimit(1);
+          assertNotStalled(wall);
+        }
+      }
+    }
+  }
+
+  public void testRandomWallsNeverStall() {
+    Random random = new Random(0);
+    for (int maxFlipLimit = 1; maxFlipLimit <= MAX_FLIP_LIMIT; maxFlipLimit++) {
+      for (int doubleBuffered = 0; doubleBuffered < 2; doubleBuffered++) {
+        SimulatedWall wall = new SimulatedWall(maxFlipLimit, CELL_COUNT);
+        if (doubleBuffered == 1) {
+          wall.send(Event.STANDBY_AVAILABLE);
+        }
+        wall.start();
+        int stallStep = wall.runUntilStall(random, RANDOM_STEPS, maxFlipLimit, STALL_STEPS);
+        assertEquals("Stalled in " + wall.getStateMachine().getState() + " with flip limit "
+            + maxFlipLimit, -1, stallStep);
+        assertTrue(wall.getPlayedVideoCount() > 0);
+      }
+    }
+  }
+
+  public void testReplayReachesTheSameState() {
+    Random random = new Random(0);
+    for (int maxFlipLimit = 1; maxFlipLimit <= MAX_FLIP_LIMIT; maxFlipLimit++) {
+      SimulatedWall wall = new SimulatedWall(maxFlipLimit, CELL_COUNT);
+      wall.getStateMachine().setTraceCapacity(RANDOM_STEPS * 2);
+      wall.start();
+      for (int i = 0; i < RANDOM_STEPS; i++) {
+        wall.step(random, maxFlipLimit);
+      }
+
+      Event[] trace = wall.getStateMachine().getTrace();
+      VideoWallStateMachine replayed = VideoWallStateMachine.replay(
+          trace, wall.getStateMachine().getTraceFlipLimits(), trace.length);
+      String message = "With flip limit " + maxFlipLimit;
+      assertEquals(message, wall.getStateMachine().getState(), replayed.getState());
+      assertEquals(message, wall.getStateMachine().getCueTimeoutCount(),
+          replayed.getCueTimeoutCount());
+      assertEquals(message, trace.length, replayed.getTrace().length);
+    }
+  }
+
+  public void testWrittenTraceReplaysToTheSameState() throws IOException {
+    Random random = new Random(0);
+    SimulatedWall wall = new SimulatedWall(MAX_FLIP_LIMIT, CELL_COUNT);
+    wall.getStateMachine().setTraceCapacity(RANDOM_STEPS * 2);
+    wall.start();
+    for (int i = 0; i < RANDOM_STEPS; i++) {
+      wall.step(random, MAX_FLIP_LIMIT);
+    }
+
+    StringWriter writer = new StringWriter();
+    wall.getStateMachine().writeTrace(writer);
+    VideoWallStateMachine replayed =
+        VideoWallStateMachine.replay(new StringReader(writer.toString()), RANDOM_STEPS * 2);
+    assertEquals(wall.getStateMachine().getState(), replayed.getState());
+    assertEquals(wall.getStateMachine().getCueTimeoutCount(), replayed.getCueTimeoutCount());
+    assertTrue(Arrays.equals(wall.getStateMachine().getTraceFlipLimits(),
+        replayed.getTraceFlipLimits()));
+  }
+
+  public void testMalformedTraceIsRejected() {
+    try {
+      VideoWallStateMachine.replay(new StringReader("NOT_AN_EVENT 1\n"), 0);
+      fail();
+    } catch (IOException e) {
+      // Expected.
+    }
+  }
+
+  /**
+   * Asserts that once every running flip has finished, a new thumbnail gets flipped.
+   */
+  private static void assertNotStalled(SimulatedWall wall) {
+    wall.finishAllFlips();
+    int startedFlips = wall.getStartedFlipCount();
+    wall.addThumbnail();
+    wall.send(Event.FLIP_TIMER);
+    assertEquals(startedFlips + 1, wall.getStartedFlipCount());
+  }
+
+}